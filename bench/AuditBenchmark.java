@@ -0,0 +1,75 @@
+package miniprojects.schooldb;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Posts eight terms of grades for a school of students through a {@link DegreeAudit} on every core, then audits
+ * every student and runs a full recompute, which has to find no mismatches.
+ * <br>
+ * Arguments: students (200,000), courses per term (6).
+ */
+public class AuditBenchmark {
+    private static final Grade[] GRADES = {Grade.A, Grade.A_MINUS, Grade.B_PLUS, Grade.B, Grade.C, Grade.D, Grade.F,
+            Grade.P, Grade.W};
+
+    public static void main(String[] args) throws Exception {
+        int students = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int perTerm = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        Person.setIdGenerator(new ShardedIdGenerator());
+        SchoolDataBase school = new SchoolDataBase();
+        Department department = new Department("Audit");
+        Course[] courses = new Course[200];
+        for(int i = 0; i < courses.length; i++) courses[i] = new Course("AUD", 100 + i, 3 + i % 2, department);
+        Student[] all = new Student[students];
+        for(int i = 0; i < students; i++) {
+            all[i] = new Student("Audit", "Student", LocalDate.of(2004, 3, 21), Person.Gender.OTHER);
+            school.registerStudent(all[i]);
+        }
+        DegreeAudit audit = new DegreeAudit(school);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        List<Future<?>> parts = new ArrayList<>();
+        for(int t = 0; t < threads; t++) {
+            int from = (int) ((long) students * t / threads), to = (int) ((long) students * (t + 1) / threads);
+            parts.add(pool.submit(() -> {
+                for(int term = 0; term < 8; term++) {
+                    Term when = new Term(2020 + term / 2, term % 2 == 0 ? Term.Season.FALL : Term.Season.SPRING);
+                    for(int i = from; i < to; i++)
+                        for(int c = 0; c < perTerm; c++) {
+                            int pick = i * 31 + term * 7 + c;
+                            audit.postGrade(all[i], courses[(term * perTerm + c) % courses.length], when,
+                                    GRADES[Math.floorMod(pick, GRADES.length)]);
+                        }
+                }
+                return null;
+            }));
+        }
+        for(Future<?> part : parts) part.get();
+        long posting = System.nanoTime() - start;
+        pool.shutdown();
+        System.out.printf("%,d grades posted on %d threads in %,d ms, %.0f ns/grade%n", audit.gradesPosted(), threads,
+                posting / 1_000_000, (double) posting / audit.gradesPosted());
+
+        start = System.nanoTime();
+        long credits = 0;
+        for(Student student : all) credits += audit.audit(student).earnedCredits();
+        long auditing = System.nanoTime() - start;
+        System.out.printf("%,d audits in %,d ms, %.0f ns/audit, %,d credits, %,d eligible%n", students,
+                auditing / 1_000_000, (double) auditing / students, credits, audit.eligibleCount());
+
+        for(int round = 0; round < 3; round++) {
+            DegreeAudit.Recompute recompute = audit.recompute(false);
+            System.out.println("recompute: " + recompute);
+            if(!recompute.mismatches().isEmpty() || recompute.eligible() != audit.eligibleCount())
+                throw new AssertionError("running totals do not match the recompute");
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package miniprojects.schooldb;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A benchmark scenario run by {@link BenchmarkRunner}. A scenario declares a grid of int parameters, and the runner
+ * sets up one {@link Trial} for every combination in the grid. The "threads" parameter, when present, is the number
+ * of threads the runner drives the trial with.
+ */
+interface Benchmark {
+
+    /**
+     *
+     * @return returns the name the scenario is reported under
+     */
+    String name();
+
+    /**
+     *
+     * @return returns every combination of parameters to run the scenario with
+     */
+    List<Map<String, Integer>> params();
+
+    /**
+     * builds the state for one combination of parameters
+     * @param params takes in the parameter values
+     * @return returns the trial to time
+     * @throws Exception when the state cannot be built
+     */
+    Trial setUp(Map<String, Integer> params) throws Exception;
+
+    /**
+     * The timed part of a scenario.
+     */
+    interface Trial {
+
+        /**
+         * runs the operation under test the given number of times
+         * @param thread takes in the index of the calling thread, from 0 to threads - 1
+         * @param operations takes in the number of operations to run
+         * @return returns a value derived from the results, so the work cannot be optimized away
+         */
+        long run(int thread, int operations);
+    }
+
+    /**
+     * builds the cartesian product of the parameter values, in declaration order
+     * @param values takes in each parameter name with the values it takes
+     * @return returns every combination of parameters
+     */
+    static List<Map<String, Integer>> grid(Map<String, int[]> values) {
+        List<Map<String, Integer>> grid = new ArrayList<>();
+        grid.add(new LinkedHashMap<>());
+        for(Map.Entry<String, int[]> parameter : values.entrySet()) {
+            List<Map<String, Integer>> next = new ArrayList<>();
+            for(Map<String, Integer> partial : grid) {
+                for(int value : parameter.getValue()) {
+                    Map<String, Integer> combination = new LinkedHashMap<>(partial);
+                    combination.put(parameter.getKey(), value);
+                    next.add(combination);
+                }
+            }
+            grid = next;
+        }
+        return grid;
+    }
+}
@@ -0,0 +1,176 @@
+package miniprojects.schooldb;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * Runs the {@link Benchmark} scenarios and reports the average time per operation for every combination of
+ * parameters. Results can be written as JSON so runs from different releases can be compared.
+ * <br>
+ * Usage: {@code BenchmarkRunner [--filter text] [--json file] [--warmup n] [--iterations n] [--ops n]}
+ */
+public class BenchmarkRunner {
+    private static volatile long sink;
+
+    private final int warmupIterations;
+    private final int iterations;
+    private final int operations;
+
+    /**
+     * constructor
+     * @param warmupIterations takes in the number of untimed iterations run before measuring
+     * @param iterations takes in the number of timed iterations
+     * @param operations takes in the number of operations per iteration, shared out over the threads
+     */
+    BenchmarkRunner(int warmupIterations, int iterations, int operations) {
+        this.warmupIterations = warmupIterations;
+        this.iterations = iterations;
+        this.operations = operations;
+    }
+
+    /**
+     * runs a scenario for every combination of its parameters
+     * @param benchmark takes in the scenario
+     * @return returns one result per combination
+     * @throws Exception when the scenario fails
+     */
+    List<Result> run(Benchmark benchmark) throws Exception {
+        List<Result> results = new ArrayList<>();
+        for(Map<String, Integer> params : benchmark.params()) {
+            int threads = params.getOrDefault("threads", 1);
+            Benchmark.Trial trial = benchmark.setUp(params);
+            for(int i = 0; i < warmupIterations; i++) time(trial, threads);
+            double[] nanosPerOp = new double[iterations];
+            for(int i = 0; i < iterations; i++) nanosPerOp[i] = (double) time(trial, threads) / operations;
+            Result result = new Result(benchmark.name(), params, nanosPerOp);
+            System.out.println(result);
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * runs one iteration, split evenly over the threads
+     * @return returns the wall clock time of the iteration in nanoseconds
+     */
+    private long time(Benchmark.Trial trial, int threads) throws Exception {
+        if(threads == 1) {
+            long start = System.nanoTime();
+            sink += trial.run(0, operations);
+            return System.nanoTime() - start;
+        }
+        //the barrier actions run on the last thread to arrive, so the clock covers exactly the timed work
+        long[] clock = new long[2];
+        CyclicBarrier starting = new CyclicBarrier(threads, () -> clock[0] = System.nanoTime());
+        CyclicBarrier finishing = new CyclicBarrier(threads, () -> clock[1] = System.nanoTime());
+        long[] sinks = new long[threads];
+        List<Thread> workers = new ArrayList<>();
+        for(int t = 0; t < threads; t++) {
+            int thread = t;
+            int share = operations / threads + (t < operations % threads ? 1 : 0);
+            Thread worker = new Thread(() -> {
+                try {
+                    starting.await();
+                    sinks[thread] = trial.run(thread, share);
+                    finishing.await();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        for(Thread worker : workers) worker.join();
+        if(finishing.isBroken() || clock[1] == 0) throw new IllegalStateException("A benchmark thread failed");
+        for(long value : sinks) sink += value;
+        return clock[1] - clock[0];
+    }
+
+    /**
+     * The measurements for one combination of parameters.
+     * @param benchmark the name of the scenario
+     * @param params the parameter values
+     * @param nanosPerOp the average time per operation in every timed iteration
+     */
+    record Result(String benchmark, Map<String, Integer> params, double[] nanosPerOp) {
+
+        double mean() {
+            double sum = 0;
+            for(double value : nanosPerOp) sum += value;
+            return sum / nanosPerOp.length;
+        }
+
+        double error() {
+            if(nanosPerOp.length < 2) return 0;
+            double mean = mean(), squares = 0;
+            for(double value : nanosPerOp) squares += (value - mean) * (value - mean);
+            return Math.sqrt(squares / (nanosPerOp.length - 1));
+        }
+
+        String toJson() {
+            StringBuilder json = new StringBuilder("  {\"benchmark\": \"").append(benchmark).append("\", \"params\": {");
+            String separator = "";
+            for(Map.Entry<String, Integer> param : params.entrySet()) {
+                json.append(separator).append('"').append(param.getKey()).append("\": ").append(param.getValue());
+                separator = ", ";
+            }
+            json.append("}, \"mode\": \"avgt\", \"unit\": \"ns/op\", \"score\": ").append(mean())
+                    .append(", \"scoreError\": ").append(error()).append(", \"rawData\": [");
+            separator = "";
+            for(double value : nanosPerOp) {
+                json.append(separator).append(value);
+                separator = ", ";
+            }
+            return json.append("]}").toString();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-28s %-60s %,12.1f +- %,.1f ns/op", benchmark, params, mean(), error());
+        }
+    }
+
+    /**
+     * writes results as a JSON array
+     * @param results takes in the results
+     * @param file takes in the file to write
+     * @throws IOException when the file cannot be written
+     */
+    static void writeJson(List<Result> results, Path file) throws IOException {
+        StringBuilder json = new StringBuilder("[\n");
+        for(int i = 0; i < results.size(); i++) {
+            json.append(results.get(i).toJson()).append(i + 1 < results.size() ? ",\n" : "\n");
+        }
+        Files.writeString(file, json.append("]\n"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        String filter = "", json = null;
+        int warmup = 3, iterations = 5, operations = 200_000;
+        for(int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--filter" -> filter = args[++i];
+                case "--json" -> json = args[++i];
+                case "--warmup" -> warmup = Integer.parseInt(args[++i]);
+                case "--iterations" -> iterations = Integer.parseInt(args[++i]);
+                case "--ops" -> operations = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        BenchmarkRunner runner = new BenchmarkRunner(warmup, iterations, operations);
+        List<Result> results = new ArrayList<>();
+        for(Benchmark benchmark : HotPathBenchmarks.all()) {
+            if(benchmark.name().contains(filter)) results.addAll(runner.run(benchmark));
+        }
+        if(json != null) {
+            writeJson(results, Path.of(json));
+            System.out.println("Results written to " + json);
+        }
+    }
+}
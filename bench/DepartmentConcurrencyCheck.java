@@ -0,0 +1,60 @@
+package miniprojects.schooldb;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Creates hundreds of departments in parallel, each with its own courses and instructors, and checks that no
+ * department saw another department's courses or instructors.
+ */
+public class DepartmentConcurrencyCheck {
+    private static final LocalDate DOB = LocalDate.of(1980, 1, 1);
+
+    public static void main(String[] args) throws Exception {
+        int departments = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int coursesPerDepartment = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int instructorsPerDepartment = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        SchoolDataBase school = new SchoolDataBase();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+        List<Future<?>> work = new ArrayList<>();
+        for(int d = 0; d < departments; d++) {
+            String name = "Department " + d;
+            work.add(pool.submit(() -> {
+                Department department = new Department(name);
+                school.registerDepartment(department);
+                for(int c = 0; c < coursesPerDepartment; c++) new Course(courseName(c), 100 + c, 3, department);
+                for(int i = 0; i < instructorsPerDepartment; i++)
+                    new Instructor("Instructor", name, DOB, Person.Gender.OTHER, department);
+                return null;
+            }));
+        }
+        for(Future<?> future : work) future.get();
+        pool.shutdown();
+
+        check(school.departments().size() == departments, "lost departments: " + school.departments().size());
+        for(Department department : school.departments()) {
+            check(department.getCatalog().size() == coursesPerDepartment,
+                    department + " has " + department.getCatalog().size() + " courses");
+            check(department.getInstructors().size() == instructorsPerDepartment,
+                    department + " has " + department.getInstructors().size() + " instructors");
+            for(Instructor instructor : department.getInstructors())
+                check(department.getName().equals(instructor.getLastName()), department + " has a foreign instructor");
+            for(Course course : department.getCatalog().all())
+                check(course.getDepartment() == department, department + " has a foreign course");
+        }
+        System.out.println(departments + " departments created in parallel without interference.");
+    }
+
+    private static String courseName(int index) {
+        return "C" + (char) ('A' + index / 26 % 26) + (char) ('A' + index % 26);
+    }
+
+    private static void check(boolean condition, String message) {
+        if(!condition) throw new AssertionError(message);
+    }
+}
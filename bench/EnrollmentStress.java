@@ -0,0 +1,102 @@
+package miniprojects.schooldb;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A multi-threaded stress run for {@link Course.Clazz}. Many threads enroll and drop students in the same section
+ * at once, half of them one at a time and half in batches, and the run then checks that the section was never oversold and that no student was lost.
+ * Every other round uses a compact roster.
+ */
+public class EnrollmentStress {
+    private static final int BATCH = 50;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int studentsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        int capacity = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+        int waitlistCapacity = args.length > 3 ? Integer.parseInt(args[3]) : 5_000;
+
+        for(int round = 0; round < 20; round++) {
+            run(threads, studentsPerThread, capacity, waitlistCapacity, round % 2 == 1);
+        }
+        System.out.println("No overselling or lost students in 20 rounds.");
+    }
+
+    private static void run(int threads, int studentsPerThread, int capacity, int waitlistCapacity, boolean compact)
+            throws Exception {
+        SchoolDataBase school = new SchoolDataBase();
+        Course course = new Course("CMP", 133, 3, null);
+        Course.Clazz clazz = course.new Clazz("01", null, capacity, waitlistCapacity, compact ? school : null);
+
+        List<List<Student>> work = new ArrayList<>();
+        for(int t = 0; t < threads; t++) {
+            List<Student> students = new ArrayList<>();
+            for(int i = 0; i < studentsPerThread; i++)
+                students.add(new Student("Stress", "Student", LocalDate.of(2004, 3, 21), Person.Gender.OTHER));
+            students.forEach(school::registerStudent);
+            work.add(students);
+        }
+
+        List<Student> dropped = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> running = new ArrayList<>();
+        for(int t = 0; t < work.size(); t++) {
+            List<Student> students = work.get(t);
+            boolean batched = t % 2 == 0;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for(int from = 0; from < students.size(); from += BATCH) {
+                    List<Student> chunk = students.subList(from, Math.min(from + BATCH, students.size()));
+                    EnrollmentResult[] results = new EnrollmentResult[chunk.size()];
+                    if(batched) results = clazz.addStudents(chunk);
+                    else for(int i = 0; i < chunk.size(); i++) results[i] = clazz.enroll(chunk.get(i));
+
+                    for(int i = 0; i < chunk.size(); i++) {
+                        if(results[i] == EnrollmentResult.REJECTED) {
+                            rejected.incrementAndGet();
+                        } else if(ThreadLocalRandom.current().nextInt(4) == 0) {
+                            clazz.removeStudent(chunk.get(i));
+                            dropped.add(chunk.get(i));
+                        }
+                    }
+                }
+            });
+            thread.start();
+            running.add(thread);
+        }
+        start.countDown();
+        for(Thread thread : running) thread.join();
+
+        Student[] seated = clazz.getStudents();
+        Student[] waiting = clazz.waitlistedStudents();
+        check(seated.length <= capacity, "oversold: " + seated.length + " seats taken of " + capacity);
+        check(waiting.length == 0 || seated.length == capacity, "free seats while students are waiting");
+
+        Map<Student, Boolean> seen = new IdentityHashMap<>();
+        for(Student student : seated) check(seen.put(student, true) == null, "student seated twice");
+        for(Student student : waiting) check(seen.put(student, true) == null, "student seated and waiting");
+        for(Student student : dropped) check(seen.put(student, true) == null, "dropped student still enrolled");
+
+        int total = threads * studentsPerThread;
+        check(seen.size() + rejected.get() == total,
+                "lost students: " + (total - seen.size() - rejected.get()));
+    }
+
+    private static void check(boolean condition, String message) {
+        if(!condition) throw new AssertionError(message);
+    }
+}
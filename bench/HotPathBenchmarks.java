@@ -0,0 +1,494 @@
+package miniprojects.schooldb;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * The benchmark scenarios for the enrollment and catalog hot paths.
+ */
+final class HotPathBenchmarks {
+    private static final LocalDate DOB = LocalDate.of(2004, 3, 21);
+    private static final int[] THREADS = {1, 4, 16};
+    private static ChangeFeed lastFeed;
+
+    private HotPathBenchmarks() {
+    }
+
+    /**
+     *
+     * @return returns every scenario
+     */
+    static List<Benchmark> all() {
+        return List.of(addStudent(), dropAndReadd(), addCourse(), createId(), teachesClass(), scheduleConflict(),
+                construct(), metrics(), waitlist(), workload(), roster(), queryCache(), changeFeed());
+    }
+
+    /**
+     * Adds students to a shared class until it and its waitlist are full, then moves on to a new class.
+     */
+    static Benchmark addStudent() {
+        Map<String, int[]> grid = new LinkedHashMap<>();
+        grid.put("classSize", new int[] {30, 1_000, 10_000});
+        grid.put("waitlistDepth", new int[] {0, 100, 1_000});
+        grid.put("threads", THREADS);
+        return benchmark("clazz.addStudent", grid, params -> {
+            int classSize = params.get("classSize"), waitlistDepth = params.get("waitlistDepth");
+            List<List<Student>> pools = studentPools(params.get("threads"), classSize + waitlistDepth + 1);
+            AtomicReference<Course.Clazz> current = new AtomicReference<>(newClass(classSize, waitlistDepth));
+            return (thread, operations) -> {
+                List<Student> pool = pools.get(thread);
+                long seated = 0;
+                for(int i = 0; i < operations; i++) {
+                    Course.Clazz clazz = current.get();
+                    EnrollmentResult result = clazz.enroll(pool.get(i % pool.size()));
+                    if(result == EnrollmentResult.ENROLLED) seated++;
+                    else if(result == EnrollmentResult.REJECTED)
+                        current.compareAndSet(clazz, newClass(classSize, waitlistDepth));
+                }
+                return seated;
+            };
+        });
+    }
+
+    /**
+     * Keeps a class full with a waitlist behind it, then drops students and adds them back, so every drop
+     * promotes the head of the waitlist.
+     */
+    static Benchmark dropAndReadd() {
+        Map<String, int[]> grid = new LinkedHashMap<>();
+        grid.put("classSize", new int[] {30, 1_000, 10_000});
+        grid.put("waitlistDepth", new int[] {0, 100, 1_000});
+        grid.put("threads", THREADS);
+        return benchmark("clazz.removeStudent", grid, params -> {
+            int classSize = params.get("classSize"), waitlistDepth = params.get("waitlistDepth");
+            int threads = params.get("threads");
+            List<List<Student>> pools = studentPools(threads, Math.max(1, (classSize + waitlistDepth) / threads));
+            Course.Clazz clazz = newClass(classSize, waitlistDepth);
+            pools.forEach(clazz::addStudents);
+            return (thread, operations) -> {
+                List<Student> pool = pools.get(thread);
+                long seated = 0;
+                for(int i = 0; i < operations; i++) {
+                    Student student = pool.get(i % pool.size());
+                    clazz.removeStudent(student);
+                    if(clazz.enroll(student) == EnrollmentResult.ENROLLED) seated++;
+                }
+                return seated;
+            };
+        });
+    }
+
+    /**
+     * Reads the roster of a full class a hundred times for every drop and re-add, the way a class is read far more
+     * often than it changes. A read only copies the roster when it changed since the last read.
+     */
+    static Benchmark roster() {
+        Map<String, int[]> grid = new LinkedHashMap<>();
+        grid.put("classSize", new int[] {30, 1_000});
+        grid.put("threads", THREADS);
+        return benchmark("clazz.roster", grid, params -> {
+            int classSize = params.get("classSize"), threads = params.get("threads");
+            List<List<Student>> pools = studentPools(threads, Math.max(1, classSize / threads));
+            Course.Clazz clazz = newClass(classSize, 0);
+            pools.forEach(clazz::addStudents);
+            return (thread, operations) -> {
+                List<Student> pool = pools.get(thread);
+                long seen = 0;
+                for(int i = 0; i < operations; i++) {
+                    if(i % 100 == 99) {
+                        Student student = pool.get(i / 100 % pool.size());
+                        clazz.removeStudent(student);
+                        clazz.enroll(student);
+                    }
+                    seen += clazz.roster().size();
+                }
+                return seen;
+            };
+        });
+    }
+
+    /**
+     * Reads the summary of one of 100 classes of a registered department, with a student dropped and added back
+     * for every hundred reads. Cache 0 formats the summary on every read, 1 asks a {@link QueryCache}, which only
+     * formats it again after the class changed.
+     */
+    static Benchmark queryCache() {
+        Map<String, int[]> grid = new LinkedHashMap<>();
+        grid.put("cache", new int[] {0, 1});
+        grid.put("threads", THREADS);
+        return benchmark("cache.classSummary", grid, params -> {
+            SchoolDataBase school = new SchoolDataBase();
+            Department department = new Department("Bench");
+            school.registerDepartment(department);
+            Course course = new Course("BEN", 101, 3, department);
+            Course.Clazz[] classes = new Course.Clazz[100];
+            for(int i = 0; i < classes.length; i++) classes[i] = course.new Clazz("S" + i, null, 30, 0);
+            QueryCache cache = params.get("cache") == 1 ? new QueryCache(school) : null;
+            //without the cache, a listener that does nothing keeps the enrollment path the same
+            if(cache == null) school.addListener(new MutationListener() { });
+            List<List<Student>> pools = studentPools(params.get("threads"), 10);
+            return (thread, operations) -> {
+                List<Student> pool = pools.get(thread);
+                long length = 0;
+                for(int i = 0; i < operations; i++) {
+                    Course.Clazz clazz = classes[(thread * 31 + i) % classes.length];
+                    if(i % 100 == 99) {
+                        Student student = pool.get(i / 100 % pool.size());
+                        clazz.removeStudent(student);
+                        clazz.enroll(student);
+                    }
+                    length += (cache == null ? clazz.toString() : cache.classSummary(clazz)).length();
+                }
+                return length;
+            };
+        });
+    }
+
+    /**
+     * Drops students from a full class and adds them back with subscribers taking every change from a
+     * {@link ChangeFeed}. Subscribers 0 has no feed but a listener that does nothing, so the enrollment path is the
+     * same and the difference is the cost of putting the changes into the ring.
+     */
+    static Benchmark changeFeed() {
+        Map<String, int[]> grid = new LinkedHashMap<>();
+        grid.put("subscribers", new int[] {0, 1, 4});
+        grid.put("threads", THREADS);
+        return benchmark("feed.enroll", grid, params -> {
+            //the runner has no tear down, so the feed of the last trial is closed here to stop its threads
+            if(lastFeed != null) lastFeed.close();
+            SchoolDataBase school = new SchoolDataBase();
+            Department department = new Department("Bench");
+            school.registerDepartment(department);
+            Course course = new Course("BEN", 101, 3, department);
+            Course.Clazz clazz = course.new Clazz("S1", null, 1_000, 0);
+            int subscribers = params.get("subscribers"), threads = params.get("threads");
+            if(subscribers == 0) school.addListener(new MutationListener() { });
+            else {
+                lastFeed = new ChangeFeed(school);
+                LongAdder seen = new LongAdder();
+                for(int i = 0; i < subscribers; i++)
+                    lastFeed.subscribe("bench-subscriber-" + i, batch -> seen.add(batch.size()));
+            }
+            List<List<Student>> pools = studentPools(threads, Math.max(1, 1_000 / threads));
+            pools.forEach(clazz::addStudents);
+            return (thread, operations) -> {
+                List<Student> pool = pools.get(thread);
+                long seated = 0;
+                for(int i = 0; i < operations; i++) {
+                    Student student = pool.get(i % pool.size());
+                    clazz.removeStudent(student);
+                    if(clazz.enroll(student) == EnrollmentResult.ENROLLED) seated++;
+                }
+                return seated;
+            };
+        });
+    }
+
+    /**
+     * Adds courses to department catalogs and takes them out again.
+     */
+    static Benchmark addCourse() {
+        Map<String, int[]> grid = new LinkedHashMap<>();
+        grid.put("departments", new int[] {1, 100, 1_000});
+        grid.put("threads", THREADS);
+        return benchmark("department.addCourse", grid, params -> {
+            int threads = params.get("threads");
+            Department[] departments = new Department[params.get("departments")];
+            for(int d = 0; d < departments.length; d++) departments[d] = new Department("Department " + d);
+            List<List<Course>> pools = new ArrayList<>();
+            int next = 0;
+            for(int t = 0; t < threads; t++) {
+                List<Course> pool = new ArrayList<>();
+                for(int c = 0; c < 1_000; c++, next++)
+                    pool.add(new Course(courseName(next / 800), 100 + next % 800, 3, null));
+                pools.add(pool);
+            }
+            return (thread, operations) -> {
+                List<Course> pool = pools.get(thread);
+                long size = 0;
+                for(int i = 0; i < operations; i++) {
+                    Department department = departments[(thread + i) % departments.length];
+                    Course course = pool.get(i % pool.size());
+                    department.addCourse(course);
+                    size += department.getCatalog().size();
+                    department.removeCourse(course);
+                }
+                return size;
+            };
+        });
+    }
+
+    /**
+     * Creates person ids. The generator parameter is 0 for {@link ShardedIdGenerator} and 1 for
+     * {@link SequenceIdGenerator}. A generator that runs out of numbers is swapped for a fresh one.
+     */
+    static Benchmark createId() {
+        Map<String, int[]> grid = new LinkedHashMap<>();
+        grid.put("generator", new int[] {0, 1});
+        grid.put("threads", THREADS);
+        return benchmark("person.createId", grid, params -> {
+            boolean sharded = params.get("generator") == 0;
+            AtomicReference<IdGenerator> generator = new AtomicReference<>(
+                    sharded ? new ShardedIdGenerator() : new SequenceIdGenerator());
+            return (thread, operations) -> {
+                long length = 0;
+                for(int i = 0; i < operations; i++) {
+                    IdGenerator current = generator.get();
+                    try {
+                        length += current.nextId("Bench", "Student").length();
+                    } catch (IllegalStateException exhausted) {
+                        generator.compareAndSet(current, sharded ? new ShardedIdGenerator() : new SequenceIdGenerator());
+                    }
+                }
+                return length;
+            };
+        });
+    }
+
+    /**
+     * Asks an instructor whether they teach a class, for classes they teach and one they do not.
+     */
+    static Benchmark teachesClass() {
+        Map<String, int[]> grid = new LinkedHashMap<>();
+        grid.put("classes", new int[] {1, 10, 1_000});
+        grid.put("threads", THREADS);
+        return benchmark("instructor.teachesClass", grid, params -> {
+            Instructor instructor = new Instructor("Bench", "Instructor", LocalDate.of(1980, 1, 1),
+                    Person.Gender.OTHER, null);
+            Course course = new Course("BEN", 101, 3, null);
+            Course.Clazz[] classes = new Course.Clazz[params.get("classes") + 1];
+            for(int i = 0; i < classes.length; i++) {
+                classes[i] = course.new Clazz(String.valueOf(i), null, 30, 30);
+                if(i + 1 < classes.length) instructor.addClass(classes[i]);
+            }
+            return (thread, operations) -> {
+                long taught = 0;
+                for(int i = 0; i < operations; i++) if(instructor.teachesClass(classes[i % classes.length])) taught++;
+                return taught;
+            };
+        });
+    }
+
+    /**
+     * Students that already have a full week of classes try a class that clashes with one of them and a class that
+     * fits, then drop the one that fit. The cost should not grow with the number of classes they have.
+     */
+    static Benchmark scheduleConflict() {
+        Map<String, int[]> grid = new LinkedHashMap<>();
+        grid.put("classesPerStudent", new int[] {1, 10, 40});
+        grid.put("threads", THREADS);
+        return benchmark("clazz.enroll.conflictCheck", grid, params -> {
+            int taken = params.get("classesPerStudent");
+            Course course = new Course("BEN", 101, 3, null);
+            Course.Clazz[] schedule = new Course.Clazz[taken];
+            for(int i = 0; i < taken; i++) {
+                schedule[i] = course.new Clazz("T" + i, null, 100_000, 0);
+                schedule[i].setMeetingTimes(List.of(meeting(i)));
+            }
+            Course.Clazz clash = course.new Clazz("CLASH", null, 100_000, 0);
+            clash.setMeetingTimes(List.of(meeting(taken / 2)));
+            Course.Clazz fits = course.new Clazz("FITS", null, 100_000, 0);
+            fits.setMeetingTimes(List.of(meeting(taken)));
+            List<List<Student>> pools = studentPools(params.get("threads"), 64);
+            for(List<Student> pool : pools) for(Course.Clazz clazz : schedule) clazz.addStudents(pool);
+            return (thread, operations) -> {
+                List<Student> pool = pools.get(thread);
+                long conflicts = 0;
+                for(int i = 0; i < operations; i++) {
+                    Student student = pool.get(i % pool.size());
+                    if(clash.enroll(student) == EnrollmentResult.CONFLICT) conflicts++;
+                    fits.enroll(student);
+                    fits.removeStudent(student);
+                }
+                return conflicts;
+            };
+        });
+    }
+
+    /**
+     * Enrolls a student in a class and drops them again, with {@link EnrollmentMetrics} on and off, to show what
+     * counting costs on the enrollment path.
+     */
+    static Benchmark metrics() {
+        Map<String, int[]> grid = new LinkedHashMap<>();
+        //off last, so the benchmarks after this one run without metrics
+        grid.put("metrics", new int[] {1, 0});
+        grid.put("threads", THREADS);
+        return benchmark("clazz.enroll.metrics", grid, params -> {
+            EnrollmentMetrics.setEnabled(params.get("metrics") == 1);
+            Course.Clazz clazz = newClass(100_000, 0);
+            List<List<Student>> pools = studentPools(params.get("threads"), 64);
+            return (thread, operations) -> {
+                List<Student> pool = pools.get(thread);
+                long seated = 0;
+                for(int i = 0; i < operations; i++) {
+                    Student student = pool.get(i % pool.size());
+                    if(clazz.enroll(student) == EnrollmentResult.ENROLLED) seated++;
+                    clazz.removeStudent(student);
+                }
+                return seated;
+            };
+        });
+    }
+
+    /**
+     * Drops a student from a full class with a deep waitlist and enrolls them again. Dropping a seated student
+     * promotes the head of the waitlist, dropping a wait-listed student removes them from the middle, and the
+     * student rejoins at the back either way. Waitlist 0 is the first-come first-served queue and 1 the priority
+     * heap, with a quarter of the students a tier up.
+     */
+    static Benchmark waitlist() {
+        Map<String, int[]> grid = new LinkedHashMap<>();
+        grid.put("waitlist", new int[] {0, 1});
+        grid.put("waitlistDepth", new int[] {100, 10_000});
+        grid.put("threads", THREADS);
+        return benchmark("clazz.waitlist", grid, params -> {
+            int threads = params.get("threads"), depth = params.get("waitlistDepth"), seats = 100;
+            int perThread = (seats + depth) / threads;
+            Course course = new Course("BEN", 101, 3, null);
+            Course.Clazz clazz = params.get("waitlist") == 0 ? course.new Clazz("01", null, seats, seats + depth)
+                    : course.new Clazz("01", null, seats, seats + depth,
+                    (student, section) -> (student.hashCode() & 3) == 0 ? 1 : 0);
+            List<List<Student>> pools = studentPools(threads, perThread);
+            for(List<Student> pool : pools) clazz.addStudents(pool);
+            return (thread, operations) -> {
+                List<Student> pool = pools.get(thread);
+                long seated = 0;
+                for(int i = 0; i < operations; i++) {
+                    Student student = pool.get(i % pool.size());
+                    clazz.removeStudent(student);
+                    if(clazz.enroll(student) == EnrollmentResult.ENROLLED) seated++;
+                }
+                return seated;
+            };
+        });
+    }
+
+    /**
+     * Finds the least loaded instructor qualified for a course, gives them a class and takes another of theirs
+     * away, so every operation moves an instructor in the department's workload index twice.
+     */
+    static Benchmark workload() {
+        Map<String, int[]> grid = new LinkedHashMap<>();
+        grid.put("instructors", new int[] {10, 1_000, 10_000});
+        grid.put("threads", THREADS);
+        return benchmark("department.leastLoaded", grid, params -> {
+            Department department = new Department("Bench");
+            Course course = new Course("BEN", 101, 3, department);
+            int instructors = params.get("instructors");
+            for(int i = 0; i < instructors; i++) {
+                Instructor instructor = new Instructor("Bench", "Instructor", LocalDate.of(1980, 1, 1),
+                        Person.Gender.OTHER, department);
+                instructor.addQualification(course.getKey());
+                instructor.addClass(course.new Clazz("I" + i, null, 1 + i % 50, 0));
+            }
+            Course.Clazz[] classes = new Course.Clazz[64];
+            for(int i = 0; i < classes.length; i++) classes[i] = course.new Clazz("C" + i, null, 30, 0);
+            WorkloadIndex index = department.getWorkloadIndex();
+            return (thread, operations) -> {
+                long found = 0;
+                for(int i = 0; i < operations; i++) {
+                    Instructor instructor = index.leastLoaded(course.getKey()).orElseThrow();
+                    Course.Clazz clazz = classes[(thread * 7 + i) % classes.length];
+                    if(instructor.addClass(clazz)) {
+                        found++;
+                        instructor.removeClass(clazz);
+                    }
+                }
+                return found;
+            };
+        });
+    }
+
+    /**
+     * Creates a course and a student per operation. With validation 0 every operation first repeats the checks the
+     * constructors used to make, two regexes compiled per course and a clock read per person, so the two settings
+     * show the construction throughput before and after {@link Validator}.
+     */
+    static Benchmark construct() {
+        Map<String, int[]> grid = new LinkedHashMap<>();
+        grid.put("validation", new int[] {0, 1});
+        grid.put("threads", THREADS);
+        return benchmark("course.student.construct", grid, params -> {
+            boolean legacy = params.get("validation") == 0;
+            //every operation uses up an id, so give each trial a fresh id space
+            Person.setIdGenerator(new ShardedIdGenerator());
+            return (thread, operations) -> {
+                long credits = 0;
+                for(int i = 0; i < operations; i++) {
+                    String name = courseName(i % 17_576);
+                    int number = 100 + i % 800;
+                    LocalDate dob = DOB.plusDays(i % 365);
+                    if(legacy && !legacyChecks(name, number, dob)) throw new AssertionError("invalid input");
+                    credits += new Course(name, number, 3, null).getNumOfCredits();
+                    credits += new Student("Bench", "Student", dob, Person.Gender.OTHER, null).getDob().getDayOfMonth();
+                }
+                return credits;
+            };
+        });
+    }
+
+    private static boolean legacyChecks(String name, int courseNumber, LocalDate dob) {
+        return Pattern.compile("^[a-zA-Z]{3,4}$").matcher(name).matches()
+                && Pattern.compile("^[1-8][0-9]{2,3}$").matcher(String.valueOf(courseNumber)).matches()
+                && dob.isBefore(LocalDate.now());
+    }
+
+    /**
+     * @return returns the i-th 50 minute meeting of a week with eight meetings a day, Monday to Friday
+     */
+    private static MeetingTime meeting(int i) {
+        LocalTime start = LocalTime.of(8 + i % 8, 0);
+        return new MeetingTime(DayOfWeek.of(1 + i / 8 % 5), start, start.plusMinutes(50));
+    }
+
+    private static Course.Clazz newClass(int classSize, int waitlistDepth) {
+        return new Course("BEN", 101, 3, null).new Clazz("01", null, classSize, waitlistDepth);
+    }
+
+    private static List<List<Student>> studentPools(int threads, int size) {
+        List<List<Student>> pools = new ArrayList<>();
+        for(int t = 0; t < threads; t++) {
+            List<Student> pool = new ArrayList<>(size);
+            for(int i = 0; i < size; i++) pool.add(new Student("Bench", "Student", DOB, Person.Gender.OTHER));
+            pools.add(pool);
+        }
+        return pools;
+    }
+
+    private static String courseName(int index) {
+        return "" + (char) ('A' + index / 676 % 26) + (char) ('A' + index / 26 % 26) + (char) ('A' + index % 26);
+    }
+
+    private interface SetUp {
+        Benchmark.Trial setUp(Map<String, Integer> params) throws Exception;
+    }
+
+    private static Benchmark benchmark(String name, Map<String, int[]> grid, SetUp setUp) {
+        List<Map<String, Integer>> params = Benchmark.grid(grid);
+        return new Benchmark() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public List<Map<String, Integer>> params() {
+                return params;
+            }
+
+            @Override
+            public Trial setUp(Map<String, Integer> values) throws Exception {
+                return setUp.setUp(values);
+            }
+        };
+    }
+}
@@ -0,0 +1,51 @@
+package miniprojects.schooldb;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Times the creation of a million people with each {@link IdGenerator}, on one thread and on every core.
+ */
+public class IdGeneratorBenchmark {
+    private static final LocalDate DOB = LocalDate.of(2004, 3, 21);
+
+    public static void main(String[] args) throws Exception {
+        int people = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for(int round = 0; round < 3; round++) {
+            System.out.println("Round " + (round + 1));
+            run("random", new RandomIdGenerator(), people, 1);
+            run("sequence", new SequenceIdGenerator(), people, 1);
+            run("sharded", new ShardedIdGenerator(), people, 1);
+            run("random", new RandomIdGenerator(), people, threads);
+            run("sequence", new SequenceIdGenerator(), people, threads);
+            run("sharded", new ShardedIdGenerator(), people, threads);
+        }
+    }
+
+    private static void run(String name, IdGenerator generator, int people, int threads) throws Exception {
+        Person.setIdGenerator(generator);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        List<Future<?>> parts = new ArrayList<>();
+        for(int t = 0; t < threads; t++) {
+            int count = people / threads + (t < people % threads ? 1 : 0);
+            parts.add(pool.submit(() -> {
+                for(int i = 0; i < count; i++) new Student("Bench", "Student", DOB, Person.Gender.OTHER);
+                return null;
+            }));
+        }
+        for(Future<?> part : parts) part.get();
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+
+        String retries = generator instanceof RandomIdGenerator random ? ", retries = " + random.retries() : "";
+        System.out.printf("%-8s threads = %2d, %,d people in %,d ms, %.1f ns/person%s%n", name, threads, people,
+                elapsed / 1_000_000, (double) elapsed / people, retries);
+    }
+}
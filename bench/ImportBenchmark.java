@@ -0,0 +1,71 @@
+package miniprojects.schooldb;
+
+import java.io.BufferedWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+/**
+ * Writes a synthetic district export, imports it with {@link SchoolImporter} and reports the rows per second and
+ * the heap in use afterwards. A few rows of every file are broken on purpose and have to come back as row errors.
+ */
+public class ImportBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int students = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int courses = Math.max(1, students / 1_000), sectionsPerCourse = 10;
+        Path directory = Files.createTempDirectory("district");
+
+        try(BufferedWriter out = Files.newBufferedWriter(directory.resolve("students.csv"))) {
+            out.write("id,first name,last name,date of birth,gender\n");
+            LocalDate dob = LocalDate.of(2004, 1, 1);
+            for(int i = 0; i < students; i++) {
+                if(i % 100_000 == 99_999) out.write(",Broken,Row,2004-13-01,M\n");
+                else out.write(",\"Student\",Number" + i + "," + dob.plusDays(i % 365) + "," + "MFO".charAt(i % 3) + "\n");
+            }
+        }
+        try(BufferedWriter out = Files.newBufferedWriter(directory.resolve("instructors.csv"))) {
+            out.write("id,first name,last name,date of birth,gender,department\n");
+            for(int i = 0; i < courses; i++)
+                out.write(String.format("In%07dX,Instructor,Number%d,1970-01-01,O,Department %d%n", 1_000_000 + i, i,
+                        i % 50));
+        }
+        try(BufferedWriter out = Files.newBufferedWriter(directory.resolve("courses.csv"))) {
+            out.write("department,name,course number,number of credits\n");
+            for(int i = 0; i < courses; i++) out.write("Department " + i % 50 + "," + name(i) + "," + (100 + i % 800) + ",3\n");
+            out.write("Department 0,TOOLONG,101,3\n");
+        }
+        try(BufferedWriter out = Files.newBufferedWriter(directory.resolve("classes.csv"))) {
+            out.write("course name,course number,section,capacity,waitlist capacity,instructor id\n");
+            for(int i = 0; i < courses; i++)
+                for(int s = 0; s < sectionsPerCourse; s++)
+                    out.write(name(i) + "," + (100 + i % 800) + ",0" + s + ",30,10,"
+                            + (s == 0 ? String.format("In%07dX", 1_000_000 + i) : "") + "\n");
+            out.write(name(0) + ",100,00,30,10,\n");
+        }
+
+        SchoolDataBase school = new SchoolDataBase();
+        long start = System.nanoTime();
+        ImportReport report = new SchoolImporter(school).importAll(directory);
+        long elapsed = System.nanoTime() - start;
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        System.out.println(report);
+        report.errors().forEach(System.out::println);
+        System.out.printf("%,.0f rows/s, %,d MB heap in use%n", report.rows() * 1e9 / elapsed,
+                (runtime.totalMemory() - runtime.freeMemory()) >> 20);
+        System.out.printf("%,d people, %,d courses, %,d classes%n", school.people().size(), school.courses().size(),
+                school.classes().size());
+
+        try(var files = Files.list(directory)) {
+            for(Path file : files.toList()) Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    private static String name(int index) {
+        index /= 800;
+        return "" + (char) ('A' + index / 676 % 26) + (char) ('A' + index / 26 % 26) + (char) ('A' + index % 26);
+    }
+}
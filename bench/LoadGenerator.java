@@ -0,0 +1,110 @@
+package miniprojects.schooldb;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Starts a {@link SchoolServer} on localhost and keeps a number of clients busy against it for a while, each
+ * sending its next request as soon as the last one is answered. Requests are 70% rosters, 10% catalog searches,
+ * 10% enrollments and 10% drops. Reports the requests per second, the errors and the p50/p99 latency per kind.
+ * <br>
+ * Arguments: clients (10,000), seconds (20), classes (1,000), students (100,000). Every client holds a connection,
+ * so the open file limit has to be above the number of clients.
+ */
+public class LoadGenerator {
+    private static final String[] KINDS = {"roster", "catalog", "enroll", "drop"};
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int classes = args.length > 2 ? Integer.parseInt(args[2]) : 1_000;
+        int students = args.length > 3 ? Integer.parseInt(args[3]) : 100_000;
+
+        Person.setIdGenerator(new ShardedIdGenerator());
+        SchoolDataBase school = new SchoolDataBase();
+        Department department = new Department("Load");
+        school.registerDepartment(department);
+        List<String> sections = new ArrayList<>(classes);
+        for(int i = 0; i < classes; i++) {
+            Course course = new Course(name(i / 10), 100 + i % 800, 3, department);
+            school.registerCourse(course);
+            Course.Clazz clazz = course.new Clazz(String.valueOf(i % 10), null, 30, 10);
+            school.registerClass(clazz);
+            sections.add("/classes/" + course.getName() + "/" + course.getCourseNumber() + "/" + clazz.getSection());
+        }
+        String[] ids = new String[students];
+        for(int i = 0; i < students; i++) {
+            Student student = new Student("Load", "Student", LocalDate.of(2004, 3, 21), Person.Gender.OTHER);
+            school.registerStudent(student);
+            ids[i] = student.getId();
+        }
+
+        try(SchoolServer server = new SchoolServer(school, new InetSocketAddress("127.0.0.1", 0), clients)) {
+            server.start();
+            String base = "http://127.0.0.1:" + server.getAddress().getPort();
+            HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(30)).build();
+            LatencyHistogram[] latency = new LatencyHistogram[KINDS.length];
+            for(int k = 0; k < KINDS.length; k++) latency[k] = new LatencyHistogram();
+            AtomicLong errors = new AtomicLong();
+            long end = System.nanoTime() + seconds * 1_000_000_000L;
+
+            List<CompletableFuture<Void>> running = new ArrayList<>(clients);
+            long start = System.nanoTime();
+            for(int c = 0; c < clients; c++)
+                running.add(client(http, base, sections, ids, latency, errors, end));
+            CompletableFuture.allOf(running.toArray(CompletableFuture[]::new)).join();
+            double elapsed = (System.nanoTime() - start) / 1e9;
+
+            long total = 0;
+            for(LatencyHistogram histogram : latency) total += histogram.snapshot().count();
+            System.out.printf("%,d clients, %,d requests in %.1f s, %,.0f requests/s, %,d errors%n", clients, total,
+                    elapsed, total / elapsed, errors.get());
+            for(int k = 0; k < KINDS.length; k++) {
+                LatencyHistogram.Snapshot snapshot = latency[k].snapshot();
+                System.out.printf("%-8s %,10d requests  p50 %,8.2f ms  p99 %,8.2f ms%n", KINDS[k], snapshot.count(),
+                        snapshot.percentile(50) / 1e6, snapshot.percentile(99) / 1e6);
+            }
+        }
+    }
+
+    /**
+     * @return returns a future that sends requests one after another until the end time, and completes after the
+     * last answer
+     */
+    private static CompletableFuture<Void> client(HttpClient http, String base, List<String> sections, String[] ids,
+                                                  LatencyHistogram[] latency, AtomicLong errors, long end) {
+        if(System.nanoTime() >= end) return CompletableFuture.completedFuture(null);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int roll = random.nextInt(10), kind = roll < 7 ? 0 : roll - 6;
+        String section = sections.get(random.nextInt(sections.size()));
+        String student = ids[random.nextInt(ids.length)];
+        HttpRequest request = switch (kind) {
+            case 0 -> HttpRequest.newBuilder(URI.create(base + section)).GET().build();
+            case 1 -> HttpRequest.newBuilder(URI.create(base + "/catalog?prefix=" + name(random.nextInt(100))
+                    .substring(0, 2) + "&limit=20")).GET().build();
+            default -> HttpRequest.newBuilder(URI.create(base + section + "/" + KINDS[kind] + "?student=" + student))
+                    .POST(HttpRequest.BodyPublishers.noBody()).build();
+        };
+        long sent = System.nanoTime();
+        return http.sendAsync(request, HttpResponse.BodyHandlers.discarding()).handle((response, failure) -> {
+            if(failure != null || response.statusCode() != 200) errors.incrementAndGet();
+            else latency[kind].record(System.nanoTime() - sent);
+            return null;
+        }).thenCompose(ignored -> client(http, base, sections, ids, latency, errors, end));
+    }
+
+    private static String name(int index) {
+        return "" + (char) ('A' + index / 676 % 26) + (char) ('A' + index / 26 % 26) + (char) ('A' + index % 26);
+    }
+}
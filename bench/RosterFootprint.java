@@ -0,0 +1,54 @@
+package miniprojects.schooldb;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fills one very large class and its waitlist with each roster mode and reports the heap the class takes, not
+ * counting the students themselves, along with the time to fill it and to drop every seated student.
+ */
+public class RosterFootprint {
+
+    public static void main(String[] args) throws Exception {
+        int seats = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int waitlist = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+
+        SchoolDataBase school = new SchoolDataBase();
+        List<Student> students = new ArrayList<>(seats + waitlist);
+        for(int i = 0; i < seats + waitlist; i++) {
+            Student student = new Student("Mooc", "Student", LocalDate.of(2000, 1, 1), Person.Gender.OTHER, null);
+            school.registerStudent(student);
+            students.add(student);
+        }
+
+        for(boolean compact : new boolean[] {false, true}) {
+            long before = usedHeap();
+            Course course = new Course("MOO", 101, 3, null);
+            long start = System.nanoTime();
+            Course.Clazz clazz = course.new Clazz("01", null, seats, waitlist, compact ? school : null);
+            for(Student student : students) clazz.enroll(student);
+            long filled = System.nanoTime();
+            long after = usedHeap();
+            if(clazz.getStudents().length != seats || clazz.waitlistedStudents().length != waitlist)
+                throw new AssertionError("class was not filled");
+            long dropStart = System.nanoTime();
+            for(Student student : students.subList(0, seats)) clazz.removeStudent(student);
+            long dropped = System.nanoTime();
+            if(clazz.getStudents().length != waitlist || clazz.waitlistedStudents().length != 0)
+                throw new AssertionError("waitlist was not promoted");
+            System.out.printf("%-8s %,d seats + %,d waitlist: %,d KB, fill %,d ms, drop %,d ms%n",
+                    compact ? "compact" : "default", seats, waitlist, (after - before) >> 10,
+                    (filled - start) / 1_000_000, (dropped - dropStart) / 1_000_000);
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for(int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,60 @@
+package miniprojects.schooldb;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds a synthetic campus, writes it to a snapshot, loads it back and reports how long each step took.
+ */
+public class SnapshotBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int students = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int classSize = 100;
+
+        SchoolDataBase school = new SchoolDataBase();
+        Department department = new Department("Computer Science");
+        school.registerDepartment(department);
+        List<Student> all = new ArrayList<>(students);
+        for(int i = 0; i < students; i++) {
+            Student student = new Student("Student", "Number" + i, LocalDate.of(2004, 1, 1).plusDays(i % 365),
+                    Person.Gender.values()[i % 3]);
+            school.registerStudent(student);
+            all.add(student);
+        }
+        int sections = students / classSize;
+        for(int c = 0; c < sections; c += 10) {
+            Course course = new Course("CMP", 1000 + c / 10, 3, department);
+            Instructor instructor = new Instructor("Instructor", "Number" + c, LocalDate.of(1970, 1, 1),
+                    Person.Gender.OTHER, department);
+            school.registerInstructor(instructor);
+            for(int s = c; s < Math.min(c + 10, sections); s++) {
+                Course.Clazz clazz = course.new Clazz(String.valueOf(s - c), instructor, classSize - 10, 20);
+                clazz.addStudents(all.subList(s * classSize, (s + 1) * classSize));
+            }
+            school.registerCourse(course);
+        }
+
+        Path file = Files.createTempFile("school", ".snapshot");
+        long start = System.nanoTime();
+        SchoolSnapshot.write(school, file);
+        long written = System.nanoTime();
+        SchoolDataBase loaded = SchoolSnapshot.load(file);
+        long loadedAt = System.nanoTime();
+        for(int i = 0; i < 3; i++) {
+            long again = System.nanoTime();
+            SchoolSnapshot.load(file);
+            System.out.printf("warm load %,d ms%n", (System.nanoTime() - again) / 1_000_000);
+        }
+
+        System.out.printf("%,d people, %,d classes, %,d byte snapshot%n", school.people().size(), school.classes().size(),
+                Files.size(file));
+        System.out.printf("write %,d ms, load %,d ms%n", (written - start) / 1_000_000, (loadedAt - written) / 1_000_000);
+        if(loaded.people().size() != school.people().size() || loaded.classes().size() != school.classes().size())
+            throw new AssertionError("snapshot lost data");
+        Files.delete(file);
+    }
+}
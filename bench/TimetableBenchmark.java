@@ -0,0 +1,130 @@
+package miniprojects.schooldb;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates a school with a term of classes and plans it with a {@link TimetableSolver}, then applies the plan and
+ * checks that no instructor or room has two classes at the same time. Classes meet Monday, Wednesday and Friday for
+ * 50 minutes or Tuesday and Thursday for 75, at one of 17 times, so a school of 5,000 classes has about 300 classes
+ * meeting at once. There are 20 departments with 25 courses each, and every instructor is qualified for 10 courses of
+ * their department. Fewer instructors and rooms make the plan harder to find, and can leave no conflict free plan.
+ * <br>
+ * Arguments: classes (5,000), seconds (5), threads (every core), seed (1), classes per instructor (6), spare rooms
+ * in percent of the classes meeting at once (40).
+ */
+public class TimetableBenchmark {
+    private static final int DEPARTMENTS = 20;
+    private static final int COURSES = 25;
+    private static final int QUALIFICATIONS = 10;
+
+    public static void main(String[] args) {
+        int classes = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+        int perInstructor = args.length > 4 ? Integer.parseInt(args[4]) : 6;
+        int spareRooms = args.length > 5 ? Integer.parseInt(args[5]) : 40;
+        SplittableRandom random = new SplittableRandom(seed);
+        List<List<MeetingTime>> patterns = patterns();
+
+        Person.setIdGenerator(new ShardedIdGenerator());
+        SchoolDataBase school = new SchoolDataBase();
+        int perDepartment = Math.max(QUALIFICATIONS, classes / DEPARTMENTS / perInstructor + 1);
+        int atOnce = classes / patterns.size() + 1;
+        List<Course> courses = new ArrayList<>();
+        for(int d = 0; d < DEPARTMENTS; d++) {
+            Department department = new Department("Dept" + d);
+            school.registerDepartment(department);
+            String prefix = "" + (char) ('A' + d / 26) + (char) ('A' + d % 26) + 'X';
+            List<Course> own = new ArrayList<>();
+            for(int c = 0; c < COURSES; c++) own.add(new Course(prefix, 100 + c * 10, 3 + c % 2, department));
+            courses.addAll(own);
+            for(int i = 0; i < perDepartment; i++) {
+                Instructor instructor = new Instructor("Time", "Tabler", LocalDate.of(1975, 1, 1),
+                        Person.Gender.OTHER, department);
+                school.registerInstructor(instructor);
+                for(int q = 0; q < QUALIFICATIONS; q++)
+                    instructor.addQualification(own.get((i + q * 3) % own.size()).getKey());
+            }
+        }
+        for(int i = 0; i < classes; i++) {
+            Course course = courses.get(random.nextInt(courses.size()));
+            int pick = random.nextInt(10);
+            int capacity = pick < 7 ? 30 : pick < 9 ? 60 : 150;
+            Course.Clazz clazz = course.new Clazz("S" + i, null, capacity, 10);
+            clazz.setMeetingTimes(patterns.get(i % patterns.size()));
+        }
+        List<Room> rooms = new ArrayList<>();
+        //room sizes follow the class sizes below, with the big rooms a little ahead
+        for(int i = 0; i < atOnce * (100 + spareRooms) / 100; i++) {
+            int pick = i % 10;
+            rooms.add(new Room("R" + i, pick < 6 ? 40 : pick < 8 ? 80 : 200));
+        }
+        System.out.printf("%,d classes, %,d instructors, %,d rooms, about %,d classes at once%n", classes,
+                DEPARTMENTS * perDepartment, rooms.size(), atOnce);
+
+        TimetableSolver solver = new TimetableSolver(school, rooms, Duration.ofSeconds(seconds), threads);
+        TimetableSolver.Plan plan = solver.solve();
+        System.out.println("plan: " + plan);
+        System.out.printf("%.0f moves/s on %d threads%n", plan.moves() * 1e9 / plan.nanos(), threads);
+        if(plan.conflicts() > 0) {
+            System.out.println("no conflict free plan found in time");
+            return;
+        }
+        TimetableSolver.Applied applied = solver.apply(plan);
+        System.out.printf("applied: %,d assigned, %,d failed%n", applied.assigned(), applied.failed().size());
+        check(school);
+        int min = Integer.MAX_VALUE, max = 0;
+        for(Department department : school.departments())
+            for(Instructor instructor : department.getInstructors()) {
+                min = Math.min(min, instructor.getWorkload().credits());
+                max = Math.max(max, instructor.getWorkload().credits());
+            }
+        System.out.printf("credits per instructor: %d to %d%n", min, max);
+    }
+
+    private static List<List<MeetingTime>> patterns() {
+        List<List<MeetingTime>> patterns = new ArrayList<>();
+        for(int hour = 8; hour < 18; hour++) {
+            LocalTime start = LocalTime.of(hour, 0), end = start.plusMinutes(50);
+            patterns.add(List.of(new MeetingTime(DayOfWeek.MONDAY, start, end),
+                    new MeetingTime(DayOfWeek.WEDNESDAY, start, end), new MeetingTime(DayOfWeek.FRIDAY, start, end)));
+        }
+        for(int slot = 0; slot < 7; slot++) {
+            LocalTime start = LocalTime.of(8, 0).plusMinutes(90L * slot), end = start.plusMinutes(75);
+            patterns.add(List.of(new MeetingTime(DayOfWeek.TUESDAY, start, end),
+                    new MeetingTime(DayOfWeek.THURSDAY, start, end)));
+        }
+        return patterns;
+    }
+
+    /**
+     * checks that every class fits its room and that no two classes meeting at the same time share a room or an
+     * instructor
+     */
+    private static void check(SchoolDataBase school) {
+        List<Course.Clazz> all = new ArrayList<>();
+        for(Department department : school.departments())
+            for(Course course : department.getCatalog().all()) all.addAll(course.listOfClasses());
+        for(Course.Clazz clazz : all)
+            if(clazz.getRoom() == null || clazz.getInstructor() == null
+                    || clazz.getRoom().capacity() < clazz.getCapacity())
+                throw new AssertionError(clazz.getKey() + " has no instructor or does not fit in " + clazz.getRoom());
+        for(int i = 0; i < all.size(); i++)
+            for(int j = i + 1; j < all.size(); j++) {
+                Course.Clazz a = all.get(i), b = all.get(j);
+                if(!a.getMeetingSlots().overlaps(b.getMeetingSlots())) continue;
+                if(a.getRoom().equals(b.getRoom()))
+                    throw new AssertionError(a.getKey() + " and " + b.getKey() + " share " + a.getRoom());
+                if(a.getInstructor() == b.getInstructor())
+                    throw new AssertionError(a.getKey() + " and " + b.getKey() + " share an instructor");
+            }
+        System.out.printf("checked %,d classes: no instructor or room is in two places at once%n", all.size());
+    }
+}
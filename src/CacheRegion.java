@@ -0,0 +1,185 @@
+package miniprojects.schooldb;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * One region of a {@link QueryCache}: a read-through cache with a memory budget. The budget is in estimated bytes,
+ * given by a weigher for the values. Keys are spread over segments by hash, each with its own share of the budget.
+ * <br>
+ * A hit is a lookup in a concurrent hash map and never locks. Eviction uses the clock approximation of least
+ * recently used: a hit only marks its entry as used, and when a segment is over budget a hand sweeps its entries in
+ * the order they came in, giving marked entries a second chance and evicting the first unmarked one. Loads, stores,
+ * evictions and invalidations of a segment take its lock.
+ * <br>
+ * Values are loaded outside the lock, and a value is only kept when its segment saw no invalidation while it was
+ * loading, so a value read before a change can not be kept after the change invalidated it.
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+final class CacheRegion<K, V> {
+    private static final int SEGMENTS = 16;
+    private static final long ENTRY_OVERHEAD = 64;
+
+    private final Segment<K, V>[] segments;
+    private final ToLongFunction<? super V> weigher;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * constructor
+     * @param budget takes in the estimated bytes the region may hold
+     * @param weigher takes in the estimated bytes of a value, the region adds the cost of the entry itself
+     */
+    @SuppressWarnings("unchecked")
+    CacheRegion(long budget, ToLongFunction<? super V> weigher) {
+        if(budget < 0) throw new IllegalArgumentException("Budget must not be negative");
+        this.weigher = weigher;
+        segments = (Segment<K, V>[]) new Segment<?, ?>[SEGMENTS];
+        for(int i = 0; i < SEGMENTS; i++) segments[i] = new Segment<>(budget / SEGMENTS);
+    }
+
+    private static final class Segment<K, V> {
+        final Map<K, Entry<K, V>> entries = new ConcurrentHashMap<>();
+        //entries in the order they came in, with entries that are gone left for the hand to skip
+        final ArrayDeque<Entry<K, V>> clock = new ArrayDeque<>();
+        final long budget;
+        long weight;
+        int gone;
+        volatile long invalidations;
+
+        Segment(long budget) {
+            this.budget = budget;
+        }
+
+        /**
+         * takes an entry out of the weight, the caller holds the lock and has removed it from the map
+         */
+        void drop(Entry<K, V> entry) {
+            entry.gone = true;
+            weight -= entry.weight;
+            //compact the clock once it is mostly entries that are gone
+            if(++gone > 16 && gone > entries.size()) {
+                clock.removeIf(e -> e.gone);
+                gone = 0;
+            }
+        }
+    }
+
+    private static final class Entry<K, V> {
+        final K key;
+        final V value;
+        final long weight;
+        volatile boolean used;
+        boolean gone;
+
+        Entry(K key, V value, long weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    private Segment<K, V> segment(Object key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ hash >>> 16) & SEGMENTS - 1];
+    }
+
+    /**
+     * Gets the value of a key, loading and keeping it when it is not in the region.
+     * @param key takes in the key
+     * @param load takes in the function that computes the value of a key
+     * @param keep takes in whether a loaded value may be kept, false for a value no invalidation would reach
+     * @return returns the value
+     */
+    V get(K key, Function<? super K, ? extends V> load, boolean keep) {
+        Segment<K, V> segment = segment(key);
+        long seen = segment.invalidations;
+        Entry<K, V> entry = segment.entries.get(key);
+        if(entry != null) {
+            if(!entry.used) entry.used = true;
+            hits.increment();
+            return entry.value;
+        }
+        misses.increment();
+        V value = load.apply(key);
+        if(!keep) return value;
+        long weight = ENTRY_OVERHEAD + weigher.applyAsLong(value);
+        synchronized(segment) {
+            if(segment.invalidations != seen || weight > segment.budget) return value;
+            Entry<K, V> added = new Entry<>(key, value, weight);
+            Entry<K, V> old = segment.entries.put(key, added);
+            if(old != null) segment.drop(old);
+            segment.clock.add(added);
+            segment.weight += weight;
+            while(segment.weight > segment.budget) {
+                Entry<K, V> hand = segment.clock.poll();
+                if(hand.gone) segment.gone--;
+                else if(hand.used) {
+                    hand.used = false;
+                    segment.clock.add(hand);
+                } else {
+                    //the hand took it off the clock already, so it is not counted as gone
+                    segment.entries.remove(hand.key, hand);
+                    hand.gone = true;
+                    segment.weight -= hand.weight;
+                    evictions.increment();
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * drops the value of a key, and keeps any value of the same segment that is loading right now from being kept
+     * @param key takes in the key
+     */
+    void invalidate(K key) {
+        Segment<K, V> segment = segment(key);
+        synchronized(segment) {
+            segment.invalidations++;
+            Entry<K, V> entry = segment.entries.remove(key);
+            if(entry == null) return;
+            segment.drop(entry);
+        }
+        invalidations.increment();
+    }
+
+    /**
+     * drops every value
+     */
+    void clear() {
+        for(Segment<K, V> segment : segments) {
+            synchronized(segment) {
+                segment.invalidations++;
+                invalidations.add(segment.entries.size());
+                segment.entries.clear();
+                segment.clock.clear();
+                segment.weight = 0;
+                segment.gone = 0;
+            }
+        }
+    }
+
+    /**
+     *
+     * @return returns the hit, miss, eviction and invalidation counts and what the region holds now
+     */
+    QueryCache.Stats stats() {
+        int entries = 0;
+        long weight = 0;
+        for(Segment<K, V> segment : segments) {
+            synchronized(segment) {
+                entries += segment.entries.size();
+                weight += segment.weight;
+            }
+        }
+        return new QueryCache.Stats(hits.sum(), misses.sum(), evictions.sum(), invalidations.sum(), entries, weight);
+    }
+}
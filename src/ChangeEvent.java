@@ -0,0 +1,46 @@
+package miniprojects.schooldb;
+
+import miniprojects.schooldb.Course.Clazz;
+
+/**
+ * One change to a school, as delivered by a {@link ChangeFeed}. Fields that do not apply to the kind of change are
+ * null, and the department and course of a class change are filled in from the class.
+ * @param sequence the position of the change in the feed, one more than the change before it
+ * @param kind what changed
+ * @param department the department, null for a registered person
+ * @param course the course, null for a registered department or person
+ * @param clazz the class, null unless the change is to a class
+ * @param person the student or instructor, null unless the change names one
+ * @param result where an enrolled student ended up, null unless the kind is {@link Kind#ENROLLED}
+ * @param movedTo the section a student moved to, null unless the kind is {@link Kind#MOVED}, in which case the class
+ * is the section they left
+ */
+public record ChangeEvent(long sequence, Kind kind, Department department, Course course, Clazz clazz, Person person,
+                          EnrollmentResult result, Clazz movedTo) {
+
+    /**
+     * The kinds of change, one for each method of {@link MutationListener}.
+     */
+    public enum Kind {
+        DEPARTMENT_REGISTERED, PERSON_REGISTERED, COURSE_ADDED, COURSE_CHANGED, COURSE_REMOVED, CLASS_ADDED,
+        ENROLLED, DROPPED, PROMOTED, MOVED, MEETING_TIMES_CHANGED, INSTRUCTOR_ASSIGNED, INSTRUCTOR_REMOVED
+    }
+
+    static ChangeEvent of(long sequence, Kind kind, Clazz clazz, Person person, EnrollmentResult result,
+                          Clazz movedTo) {
+        Course course = clazz.getCourse();
+        return new ChangeEvent(sequence, kind, course.getDepartment(), course, clazz, person, result, movedTo);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder().append('#').append(sequence).append(' ').append(kind);
+        if(clazz != null) builder.append(' ').append(clazz.getKey());
+        else if(course != null) builder.append(' ').append(course.getKey());
+        else if(department != null) builder.append(' ').append(department.getName());
+        if(person != null) builder.append(' ').append(person.getId());
+        if(result != null) builder.append(' ').append(result);
+        if(movedTo != null) builder.append(" to ").append(movedTo.getSection());
+        return builder.toString();
+    }
+}
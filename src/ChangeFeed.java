@@ -0,0 +1,318 @@
+package miniprojects.schooldb;
+
+import miniprojects.schooldb.Course.Clazz;
+import miniprojects.schooldb.ChangeEvent.Kind;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A stream of the changes made to a school, for integrations such as billing or housing that need to hear about
+ * enrollments without polling. The feed listens to the school and puts every change into a ring buffer of the last
+ * {@link #capacity()} changes, numbered in the order they happened. Each {@link Subscriber} runs on its own thread and
+ * takes the changes in batches at its own pace, starting from now or from any sequence the ring still holds.
+ * <br>
+ * Putting a change into the ring claims its sequence with one atomic increment and stores it, and never waits for
+ * a subscriber, so a slow subscriber can not slow down enrollment. A subscriber that falls a whole ring behind is
+ * overrun instead: it is told which sequences it missed and goes on from the oldest change the ring still holds.
+ * The missed changes can not be found anywhere else, so a subscriber that needs every change reads the school again
+ * to resync. Adding the feed as a listener moves enrollment in the school's classes off the lock-free path, see
+ * {@link MutationListener}.
+ */
+public final class ChangeFeed implements MutationListener, AutoCloseable {
+    private static final int MAX_BATCH = 256;
+    private static final long MAX_PARK_NANOS = 1_000_000;
+
+    private final SchoolDataBase school;
+    private final AtomicReferenceArray<ChangeEvent> ring;
+    private final int mask;
+    private final AtomicLong next = new AtomicLong();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * Takes the changes of a feed.
+     */
+    public interface Subscriber {
+
+        /**
+         * called with the next changes in the order they happened, on the subscription's thread
+         * @param batch takes in one or more changes, the list is only valid during the call
+         */
+        void onEvents(List<ChangeEvent> batch);
+
+        /**
+         * called when the subscriber fell so far behind that changes were overwritten before it read them
+         * @param from takes in the first sequence missed
+         * @param to takes in the last sequence missed
+         */
+        default void onOverrun(long from, long to) { }
+    }
+
+    /**
+     * A subscriber taking changes from the feed on its own thread.
+     */
+    public final class Subscription implements AutoCloseable {
+        private final Subscriber subscriber;
+        private final Thread thread;
+        private volatile long position;
+        private volatile long missed;
+        private volatile boolean closed;
+        private volatile RuntimeException failure;
+
+        private Subscription(String name, Subscriber subscriber, long from) {
+            this.subscriber = subscriber;
+            position = from;
+            thread = new Thread(this::deliver, name);
+            thread.setDaemon(true);
+        }
+
+        /**
+         *
+         * @return returns the sequence of the next change the subscriber will get
+         */
+        public long position() {
+            return position;
+        }
+
+        /**
+         *
+         * @return returns the number of changes the subscriber missed because it was overrun
+         */
+        public long missed() {
+            return missed;
+        }
+
+        /**
+         *
+         * @return returns the exception the subscriber threw, which ended the subscription, or null
+         */
+        public RuntimeException failure() {
+            return failure;
+        }
+
+        /**
+         * stops taking changes, and waits for the batch being delivered to finish unless called by the subscriber
+         */
+        @Override
+        public void close() {
+            closed = true;
+            subscriptions.remove(this);
+            LockSupport.unpark(thread);
+            if(Thread.currentThread() == thread) return;
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void deliver() {
+            List<ChangeEvent> batch = new ArrayList<>(MAX_BATCH);
+            List<ChangeEvent> view = Collections.unmodifiableList(batch);
+            long park = 1_000;
+            try {
+                while(!closed) {
+                    long sequence = position;
+                    long oldest = next.get() - ring.length();
+                    if(sequence < oldest) {
+                        //the changes from here to the oldest one still held are gone
+                        overrun(sequence, oldest);
+                        continue;
+                    }
+                    //a change carries its sequence, so a slot not yet written or already written over never matches
+                    while(batch.size() < MAX_BATCH) {
+                        ChangeEvent event = ring.get((int) (sequence + batch.size()) & mask);
+                        if(event == null || event.sequence() != sequence + batch.size()) break;
+                        batch.add(event);
+                    }
+                    if(batch.isEmpty()) {
+                        if(next.get() - ring.length() > sequence) continue;
+                        LockSupport.parkNanos(park);
+                        park = Math.min(park * 2, MAX_PARK_NANOS);
+                        continue;
+                    }
+                    park = 1_000;
+                    subscriber.onEvents(view);
+                    position = sequence + batch.size();
+                    batch.clear();
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+                closed = true;
+                subscriptions.remove(this);
+            }
+        }
+
+        private void overrun(long from, long oldest) {
+            missed += oldest - from;
+            position = oldest;
+            subscriber.onOverrun(from, oldest - 1);
+        }
+    }
+
+    /**
+     * constructor, holds the last 65,536 changes
+     * @param school takes in the school whose changes are streamed
+     */
+    public ChangeFeed(SchoolDataBase school) {
+        this(school, 1 << 16);
+    }
+
+    /**
+     * constructor
+     * @param school takes in the school whose changes are streamed
+     * @param capacity takes in the number of changes the ring holds, a power of two
+     */
+    public ChangeFeed(SchoolDataBase school, int capacity) {
+        if(capacity < 2 || Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("Capacity must be a power of two of at least 2");
+        this.school = school;
+        ring = new AtomicReferenceArray<>(capacity);
+        mask = capacity - 1;
+        school.addListener(this);
+    }
+
+    /**
+     *
+     * @return returns the number of changes the ring holds
+     */
+    public int capacity() {
+        return ring.length();
+    }
+
+    /**
+     *
+     * @return returns the sequence the next change will get, which is the number of changes so far
+     */
+    public long nextSequence() {
+        return next.get();
+    }
+
+    /**
+     *
+     * @return returns the sequence of the oldest change the ring still holds
+     */
+    public long oldestSequence() {
+        return Math.max(0, next.get() - ring.length());
+    }
+
+    /**
+     * subscribes to the changes made from now on
+     * @param name takes in the name of the subscription's thread
+     * @param subscriber takes in the subscriber
+     * @return returns the running subscription
+     */
+    public Subscription subscribe(String name, Subscriber subscriber) {
+        return subscribe(name, subscriber, next.get());
+    }
+
+    /**
+     * Subscribes to the changes from a sequence on, replaying the ones already made. When the ring no longer holds
+     * the sequence, the subscriber is told the changes up to the oldest one still held were missed.
+     * @param name takes in the name of the subscription's thread
+     * @param subscriber takes in the subscriber
+     * @param from takes in the sequence of the first change to deliver
+     * @return returns the running subscription
+     */
+    public Subscription subscribe(String name, Subscriber subscriber, long from) {
+        if(from < 0 || from > next.get())
+            throw new IllegalArgumentException("No change has sequence " + from + " yet");
+        Subscription subscription = new Subscription(name, subscriber, from);
+        subscriptions.add(subscription);
+        subscription.thread.start();
+        return subscription;
+    }
+
+    /**
+     * stops listening to the school and closes every subscription
+     */
+    @Override
+    public void close() {
+        school.removeListener(this);
+        for(Subscription subscription : subscriptions) subscription.close();
+    }
+
+    private void publish(Kind kind, Department department, Course course, Person person) {
+        long sequence = next.getAndIncrement();
+        ChangeEvent event = new ChangeEvent(sequence, kind, department, course, null, person, null, null);
+        ring.lazySet((int) sequence & mask, event);
+    }
+
+    private void publish(Kind kind, Clazz clazz, Person person, EnrollmentResult result) {
+        publish(kind, clazz, person, result, null);
+    }
+
+    private void publish(Kind kind, Clazz clazz, Person person, EnrollmentResult result, Clazz movedTo) {
+        long sequence = next.getAndIncrement();
+        ring.lazySet((int) sequence & mask, ChangeEvent.of(sequence, kind, clazz, person, result, movedTo));
+    }
+
+    @Override
+    public void departmentRegistered(Department department) {
+        publish(Kind.DEPARTMENT_REGISTERED, department, null, null);
+    }
+
+    @Override
+    public void personRegistered(Person person) {
+        publish(Kind.PERSON_REGISTERED, null, null, person);
+    }
+
+    @Override
+    public void courseAdded(Department department, Course course) {
+        publish(Kind.COURSE_ADDED, department, course, null);
+    }
+
+    @Override
+    public void courseChanged(Department department, Course course) {
+        publish(Kind.COURSE_CHANGED, department, course, null);
+    }
+
+    @Override
+    public void courseRemoved(Department department, Course course) {
+        publish(Kind.COURSE_REMOVED, department, course, null);
+    }
+
+    @Override
+    public void classAdded(Clazz clazz) {
+        publish(Kind.CLASS_ADDED, clazz, null, null);
+    }
+
+    @Override
+    public void studentEnrolled(Clazz clazz, Student student, EnrollmentResult result) {
+        publish(Kind.ENROLLED, clazz, student, result);
+    }
+
+    @Override
+    public void studentDropped(Clazz clazz, Student student) {
+        publish(Kind.DROPPED, clazz, student, null);
+    }
+
+    @Override
+    public void studentMoved(Clazz from, Clazz to, Student student) {
+        publish(Kind.MOVED, from, student, null, to);
+    }
+
+    @Override
+    public void studentPromoted(Clazz clazz, Student student) {
+        publish(Kind.PROMOTED, clazz, student, null);
+    }
+
+    @Override
+    public void meetingTimesChanged(Clazz clazz) {
+        publish(Kind.MEETING_TIMES_CHANGED, clazz, null, null);
+    }
+
+    @Override
+    public void instructorAssigned(Clazz clazz, Instructor instructor) {
+        publish(Kind.INSTRUCTOR_ASSIGNED, clazz, instructor, null);
+    }
+
+    @Override
+    public void instructorRemoved(Clazz clazz, Instructor instructor) {
+        publish(Kind.INSTRUCTOR_REMOVED, clazz, instructor, null);
+    }
+}
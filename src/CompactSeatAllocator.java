@@ -0,0 +1,316 @@
+package miniprojects.schooldb;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A seat allocator for very large classes that stores students as the int handles the school gives them instead of
+ * as references. The seated students are an open-addressing hash set of handles. The waitlist is an int ring buffer
+ * with a hash index of the slot each waiting handle is in, so checking whether a student is waiting and taking them
+ * off the waitlist take constant time. A student taken off the waitlist leaves a gap in the ring, and the ring is a
+ * half larger than the waitlist so that closing the gaps, which happens when the ring runs out of room, is paid for
+ * by the removals that made them. A class costs about 10 bytes per seat and 11 bytes per waitlist spot, with no node
+ * per student. A 50,000 seat class with a 50,000 student waitlist fits in under a megabyte.
+ * <br>
+ * Every method locks the allocator. Only students registered with the school can be added, and seated students
+ * come back in no particular order.
+ */
+final class CompactSeatAllocator implements SeatAllocator {
+    private static final int EMPTY = -1;
+    //a slot of the ring whose student was taken off the waitlist
+    private static final int GONE = -2;
+
+    private final int capacity;
+    private final int waitlistCapacity;
+    private final SchoolDataBase school;
+    private final Consumer<Student> onPromote;
+    private final int[] seated;
+    private final int[] waitlist;
+    private final int[] waitingSlots;
+    //used counts the slots from the head, gaps included, waiting counts only the students
+    private int seatsTaken, head, used, waiting;
+
+    /**
+     * constructor
+     * @param capacity takes in the number of seats in the class
+     * @param waitlistCapacity takes in the number of students that can wait for a seat
+     * @param school takes in the school whose students can join the class
+     * @param onPromote takes in a callback that is told about every student moved from the waitlist into a seat
+     */
+    CompactSeatAllocator(int capacity, int waitlistCapacity, SchoolDataBase school, Consumer<Student> onPromote) {
+        if(capacity < 0 || waitlistCapacity < 0) throw new IllegalArgumentException("Capacity must not be negative");
+        this.capacity = capacity;
+        this.waitlistCapacity = waitlistCapacity;
+        this.school = school;
+        this.onPromote = onPromote;
+        //a load factor of at most 3/4 keeps probe sequences short
+        seated = new int[capacity + capacity / 3 + 1];
+        Arrays.fill(seated, EMPTY);
+        waitlist = new int[waitlistCapacity + waitlistCapacity / 2 + 1];
+        waitingSlots = new int[waitlistCapacity + waitlistCapacity / 3 + 1];
+        Arrays.fill(waitingSlots, EMPTY);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws IllegalArgumentException when the student is not registered with the school of the class
+     */
+    @Override
+    public synchronized EnrollmentResult add(Student student) {
+        int handle = handle(student);
+        if(indexOf(handle) >= 0) return EnrollmentResult.ENROLLED;
+        if(waiting == 0 && seatsTaken < capacity) {
+            insert(handle);
+            return EnrollmentResult.ENROLLED;
+        }
+        if(waitingAt(handle) >= 0) return EnrollmentResult.WAITLISTED;
+        if(waiting == waitlistCapacity) return EnrollmentResult.REJECTED;
+        enqueue(handle);
+        return EnrollmentResult.WAITLISTED;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws IllegalArgumentException when a student is not registered with the school of the class, in which case
+     * none of the students are added
+     */
+    @Override
+    public synchronized EnrollmentResult[] addAll(Collection<? extends Student> students) {
+        int[] handles = new int[students.size()];
+        int i = 0;
+        for(Student student : students) handles[i++] = handle(student);
+        EnrollmentResult[] results = new EnrollmentResult[handles.length];
+        for(i = 0; i < handles.length; i++) {
+            if(indexOf(handles[i]) >= 0) results[i] = EnrollmentResult.ENROLLED;
+            else if(waiting > 0 && waitingAt(handles[i]) >= 0) results[i] = EnrollmentResult.WAITLISTED;
+            else if(waiting == 0 && seatsTaken < capacity) {
+                insert(handles[i]);
+                results[i] = EnrollmentResult.ENROLLED;
+            } else if(waiting < waitlistCapacity) {
+                enqueue(handles[i]);
+                results[i] = EnrollmentResult.WAITLISTED;
+            } else results[i] = EnrollmentResult.REJECTED;
+        }
+        return results;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws IllegalArgumentException when a student is not registered with the school of the class
+     */
+    @Override
+    public synchronized void restore(List<Student> seated, Waitlist.Order waiting) {
+        if(seated.size() > capacity - seatsTaken || waiting.students().length > waitlistCapacity - this.waiting)
+            throw new IllegalArgumentException("The students do not fit in the class");
+        for(Student student : seated) insert(handle(student));
+        for(Student student : waiting.students()) enqueue(handle(student));
+    }
+
+    @Override
+    public synchronized boolean remove(Student student) {
+        int handle = school.handleOf(student);
+        if(handle < 0) return false;
+        int index = indexOf(handle);
+        if(index >= 0) {
+            delete(index);
+            promote();
+            return true;
+        }
+        return removeWaiting(handle);
+    }
+
+    @Override
+    public synchronized boolean removeWaiting(Student student) {
+        int handle = school.handleOf(student);
+        return handle >= 0 && removeWaiting(handle);
+    }
+
+    private boolean removeWaiting(int handle) {
+        int i = waitingAt(handle);
+        if(i < 0) return false;
+        waitlist[waitingSlots[i]] = GONE;
+        deleteWaiting(i);
+        waiting--;
+        return true;
+    }
+
+    /**
+     * puts a handle at the end of the waitlist, the caller checked there is room
+     */
+    private void enqueue(int handle) {
+        if(used == waitlist.length) compactWaitlist();
+        int slot = (head + used++) % waitlist.length;
+        waitlist[slot] = handle;
+        int i = home(handle, waitingSlots.length);
+        while(waitingSlots[i] != EMPTY) i = i + 1 == waitingSlots.length ? 0 : i + 1;
+        waitingSlots[i] = slot;
+        waiting++;
+    }
+
+    /**
+     * @return returns the first handle of the waitlist and takes it off, the caller checked someone is waiting
+     */
+    private int dequeue() {
+        while(waitlist[head] == GONE) {
+            head = (head + 1) % waitlist.length;
+            used--;
+        }
+        int handle = waitlist[head];
+        deleteWaiting(waitingAt(handle));
+        head = (head + 1) % waitlist.length;
+        used--;
+        waiting--;
+        return handle;
+    }
+
+    /**
+     * moves the waiting handles to the front of the ring in order, dropping the gaps, and indexes them again. The
+     * ring is full when this is called and at most two thirds of it are students, so the gaps closed pay for it.
+     */
+    private void compactWaitlist() {
+        int[] handles = new int[waiting];
+        for(int i = 0, n = 0; i < used; i++) {
+            int handle = waitlist[(head + i) % waitlist.length];
+            if(handle != GONE) handles[n++] = handle;
+        }
+        Arrays.fill(waitingSlots, EMPTY);
+        head = used = waiting = 0;
+        for(int handle : handles) enqueue(handle);
+    }
+
+    /**
+     * @return returns the index in the waiting slots of the student's slot, or -1 when they are not waiting
+     */
+    private int waitingAt(int handle) {
+        for(int i = home(handle, waitingSlots.length); ; i = i + 1 == waitingSlots.length ? 0 : i + 1) {
+            if(waitingSlots[i] == EMPTY) return -1;
+            if(waitlist[waitingSlots[i]] == handle) return i;
+        }
+    }
+
+    /**
+     * empties an entry of the waiting slots and shifts back the entries after it that would no longer be found
+     */
+    private void deleteWaiting(int index) {
+        int hole = index;
+        for(int i = hole + 1 == waitingSlots.length ? 0 : hole + 1; waitingSlots[i] != EMPTY;
+            i = i + 1 == waitingSlots.length ? 0 : i + 1) {
+            int home = home(waitlist[waitingSlots[i]], waitingSlots.length);
+            boolean stays = hole <= i ? hole < home && home <= i : hole < home || home <= i;
+            if(stays) continue;
+            waitingSlots[hole] = waitingSlots[i];
+            hole = i;
+        }
+        waitingSlots[hole] = EMPTY;
+    }
+
+    /**
+     *
+     * @param student takes in the student to look for
+     * @return returns ENROLLED or WAITLISTED for a student in the class, or null for a student that is not
+     */
+    @Override
+    public synchronized EnrollmentResult find(Student student) {
+        int handle = school.handleOf(student);
+        if(handle < 0) return null;
+        if(indexOf(handle) >= 0) return EnrollmentResult.ENROLLED;
+        return waitingAt(handle) >= 0 ? EnrollmentResult.WAITLISTED : null;
+    }
+
+    private void promote() {
+        while(waiting > 0 && seatsTaken < capacity) {
+            int next = dequeue();
+            insert(next);
+            onPromote.accept(school.studentAt(next));
+        }
+    }
+
+    private int handle(Student student) {
+        int handle = school.handleOf(student);
+        if(handle < 0) throw new IllegalArgumentException(student.getId() + " is not registered with the school");
+        return handle;
+    }
+
+    /**
+     * @return returns the home slot of a handle in a table of the given length, spread with a multiplicative hash
+     */
+    private static int home(int handle, int length) {
+        return (int) (((handle * 0x9E3779B9) & 0xFFFFFFFFL) * length >>> 32);
+    }
+
+    private int indexOf(int handle) {
+        for(int i = home(handle, seated.length); ; i = i + 1 == seated.length ? 0 : i + 1) {
+            if(seated[i] == handle) return i;
+            if(seated[i] == EMPTY) return -1;
+        }
+    }
+
+    private void insert(int handle) {
+        int i = home(handle, seated.length);
+        while(seated[i] != EMPTY) i = i + 1 == seated.length ? 0 : i + 1;
+        seated[i] = handle;
+        seatsTaken++;
+    }
+
+    /**
+     * empties a slot and shifts back the handles after it that would no longer be found
+     */
+    private void delete(int index) {
+        int hole = index;
+        for(int i = hole + 1 == seated.length ? 0 : hole + 1; seated[i] != EMPTY; i = i + 1 == seated.length ? 0 : i + 1) {
+            int home = home(seated[i], seated.length);
+            //move the handle into the hole unless its home lies cyclically after the hole and at or before it
+            boolean stays = hole <= i ? hole < home && home <= i : hole < home || home <= i;
+            if(stays) continue;
+            seated[hole] = seated[i];
+            hole = i;
+        }
+        seated[hole] = EMPTY;
+        seatsTaken--;
+    }
+
+    @Override
+    public synchronized int seatsTaken() {
+        return seatsTaken;
+    }
+
+    @Override
+    public synchronized int waitlistSize() {
+        return waiting;
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public int waitlistCapacity() {
+        return waitlistCapacity;
+    }
+
+    @Override
+    public synchronized Student[] students() {
+        Student[] students = new Student[seatsTaken];
+        int i = 0;
+        for(int handle : seated) if(handle != EMPTY) students[i++] = school.studentAt(handle);
+        return students;
+    }
+
+    @Override
+    public synchronized Student[] waitlisted() {
+        Student[] students = new Student[waiting];
+        for(int i = 0, n = 0; i < used; i++) {
+            int handle = waitlist[(head + i) % waitlist.length];
+            if(handle != GONE) students[n++] = school.studentAt(handle);
+        }
+        return students;
+    }
+
+    @Override
+    public Waitlist.Order waitlistOrder() {
+        return Waitlist.Order.of(waitlisted());
+    }
+}
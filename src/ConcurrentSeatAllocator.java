@@ -0,0 +1,306 @@
+package miniprojects.schooldb;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A thread-safe seat allocator for a class. A seat is claimed with a compare-and-set on the seat count, so the
+ * class can never be oversold no matter how many threads enroll at once. Students that do not get a seat join a
+ * {@link Waitlist} and are promoted in its order, by default the order they joined it.
+ * <br>
+ * Seated students are indexed by their id and freed seats are kept on a {@link SlotStack}, so removing a student
+ * and promoting the head of the waitlist both take constant time, and the number of seats never changes.
+ */
+final class ConcurrentSeatAllocator implements SeatAllocator {
+    private final int capacity;
+    private final int waitlistCapacity;
+    private final AtomicInteger seatsTaken = new AtomicInteger();
+    private final AtomicReferenceArray<Student> seats;
+    private final SlotStack freeSeats;
+    private final Map<String, Integer> seatById = new ConcurrentHashMap<>();
+    private final Waitlist waitlist;
+    private final AtomicInteger waitlistSize = new AtomicInteger();
+    private final AtomicInteger promoting = new AtomicInteger();
+    private final Consumer<Student> onPromote;
+
+    /**
+     * constructor
+     * @param capacity takes in the number of seats in the class
+     * @param waitlistCapacity takes in the number of students that can wait for a seat
+     * @param onPromote takes in a callback that is told about every student moved from the waitlist into a seat
+     */
+    ConcurrentSeatAllocator(int capacity, int waitlistCapacity, Consumer<Student> onPromote) {
+        this(capacity, waitlistCapacity, new FifoWaitlist(), onPromote);
+    }
+
+    /**
+     * constructor
+     * @param capacity takes in the number of seats in the class
+     * @param waitlistCapacity takes in the number of students that can wait for a seat
+     * @param waitlist takes in the empty waitlist, which decides the order students are promoted in
+     * @param onPromote takes in a callback that is told about every student moved from the waitlist into a seat
+     */
+    ConcurrentSeatAllocator(int capacity, int waitlistCapacity, Waitlist waitlist, Consumer<Student> onPromote) {
+        if(capacity < 0 || waitlistCapacity < 0) throw new IllegalArgumentException("Capacity must not be negative");
+        this.capacity = capacity;
+        this.waitlistCapacity = waitlistCapacity;
+        seats = new AtomicReferenceArray<>(capacity);
+        freeSeats = new SlotStack(capacity);
+        this.waitlist = waitlist;
+        this.onPromote = onPromote;
+    }
+
+    /**
+     * Gives the student a seat, or puts them on the waitlist when the class is full. A new student never jumps
+     * ahead of students that are already waiting. Adding a student that is already seated or waiting does nothing.
+     * @param student takes in the student to add
+     * @return returns where the student ended up
+     */
+    @Override
+    public EnrollmentResult add(Student student) {
+        if(seatById.containsKey(student.getId())) return EnrollmentResult.ENROLLED;
+        if(waitlist.contains(student)) return EnrollmentResult.WAITLISTED;
+        while(true) {
+            if(waitlistSize.get() == 0 && reserve(seatsTaken, capacity, 1) == 1) {
+                place(student);
+                return EnrollmentResult.ENROLLED;
+            }
+            if(reserve(waitlistSize, waitlistCapacity, 1) == 1) {
+                if(!waitlist.offer(student)) waitlistSize.decrementAndGet();
+                promote();
+                return EnrollmentResult.WAITLISTED;
+            }
+            //the waitlist is full, but a seat may have been freed since we looked
+            if(promote() == 0) return EnrollmentResult.REJECTED;
+        }
+    }
+
+    /**
+     * Adds a batch of students. The free seats are reserved for the whole batch with one compare-and-set, the
+     * students that do not fit are moved onto the waitlist with a second one, and the rest are rejected. The
+     * waitlist is drained once for the batch instead of once per student.
+     * @param students takes in the students to add, in the order they should be seated
+     * @return returns the result for each student, in the iteration order of the collection
+     */
+    @Override
+    public EnrollmentResult[] addAll(Collection<? extends Student> students) {
+        EnrollmentResult[] results = new EnrollmentResult[students.size()];
+        int pending = 0, i = 0;
+        for(Student student : students) {
+            if(seatById.containsKey(student.getId())) results[i] = EnrollmentResult.ENROLLED;
+            else if(waitlist.contains(student)) results[i] = EnrollmentResult.WAITLISTED;
+            else pending++;
+            i++;
+        }
+
+        int seated = waitlistSize.get() == 0 ? reserve(seatsTaken, capacity, pending) : 0;
+        int waiting = reserve(waitlistSize, waitlistCapacity, pending - seated);
+
+        i = 0;
+        for(Student student : students) {
+            if(results[i] == null) {
+                if(seated > 0) {
+                    place(student);
+                    seated--;
+                    results[i] = EnrollmentResult.ENROLLED;
+                } else if(waiting > 0) {
+                    if(!waitlist.offer(student)) waitlistSize.decrementAndGet();
+                    waiting--;
+                    results[i] = EnrollmentResult.WAITLISTED;
+                } else results[i] = EnrollmentResult.REJECTED;
+            }
+            i++;
+        }
+        promote();
+        return results;
+    }
+
+    @Override
+    public void restore(List<Student> seated, Waitlist.Order waiting) {
+        if(seated.size() > capacity - seatsTaken.get()
+                || waiting.students().length > waitlistCapacity - waitlistSize.get())
+            throw new IllegalArgumentException("The students do not fit in the class");
+        for(Student student : seated) {
+            int seat = freeSeats.pop();
+            seats.set(seat, student);
+            seatById.put(student.getId(), seat);
+        }
+        seatsTaken.addAndGet(seated.size());
+        waitlistSize.addAndGet(waitlist.restore(waiting));
+    }
+
+    /**
+     * Removes the student from their seat or from the waitlist. A freed seat goes to the head of the waitlist.
+     * @param student takes in the student to remove
+     * @return returns true if the student was seated or wait-listed in this class
+     */
+    @Override
+    public boolean remove(Student student) {
+        while(true) {
+            Integer seat = seatById.remove(student.getId());
+            if(seat != null) {
+                seats.set(seat, null);
+                freeSeats.push(seat);
+                seatsTaken.decrementAndGet();
+                promote();
+                return true;
+            }
+            if(waitlist.remove(student)) {
+                waitlistSize.decrementAndGet();
+                return true;
+            }
+            //the student may be between the waitlist and a seat, wait for the promotion to land
+            if(promoting.get() == 0 && !seatById.containsKey(student.getId())) return false;
+            Thread.onSpinWait();
+        }
+    }
+
+    @Override
+    public boolean removeWaiting(Student student) {
+        if(!waitlist.remove(student)) return false;
+        waitlistSize.decrementAndGet();
+        return true;
+    }
+
+    /**
+     *
+     * @param student takes in the student to look for
+     * @return returns ENROLLED or WAITLISTED for a student in the class, or null for a student that is not.
+     * Finding a wait-listed student takes linear time with the default waitlist.
+     */
+    @Override
+    public EnrollmentResult find(Student student) {
+        if(seatById.containsKey(student.getId())) return EnrollmentResult.ENROLLED;
+        return waitlist.contains(student) ? EnrollmentResult.WAITLISTED : null;
+    }
+
+    /**
+     * Moves students from the head of the waitlist into free seats, in the order of the waitlist.
+     * @return returns the number of students promoted
+     */
+    private int promote() {
+        int promoted = 0;
+        while(waitlistSize.get() > 0 && reserve(seatsTaken, capacity, 1) == 1) {
+            promoting.incrementAndGet();
+            try {
+                Student next = waitlist.poll();
+                if(next == null) {
+                    //a waiting student has reserved a waitlist spot but is not queued yet, it will promote itself
+                    seatsTaken.decrementAndGet();
+                    continue;
+                }
+                waitlistSize.decrementAndGet();
+                place(next);
+                promoted++;
+                onPromote.accept(next);
+            } finally {
+                promoting.decrementAndGet();
+            }
+        }
+        return promoted;
+    }
+
+    /**
+     * claims up to the wanted number of units from a bounded counter in a single compare-and-set
+     * @param counter takes in the counter to claim from
+     * @param limit takes in the most the counter may reach
+     * @param wanted takes in the number of units wanted
+     * @return returns the number of units claimed, which is less than wanted when the counter is nearly full
+     */
+    private static int reserve(AtomicInteger counter, int limit, int wanted) {
+        int current, claimed;
+        do {
+            current = counter.get();
+            claimed = Math.min(wanted, limit - current);
+            if(claimed <= 0) return 0;
+        } while(!counter.compareAndSet(current, current + claimed));
+        return claimed;
+    }
+
+    /**
+     * Puts the student into a free seat. The caller must already hold a reserved seat, which guarantees that a
+     * seat is free or is about to be freed by a concurrent removal.
+     * @param student takes in the student to seat
+     */
+    private void place(Student student) {
+        int seat;
+        while((seat = freeSeats.pop()) < 0) Thread.onSpinWait();
+        seats.set(seat, student);
+        if(seatById.putIfAbsent(student.getId(), seat) != null) {
+            //the student was promoted into a seat they already hold, give the reserved seat back
+            seats.set(seat, null);
+            freeSeats.push(seat);
+            seatsTaken.decrementAndGet();
+        }
+    }
+
+    /**
+     *
+     * @return returns the number of seats that are taken
+     */
+    @Override
+    public int seatsTaken() {
+        return seatsTaken.get();
+    }
+
+    /**
+     *
+     * @return returns the number of wait-listed students
+     */
+    @Override
+    public int waitlistSize() {
+        return waitlistSize.get();
+    }
+
+    /**
+     *
+     * @return returns the number of seats in the class
+     */
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     *
+     * @return returns the number of students that can be wait-listed
+     */
+    @Override
+    public int waitlistCapacity() {
+        return waitlistCapacity;
+    }
+
+    /**
+     *
+     * @return returns a copy of the seated students
+     */
+    @Override
+    public Student[] students() {
+        List<Student> seated = new ArrayList<>(seatsTaken.get());
+        for(int i = 0; i < capacity; i++) {
+            Student student = seats.get(i);
+            if(student != null) seated.add(student);
+        }
+        return seated.toArray(new Student[0]);
+    }
+
+    /**
+     *
+     * @return returns a copy of the wait-listed students in the order they will be promoted
+     */
+    @Override
+    public Student[] waitlisted() {
+        return waitlist.toArray();
+    }
+
+    @Override
+    public Waitlist.Order waitlistOrder() {
+        return waitlist.order();
+    }
+}
@@ -1,9 +1,7 @@
 package miniprojects.schooldb;
 
 import java.util.*;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Consumer;
 
 /**
  * A class that creates a course
@@ -14,39 +12,34 @@ public class Course implements Comparable<Course>{
     private int numOfCredits;
     private final int courseNumber;
     private Department department;
-    private List<Clazz> classes;
+    private volatile SchoolDataBase school;
+    private volatile VersionedList<Clazz> classes = VersionedList.empty();
     private int classCount = 0;
+    private CourseKey key;
 
     /**
      * constructor
      * @param name takes in the of the course
      */
     Course(String name, int courseNumber, int numOfCredits, Department department ) {
-        Pattern p = Pattern.compile("^[a-zA-Z]{3,4}$");
-        Matcher matcher = p.matcher(name);
-
-        if(!matcher.matches()) throw new RuntimeException("Invalid Course Name");
-
-        p = Pattern.compile("^[1-8][0-9]{2,3}$");
-        matcher = p.matcher(String.valueOf(courseNumber));
-
-        if(!matcher.matches()) throw new RuntimeException("Invalid Course Number");
+        ValidationResult valid = Validator.getDefault().course(name, courseNumber);
+        if(!valid.isValid()) throw new RuntimeException(valid.message());
 
         this.name = name.toUpperCase();
         this.courseNumber = courseNumber;
+        key = new CourseKey(this.name, courseNumber);
         this.numOfCredits = numOfCredits;
         this.department = department;
 
         if(department != null) department.addCourse(this);
-        classes = new ArrayList<>();
     }
 
     /**
-     * This method adds classes for this course
+     * This method adds classes for this course. Classes of the same course can be created from many threads.
      * @param ClazzToAdd takes in the class to add
      */
-    private void addClass(Clazz ClazzToAdd) {
-        classes.add(ClazzToAdd);
+    private synchronized void addClass(Clazz ClazzToAdd) {
+        classes = classes.with(ClazzToAdd);
         classCount++;
     }
 
@@ -66,24 +59,41 @@ public class Course implements Comparable<Course>{
      * @param <E> An Object that extends the Collection api
      * @see Collection
      */
-    private <E extends Collection<Clazz>> void addClasses(E classesToAdd) {
-        classes.addAll(classesToAdd);
+    private synchronized <E extends Collection<Clazz>> void addClasses(E classesToAdd) {
+        for(Clazz c : classesToAdd) addClass(c);
     }
 
     /**
      *
-     * @return returns a copy of the current list of classes for this Course
+     * @return returns the current list of classes for this Course, an immutable view that is replaced, not
+     * changed, when a class is added
      */
-    public List<Clazz> listOfClasses() {
-        return List.copyOf(classes);
+    public VersionedList<Clazz> listOfClasses() {
+        return classes;
     }
 
     /**
-     * sets the name of the Course. This is useful for changing the name of the course at a later date.
+     * sets the name of the Course. This is useful for changing the name of the course at a later date. The course
+     * and its classes are re-indexed under the new name in the catalog of its department and in the school it is
+     * registered with.
      * @param name takes in the name of the course
+     * @throws IllegalArgumentException when the name is not valid, or another course already has the new name and
+     * course number, in which case nothing changes
      */
     void setName(String name) {
-        this.name = name;
+        ValidationResult valid = Validator.getDefault().course(name, courseNumber);
+        if(!valid.isValid()) throw new IllegalArgumentException(valid.message());
+        CourseKey old = key, next = new CourseKey(name.toUpperCase(), courseNumber);
+        if(next.equals(old)) return;
+        Department department = this.department;
+        SchoolDataBase school = this.school;
+        if(department != null && department.getCatalog().contains(next)
+                || school != null && school.findCourse(next).isPresent())
+            throw new IllegalArgumentException(next + " is already taken");
+        this.name = next.name();
+        key = next;
+        if(department != null) department.renameCourse(this, old);
+        if(school != null) school.renameCourse(this, old);
     }
 
     /**
@@ -108,6 +118,9 @@ public class Course implements Comparable<Course>{
      */
     void setNumOfCredits(int numOfCredits) {
         this.numOfCredits = numOfCredits;
+        if(department != null) department.updateCourse(this);
+        SchoolDataBase school = this.school;
+        if(school != null) school.updateCourse(this);
     }
 
     /**
@@ -115,8 +128,19 @@ public class Course implements Comparable<Course>{
      * @param department takes in the department for this course.
      */
     void setDepartment(Department department) {
+        if(this.department != null) this.department.removeCourse(this);
         this.department = department;
         department.addCourse(this);
+        SchoolDataBase school = this.school;
+        if(school != null) school.updateCourse(this);
+    }
+
+    /**
+     * remembers the school the course is registered with, which is told when the course changes
+     * @param school takes in the school
+     */
+    void setSchool(SchoolDataBase school) {
+        this.school = school;
     }
 
     /**
@@ -127,6 +151,16 @@ public class Course implements Comparable<Course>{
         return department;
     }
 
+    /**
+     *
+     * @return returns the listener of this course's department, or a listener that ignores everything when the
+     * course has no department
+     */
+    MutationListener listener() {
+        Department department = this.department;
+        return department == null ? MutationListener.NONE : department.getListener();
+    }
+
     /**
      *
      * @return returns the course number
@@ -135,6 +169,14 @@ public class Course implements Comparable<Course>{
         return courseNumber;
     }
 
+    /**
+     *
+     * @return returns the key of this course, its name and course number
+     */
+    public CourseKey getKey() {
+        return key;
+    }
+
     /**
      *
      * @param o the object to be compared.
@@ -161,24 +203,26 @@ public class Course implements Comparable<Course>{
  */
 final class Clazz implements Comparable<Clazz> {
     private final String section;
-    private int capacity, seatsTaken = 0;
-    private boolean hasTeacher;
-    private Instructor instructor;
+    private final int capacity;
+    private volatile boolean hasTeacher;
+    private volatile Instructor instructor;
     private final Course course;
-    private Student[] students;
-    private Queue<Student> studentQueue;
+    private final SeatAllocator seats;
+    private final WaitlistPriority priority;
+    private final PublishedView<VersionedList<Student>> roster = new PublishedView<>(VersionedList.empty(),
+            this::rosterAt);
+    private final Object changeLock = new Object();
+    private final int hash;
+    private volatile List<MeetingTime> meetingTimes = List.of();
+    private volatile WeeklySchedule.Mask meetingSlots = WeeklySchedule.Mask.EMPTY;
+    private volatile Room room;
 
     /**
      * constructor
      * @param section takes in the of the course
      */
     Clazz(String section) {
-        this.section = section;
-        course = Course.this;
-        Course.this.addClass(this);
-        capacity = 30;
-        students = new Student[capacity];
-        studentQueue = new LinkedBlockingQueue<>(30);
+        this(section, null, 30, 30);
     }
 
     /**
@@ -187,9 +231,7 @@ final class Clazz implements Comparable<Clazz> {
      * @param instructor takes in the name of the instructor of the course
      */
     Clazz(String section, Instructor instructor) {
-        this(section);
-        this.instructor = instructor;
-        hasTeacher = true;
+        this(section, instructor, 30);
     }
 
     /**
@@ -199,9 +241,7 @@ final class Clazz implements Comparable<Clazz> {
      * @param capacity takes in the capacity of students this class can hold
      */
     Clazz(String section, Instructor instructor, int capacity) {
-        this(section, instructor);
-        this.capacity = capacity;
-        students = new Student[capacity];
+        this(section, instructor, capacity, 30);
     }
 
     /**
@@ -212,60 +252,411 @@ final class Clazz implements Comparable<Clazz> {
      * @param waitlistCapacity takes in the capacity of wait-listed students
      */
     Clazz(String section, Instructor instructor, int capacity, int waitlistCapacity) {
-        this(section, instructor, capacity);
-        studentQueue = new LinkedBlockingQueue<>(waitlistCapacity);
-        students = new Student[capacity];
+        this(section, instructor, capacity, waitlistCapacity, null, null);
     }
 
     /**
-     * adds a student to the class
+     * Constructor for a class that can choose how its roster is stored. A class with a compact roster stores its
+     * students as ints, which suits classes with tens of thousands of seats, but only takes students registered
+     * with the school, see {@link CompactSeatAllocator}.
+     * @param section takes in the of the course
+     * @param instructor takes in the name of the instructor of the course
+     * @param capacity takes in the capacity of students this class can hold
+     * @param waitlistCapacity takes in the capacity of wait-listed students
+     * @param compactRoster takes in the school whose students the compact roster holds, or null for the default
+     * roster
+     */
+    Clazz(String section, Instructor instructor, int capacity, int waitlistCapacity, SchoolDataBase compactRoster) {
+        this(section, instructor, capacity, waitlistCapacity, compactRoster, null);
+    }
+
+    /**
+     * Constructor for a class whose waitlist promotes by priority instead of in the order students joined. A
+     * student one tier higher is ranked ahead of up to a class's worth of students that join after them, so
+     * students of every tier are promoted eventually, see {@link PriorityWaitlist}.
+     * @param section takes in the of the course
+     * @param instructor takes in the name of the instructor of the course
+     * @param capacity takes in the capacity of students this class can hold
+     * @param waitlistCapacity takes in the capacity of wait-listed students
+     * @param priority takes in the priority that orders the waitlist
+     */
+    Clazz(String section, Instructor instructor, int capacity, int waitlistCapacity, WaitlistPriority priority) {
+        this(section, instructor, capacity, waitlistCapacity, null, Objects.requireNonNull(priority));
+    }
+
+    private Clazz(String section, Instructor instructor, int capacity, int waitlistCapacity,
+                  SchoolDataBase compactRoster, WaitlistPriority priority) {
+        this.section = section;
+        this.instructor = instructor;
+        hasTeacher = instructor != null;
+        this.capacity = capacity;
+        this.priority = priority;
+        Consumer<Student> onPromote = student -> {
+            EnrollmentMetrics.promoted();
+            listener().studentPromoted(this, student);
+        };
+        if(compactRoster != null) seats = new CompactSeatAllocator(capacity, waitlistCapacity, compactRoster, onPromote);
+        else if(priority == null) seats = new ConcurrentSeatAllocator(capacity, waitlistCapacity, onPromote);
+        else seats = new ConcurrentSeatAllocator(capacity, waitlistCapacity,
+                    new PriorityWaitlist(student -> priority.tier(student, this), Math.max(1, capacity)), onPromote);
+        course = Course.this;
+        //the course number and section never change, so the hash stays right while the roster changes
+        hash = 31 * course.getCourseNumber() + Objects.hashCode(section);
+        Course.this.addClass(this);
+        listener().classAdded(this);
+    }
+
+    /**
+     *
+     * @return returns the listener of the course's department
+     */
+    private MutationListener listener() {
+        return course.listener();
+    }
+
+    /**
+     * adds a student to the class, or to the waitlist when the class is full. This method is safe to call
+     * from many threads at once.
      * @param student takes in the student to add
+     * @return returns whether the student was enrolled, wait-listed, rejected because the class and the waitlist
+     * are both full, or has a schedule conflict
+     * @see #enroll(Student)
      */
-    public void addStudent(Student student) throws IllegalStateException {
-        int length = students.length;
+    public EnrollmentResult addStudent(Student student) {
+        return enroll(student);
+    }
 
-        //adds the students from the queue while there is space in the class
+    /**
+     * adds a student to the class, or to the waitlist when the class is full, without throwing. The meeting times
+     * of the class are booked in the student's schedule, wait-listed students included.
+     * @param student takes in the student to add
+     * @return returns whether the student was enrolled, wait-listed, rejected or has a schedule conflict
+     */
+    public EnrollmentResult enroll(Student student) {
+        if(!EnrollmentMetrics.isEnabled()) return enrollUntimed(student);
+        long start = System.nanoTime();
+        EnrollmentResult result = enrollUntimed(student);
+        EnrollmentMetrics.enrolled(result, System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Adds a student only when the class has a free seat for them, see {@link SectionBalancer}. A class that is full
+     * is left as it was and nothing is reported, so trying a section never shows up as a wait-listing and a drop.
+     * @param student takes in the student to add
+     * @return returns ENROLLED or CONFLICT, or REJECTED when there was no free seat or the student is already in the
+     * class
+     */
+    EnrollmentResult enrollIfOpen(Student student) {
+        MutationListener listener = listener();
+        EnrollmentResult result;
+        if(listener == MutationListener.NONE) result = takeSeat(student);
+        else synchronized(changeLock) {
+            result = takeSeat(student);
+            if(result == EnrollmentResult.ENROLLED) listener.studentEnrolled(this, student, result);
+        }
+        if(result == EnrollmentResult.ENROLLED && EnrollmentMetrics.isEnabled()) EnrollmentMetrics.enrolled(result);
+        return result;
+    }
+
+    /**
+     * Gives a student waiting in another section of the course a free seat in this class and takes them off that
+     * waitlist, reported as one {@link MutationListener#studentMoved} and counted as a move. Both classes are locked
+     * while the student moves. When the student is no longer waiting in the other section, the seat is given back
+     * without being reported.
+     * @param student takes in the student to move
+     * @param from takes in the section whose waitlist the student leaves
+     * @return returns ENROLLED when the student moved, CONFLICT, REJECTED when there was no free seat or the student is
+     * already in this class, or null when the student was not waiting in the other section
+     */
+    EnrollmentResult moveHere(Student student, Clazz from) {
+        //lock the two classes in a fixed order, so moves between them in both directions can not deadlock
+        boolean thisFirst = compareTo(from) != 0 ? compareTo(from) < 0
+                : System.identityHashCode(this) <= System.identityHashCode(from);
+        Object first = thisFirst ? changeLock : from.changeLock, second = thisFirst ? from.changeLock : changeLock;
+        synchronized(first) {
+            synchronized(second) {
+                EnrollmentResult result = takeSeat(student);
+                if(result != EnrollmentResult.ENROLLED) return result;
+                if(from.removeWaiting(student, this)) return result;
+                //the student was promoted or dropped in the other section before we got here
+                if(unseat(student)) student.getSchedule().release(meetingSlots);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * seats a student that is not in the class yet when there is a free seat, and otherwise leaves the class as it
+     * was. Nothing is reported or counted.
+     */
+    private EnrollmentResult takeSeat(Student student) {
+        if(seats.contains(student)) return EnrollmentResult.REJECTED;
+        EnrollmentResult result = book(student);
+        if(result != EnrollmentResult.WAITLISTED) return result;
+        //the class filled up since the caller looked, so take back the waitlist spot
+        if(!seats.removeWaiting(student)) return EnrollmentResult.ENROLLED;
+        student.getSchedule().release(meetingSlots);
+        return EnrollmentResult.REJECTED;
+    }
+
+    private EnrollmentResult enrollUntimed(Student student) {
+        MutationListener listener = listener();
+        if(listener == MutationListener.NONE) return book(student);
+        //with someone listening, changes to a class are reported in the order they happened
+        synchronized(changeLock) {
+            EnrollmentResult result = book(student);
+            listener.studentEnrolled(this, student, result);
+            return result;
+        }
+    }
+
+    private EnrollmentResult book(Student student) {
+        WeeklySchedule.Mask slots = meetingSlots;
+        if(slots.isEmpty()) return seat(student);
+        if(!student.getSchedule().book(slots)) {
+            //a student already in the class conflicts with the class itself
+            EnrollmentResult current = seats.find(student);
+            return current != null ? current : EnrollmentResult.CONFLICT;
+        }
+        EnrollmentResult result = EnrollmentResult.REJECTED;
+        try {
+            result = seat(student);
+        } finally {
+            if(result == EnrollmentResult.REJECTED) student.getSchedule().release(slots);
+        }
+        return result;
+    }
 
-            while (seatsTaken < length && !studentQueue.isEmpty())
-                students[seatsTaken++] = studentQueue.poll();
+    private VersionedList<Student> rosterAt(long version) {
+        return new VersionedList<>(seats.students(), version);
+    }
 
-            //adds student to the class or queue
+    /*
+     * Every change to the roster goes through these three, so the roster view knows when to build a new one.
+     */
+    private EnrollmentResult seat(Student student) {
+        roster.beginWrite();
+        EnrollmentResult result = EnrollmentResult.REJECTED;
+        try {
+            return result = seats.add(student);
+        } finally {
+            roster.endWrite(result != EnrollmentResult.REJECTED);
+        }
+    }
 
-            if (seatsTaken < length) students[seatsTaken++] = student;
+    private EnrollmentResult[] seatAll(Collection<Student> students) {
+        roster.beginWrite();
+        boolean changed = false;
+        try {
+            EnrollmentResult[] results = seats.addAll(students);
+            for(EnrollmentResult result : results) changed |= result != EnrollmentResult.REJECTED;
+            return results;
+        } finally {
+            roster.endWrite(changed);
+        }
+    }
 
-            else studentQueue.add(student);
+    private boolean unseat(Student student) {
+        roster.beginWrite();
+        boolean removed = false;
+        try {
+            return removed = seats.remove(student);
+        } finally {
+            roster.endWrite(removed);
+        }
     }
 
         public void printQueueSize() {
-            System.out.println(studentQueue.size());
+            System.out.println(seats.waitlistSize());
         }
 
+    /**
+     *
+     * @return returns the number of seats that are taken
+     */
+    public int getSeatsTaken() {
+        return seats.seatsTaken();
+    }
+
+    /**
+     *
+     * @return returns the number of students waiting for a seat
+     */
+    public int getWaitlistSize() {
+        return seats.waitlistSize();
+    }
+
+        /**
+         *
+         * @return returns a copy of the students that are seated in the class
+         */
         public Student[] getStudents() {
-            return students;
+            return roster().toArray(new Student[0]);
+        }
+
+        /**
+         * The students seated in the class, as an immutable view that is shared by every reader until the roster
+         * changes. While students are enrolling the view can be a moment behind, but it always shows the roster as
+         * it was between two changes.
+         * @return returns the seated students, in seat order
+         */
+        public VersionedList<Student> roster() {
+            return roster.get();
         }
 
         /**
-     * A method that adds a Collection of Students to the Class.
+         *
+         * @return returns a copy of the wait-listed students in the order they will be promoted
+         */
+        public Student[] waitlistedStudents() {
+            return seats.waitlisted();
+        }
+
+    /**
+     *
+     * @return returns the wait-listed students in the order they will be promoted, with the tiers and arrival
+     * numbers a priority waitlist ranks them by
+     */
+    Waitlist.Order waitlistOrder() {
+        return seats.waitlistOrder();
+    }
+
+        /**
+     * A method that adds a Collection of Students to the Class in one batch. Students are seated in the
+     * iteration order of the collection, the overflow goes to the waitlist and anything past that is rejected.
      * @param students takes in a Collection subclass of Students.
      * @param <E>
+     * @return returns the result for each student, in the iteration order of the collection
+     */
+    <E extends Collection<Student>> EnrollmentResult[] addStudents(E students) {
+        MutationListener listener = listener();
+        EnrollmentResult[] results;
+        if(listener == MutationListener.NONE) results = bookAll(students);
+        else synchronized(changeLock) {
+            results = bookAll(students);
+            int i = 0;
+            for(Student student : students) listener.studentEnrolled(this, student, results[i++]);
+        }
+        if(EnrollmentMetrics.isEnabled()) for(EnrollmentResult result : results) EnrollmentMetrics.enrolled(result);
+        return results;
+    }
+
+    private EnrollmentResult[] bookAll(Collection<Student> students) {
+        WeeklySchedule.Mask slots = meetingSlots;
+        if(slots.isEmpty()) return seatAll(students);
+        EnrollmentResult[] results = new EnrollmentResult[students.size()];
+        List<Student> booked = new ArrayList<>(students.size());
+        int i = 0;
+        for(Student student : students) {
+            if(student.getSchedule().book(slots)) booked.add(student);
+            else {
+                EnrollmentResult current = seats.find(student);
+                results[i] = current != null ? current : EnrollmentResult.CONFLICT;
+            }
+            i++;
+        }
+        EnrollmentResult[] added;
+        try {
+            added = seatAll(booked);
+        } catch (RuntimeException e) {
+            for(Student student : booked) student.getSchedule().release(slots);
+            throw e;
+        }
+        for(int j = 0, k = 0; j < results.length; j++) {
+            if(results[j] != null) continue;
+            results[j] = added[k];
+            if(added[k] == EnrollmentResult.REJECTED) booked.get(k).getSchedule().release(slots);
+            k++;
+        }
+        return results;
+    }
+
+    /**
+     * Fills the empty class with the roster and waitlist of a snapshot and books the meeting times in every
+     * student's schedule. The snapshot was taken from a consistent school, so the students are not checked for
+     * conflicts and nobody is told, see {@link SeatAllocator#restore(List, Waitlist.Order)}.
+     * @param seated takes in the seated students, in seat order
+     * @param waiting takes in the wait-listed students, as {@link #waitlistOrder()} gave them
      */
-    <E extends Collection<Student>> void addStudents(E students) {
-        for (Student student: students) {
-            addStudent(student);
+    void restore(List<Student> seated, Waitlist.Order waiting) {
+        WeeklySchedule.Mask slots = meetingSlots;
+        if(!slots.isEmpty()) {
+            for(Student student : seated) student.getSchedule().book(slots);
+            for(Student student : waiting.students()) student.getSchedule().book(slots);
+        }
+        roster.beginWrite();
+        try {
+            seats.restore(seated, waiting);
+        } finally {
+            roster.endWrite(true);
         }
     }
 
     /**
-     *
+     * removes a student from the class or its waitlist. The freed seat goes to the next wait-listed student.
      * @param student takes in the student to remove from the class
      */
     void removeStudent(Student student) {
-        List<Student> tempList = new ArrayList<>(Arrays.stream(students).toList());
-        if(!tempList.contains(student)) return;
-        tempList.remove(student);
-        students = tempList.toArray(new Student[0]);
-        seatsTaken--;
-        if(!studentQueue.isEmpty()) students[++seatsTaken] = studentQueue.poll();
+        MutationListener listener = listener();
+        if(listener == MutationListener.NONE) {
+            if(unseat(student)) {
+                student.getSchedule().release(meetingSlots);
+                EnrollmentMetrics.dropped();
+            }
+            return;
+        }
+        synchronized(changeLock) {
+            if(!unseat(student)) return;
+            student.getSchedule().release(meetingSlots);
+            EnrollmentMetrics.dropped();
+            listener.studentDropped(this, student);
+        }
+    }
+
+    /**
+     * removes a student from the waitlist of the class, leaving them alone when they have a seat
+     * @param student takes in the student to remove
+     * @return returns true if the student was wait-listed
+     */
+    boolean removeWaiting(Student student) {
+        return removeWaiting(student, null);
+    }
+
+    /**
+     * takes a student off the waitlist, reported as a drop, or as a move when the student got a seat in another
+     * section, see {@link #moveHere(Student, Clazz)}
+     */
+    private boolean removeWaiting(Student student, Clazz movedTo) {
+        MutationListener listener = listener();
+        if(listener == MutationListener.NONE) {
+            if(!seats.removeWaiting(student)) return false;
+            student.getSchedule().release(meetingSlots);
+            if(movedTo == null) EnrollmentMetrics.dropped();
+            else EnrollmentMetrics.moved();
+            return true;
+        }
+        synchronized(changeLock) {
+            if(!seats.removeWaiting(student)) return false;
+            student.getSchedule().release(meetingSlots);
+            if(movedTo == null) {
+                EnrollmentMetrics.dropped();
+                listener.studentDropped(this, student);
+            } else {
+                EnrollmentMetrics.moved();
+                listener.studentMoved(this, movedTo, student);
+            }
+            return true;
+        }
+    }
+
+    /**
+     *
+     * @param student takes in the student to look for
+     * @return returns true if the student is seated in the class or waiting for a seat
+     */
+    boolean isSeatedOrWaiting(Student student) {
+        return seats.contains(student);
     }
 
     /**
@@ -277,13 +668,102 @@ final class Clazz implements Comparable<Clazz> {
         students.forEach(this::removeStudent);
     }
 
+    /**
+     * Makes the instructor teach the class, and takes it off the instructor teaching it before. The class is locked
+     * first and then each instructor, so two instructors taking the same class can not both end up teaching it.
+     * @param next takes in the instructor to teach the class
+     * @return returns false if the instructor already teaches the class or is busy when it meets, in which case
+     * nothing changes
+     */
+    boolean assign(Instructor next) {
+        synchronized(changeLock) {
+            if(!next.take(this)) return false;
+            Instructor previous = instructor;
+            if(previous != null && previous != next && previous.release(this))
+                listener().instructorRemoved(this, previous);
+            instructor = next;
+            hasTeacher = true;
+            listener().instructorAssigned(this, next);
+            return true;
+        }
+    }
+
+    /**
+     * Takes the class off an instructor, and leaves the class without an instructor when it is still theirs.
+     * @param previous takes in the instructor giving the class up
+     * @return returns true if the instructor taught the class
+     */
+    boolean unassign(Instructor previous) {
+        synchronized(changeLock) {
+            boolean taught = previous.release(this);
+            boolean current = instructor == previous;
+            if(current) {
+                instructor = null;
+                hasTeacher = false;
+            }
+            if(taught || current) listener().instructorRemoved(this, previous);
+            return taught;
+        }
+    }
+
+    /**
+     * Sets when the class meets. Everyone already in the class, and the instructor teaching it, is moved to the new
+     * times. Set the times before registration opens, a student enrolling while they change may keep the old times.
+     * @param meetings takes in the weekly meetings of the class
+     * @throws IllegalStateException when the new times conflict with another class of someone in the class, in
+     * which case nothing changes
+     */
+    void setMeetingTimes(Collection<MeetingTime> meetings) {
+        List<MeetingTime> times = List.copyOf(meetings);
+        WeeklySchedule.Mask slots = WeeklySchedule.Mask.of(times);
+        synchronized(changeLock) {
+            WeeklySchedule.Mask old = meetingSlots;
+            List<Person> people = new ArrayList<>();
+            if(instructor != null && instructor.teachesClass(this)) people.add(instructor);
+            people.addAll(Arrays.asList(seats.students()));
+            people.addAll(Arrays.asList(seats.waitlisted()));
+            for(int i = 0; i < people.size(); i++) {
+                if(people.get(i).getSchedule().rebook(old, slots)) continue;
+                for(int j = 0; j < i; j++) people.get(j).getSchedule().rebook(slots, old);
+                throw new IllegalStateException("Schedule conflict for " + people.get(i).getId());
+            }
+            meetingTimes = times;
+            meetingSlots = slots;
+            listener().meetingTimesChanged(this);
+        }
+    }
+
     /**
      *
-     * @param instructor takes in the instructor to be added to the class
+     * @return returns the weekly meetings of the class
      */
-    void setInstructor(Instructor instructor) {
-        this.instructor = instructor;
-        hasTeacher = true;
+    public List<MeetingTime> getMeetingTimes() {
+        return meetingTimes;
+    }
+
+    /**
+     *
+     * @return returns the slots of the week the class meets in
+     */
+    WeeklySchedule.Mask getMeetingSlots() {
+        return meetingSlots;
+    }
+
+    /**
+     *
+     * @return returns the room the class meets in, null until one is assigned
+     */
+    public Room getRoom() {
+        return room;
+    }
+
+    /**
+     * sets the room the class meets in, see {@link TimetableSolver}
+     * @param room takes in the room
+     */
+    void setRoom(Room room) {
+        this.room = room;
+        listener().roomAssigned(this);
     }
 
     /**
@@ -302,6 +782,54 @@ final class Clazz implements Comparable<Clazz> {
         return section;
     }
 
+    /**
+     *
+     * @return returns the number of seats in the class
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     *
+     * @return returns the number of students that can be wait-listed
+     */
+    public int getWaitlistCapacity() {
+        return seats.waitlistCapacity();
+    }
+
+    /**
+     *
+     * @return returns true if the roster stores students as ints, see {@link CompactSeatAllocator}
+     */
+    public boolean hasCompactRoster() {
+        return seats instanceof CompactSeatAllocator;
+    }
+
+    /**
+     *
+     * @return returns true if the waitlist promotes by priority, see {@link PriorityWaitlist}
+     */
+    public boolean hasPriorityWaitlist() {
+        return priority != null;
+    }
+
+    /**
+     *
+     * @return returns the course this class belongs to
+     */
+    public Course getCourse() {
+        return course;
+    }
+
+    /**
+     *
+     * @return returns the key of this class, the key of its course and its section
+     */
+    public SectionKey getKey() {
+        return new SectionKey(course.getKey(), section);
+    }
+
     /**
      *
      * @return if the class has an instructor or not
@@ -318,11 +846,13 @@ final class Clazz implements Comparable<Clazz> {
     public String toString() {
         return String.format("Course = %s %d, Instructor = %s, Session = %s, Capacity = %d, Seats Taken = %d "
                 , course.getName(), course.getCourseNumber(), instructor != null ? instructor : "Not Available"
-                , getSection(), capacity,seatsTaken);
+                , getSection(), capacity, seats.seatsTaken());
     }
 
     /**
-     * A method that compares two Objects for equality based on their field variables.
+     * Two classes are equal when they are the same section of the same course. The course is compared by
+     * identity, not by its key, so neither students coming and going nor the course being renamed change whether
+     * classes are equal, and a class can be a key in a map while the school changes.
      * @param o takes in the Object to validated for equality.
      * @return returns a boolean value based on the equality of this instance of class and the Object o's instance.
      */
@@ -331,17 +861,16 @@ final class Clazz implements Comparable<Clazz> {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Clazz aClazz = (Clazz) o;
-        return capacity == aClazz.capacity && seatsTaken == aClazz.seatsTaken
-                && hasTeacher == aClazz.hasTeacher && Objects.equals(section, aClazz.section)
-                && Objects.equals(instructor, aClazz.instructor) && Objects.equals(course, aClazz.course)
-                && Arrays.equals(students, aClazz.students) && Objects.equals(studentQueue, aClazz.studentQueue);
+        return hash == aClazz.hash && course == aClazz.course && Objects.equals(section, aClazz.section);
     }
 
+    /**
+     *
+     * @return returns the hash of the course number and section, worked out once when the class is created
+     */
     @Override
     public int hashCode() {
-        int result = Objects.hash(section, capacity, seatsTaken, hasTeacher, instructor, course, studentQueue);
-        result = 31 * result + Arrays.hashCode(students);
-        return result;
+        return hash;
     }
 
         @Override
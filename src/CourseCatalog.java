@@ -0,0 +1,330 @@
+package miniprojects.schooldb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A catalog of courses with a hash index on the course key and sorted secondary indexes on the name, the course
+ * number, the number of credits and the department. Duplicate checks are a single hash lookup, and prefix and range
+ * queries take logarithmic time. Every index can be read while courses are being added.
+ * <br>
+ * Queries are answered from an immutable snapshot of the sorted indexes, so a query result is a {@link VersionedList}
+ * over the snapshot's arrays: nothing is copied and no lock is taken, and the result never changes under the reader.
+ * The snapshot is built again by the first query after a change, see {@link PublishedView}, so a catalog that is
+ * read far more often than it is written pays for the snapshot once per change.
+ */
+public class CourseCatalog {
+    private final Map<CourseKey, Entry> byKey = new ConcurrentHashMap<>();
+    private final NavigableMap<CourseKey, Course> byName = new ConcurrentSkipListMap<>();
+    private final NavigableMap<IndexKey, Course> byNumber = new ConcurrentSkipListMap<>();
+    private final NavigableMap<IndexKey, Course> byCredits = new ConcurrentSkipListMap<>();
+    private final Map<Department, NavigableMap<CourseKey, Course>> byDepartment = new ConcurrentHashMap<>();
+    private final PublishedView<Snapshot> snapshot = new PublishedView<>(Snapshot.EMPTY, this::snapshot);
+
+    /**
+     * adds a course to the catalog
+     * @param course takes in the course to add
+     * @return returns false when a course with the same name and course number is already in the catalog
+     */
+    boolean add(Course course) {
+        Entry entry = Entry.of(course);
+        snapshot.beginWrite();
+        boolean added = false;
+        try {
+            if(byKey.putIfAbsent(course.getKey(), entry) != null) return false;
+            index(entry);
+            return added = true;
+        } finally {
+            snapshot.endWrite(added);
+        }
+    }
+
+    /**
+     * removes a course from the catalog
+     * @param course takes in the course to remove
+     * @return returns true if the course was in the catalog
+     */
+    boolean remove(Course course) {
+        snapshot.beginWrite();
+        boolean removed = false;
+        try {
+            Entry entry = byKey.get(course.getKey());
+            if(entry == null || entry.course != course || !byKey.remove(course.getKey(), entry)) return false;
+            unindex(entry);
+            return removed = true;
+        } finally {
+            snapshot.endWrite(removed);
+        }
+    }
+
+    /**
+     * Re-indexes a course after its number of credits or its department changed.
+     * @param course takes in the course that changed
+     */
+    void update(Course course) {
+        snapshot.beginWrite();
+        boolean updated = false;
+        try {
+            Entry old = byKey.get(course.getKey());
+            if(old == null || old.course != course) return;
+            Entry entry = Entry.of(course);
+            if(!byKey.replace(course.getKey(), old, entry)) return;
+            unindex(old);
+            index(entry);
+            updated = true;
+        } finally {
+            snapshot.endWrite(updated);
+        }
+    }
+
+    /**
+     * Re-indexes a course under its new key after its name changed.
+     * @param course takes in the course that was renamed
+     * @param old takes in the key the course had before
+     * @return returns false when the catalog did not have the course under the old key, or already has another
+     * course under the new key, in which case nothing changes
+     */
+    boolean rename(Course course, CourseKey old) {
+        snapshot.beginWrite();
+        boolean renamed = false;
+        try {
+            Entry before = byKey.get(old);
+            if(before == null || before.course != course) return false;
+            Entry entry = Entry.of(course);
+            if(byKey.putIfAbsent(entry.key, entry) != null) return false;
+            byKey.remove(old, before);
+            unindex(before);
+            index(entry);
+            return renamed = true;
+        } finally {
+            snapshot.endWrite(renamed);
+        }
+    }
+
+    private void index(Entry entry) {
+        Course course = entry.course;
+        CourseKey key = entry.key;
+        byName.put(key, course);
+        byNumber.put(new IndexKey(key.courseNumber(), key), course);
+        byCredits.put(new IndexKey(entry.credits, key), course);
+        if(entry.department != null)
+            byDepartment.computeIfAbsent(entry.department, d -> new ConcurrentSkipListMap<>()).put(key, course);
+    }
+
+    private void unindex(Entry entry) {
+        CourseKey key = entry.key;
+        byName.remove(key);
+        byNumber.remove(new IndexKey(key.courseNumber(), key));
+        byCredits.remove(new IndexKey(entry.credits, key));
+        if(entry.department != null) {
+            NavigableMap<CourseKey, Course> courses = byDepartment.get(entry.department);
+            if(courses != null) courses.remove(key);
+        }
+    }
+
+    /**
+     *
+     * @param key takes in the name and course number
+     * @return returns true if the catalog has a course with the key
+     */
+    public boolean contains(CourseKey key) {
+        return byKey.containsKey(key);
+    }
+
+    /**
+     *
+     * @param key takes in the name and course number
+     * @return returns the course with the key, or null if the catalog does not have one
+     */
+    public Course get(CourseKey key) {
+        if(!EnrollmentMetrics.isEnabled()) {
+            Entry entry = byKey.get(key);
+            return entry == null ? null : entry.course;
+        }
+        long start = System.nanoTime();
+        Entry entry = byKey.get(key);
+        EnrollmentMetrics.catalogLookup(System.nanoTime() - start);
+        return entry == null ? null : entry.course;
+    }
+
+    /**
+     *
+     * @return returns the number of courses in the catalog
+     */
+    public int size() {
+        return byKey.size();
+    }
+
+    /**
+     *
+     * @return returns every course, sorted by name and course number
+     */
+    public VersionedList<Course> all() {
+        return snapshot.get().byName;
+    }
+
+    /**
+     *
+     * @param prefix takes in the start of the course name, such as CMP or C
+     * @return returns the courses whose names start with the prefix, sorted by name and course number
+     */
+    public VersionedList<Course> byPrefix(String prefix) {
+        Snapshot current = snapshot.get();
+        int from = current.firstAtOrAfter(new CourseKey(prefix, Integer.MIN_VALUE));
+        int to = current.firstAtOrAfter(new CourseKey(prefix + Character.MAX_VALUE, Integer.MIN_VALUE));
+        return current.byName.subList(from, to);
+    }
+
+    /**
+     *
+     * @param from takes in the lowest course number, inclusive
+     * @param to takes in the highest course number, inclusive
+     * @return returns the courses with course numbers in the range, sorted by course number and name
+     */
+    public VersionedList<Course> byNumberRange(int from, int to) {
+        Snapshot current = snapshot.get();
+        return range(current.byNumber, current.numbers, from, to);
+    }
+
+    /**
+     *
+     * @param credits takes in the number of credits
+     * @return returns the courses worth that many credits, sorted by name and course number
+     */
+    public VersionedList<Course> byCredits(int credits) {
+        return byCreditRange(credits, credits);
+    }
+
+    /**
+     *
+     * @param from takes in the lowest number of credits, inclusive
+     * @param to takes in the highest number of credits, inclusive
+     * @return returns the courses worth a number of credits in the range, sorted by credits
+     */
+    public VersionedList<Course> byCreditRange(int from, int to) {
+        Snapshot current = snapshot.get();
+        return range(current.byCredits, current.credits, from, to);
+    }
+
+    /**
+     *
+     * @param department takes in the department
+     * @return returns the courses of the department, sorted by name and course number
+     */
+    public VersionedList<Course> byDepartment(Department department) {
+        Snapshot current = snapshot.get();
+        return current.byDepartment.getOrDefault(department, current.byName.subList(0, 0));
+    }
+
+    /**
+     *
+     * @param level takes in the level of study
+     * @return returns the courses at that level, sorted by course number and name
+     */
+    public VersionedList<Course> byLevel(Department.Level level) {
+        return byNumberRange(level.lowestCourseNumber(), level.highestCourseNumber());
+    }
+
+    private static VersionedList<Course> range(VersionedList<Course> index, int[] values, int from, int to) {
+        if(from > to) return index.subList(0, 0);
+        int low = firstAbove(values, (long) from - 1), high = firstAbove(values, to);
+        return index.subList(low, high);
+    }
+
+    /**
+     * @return returns the index of the first value above the bound, in values sorted in ascending order
+     */
+    private static int firstAbove(int[] values, long bound) {
+        int low = 0, high = values.length;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(values[middle] <= bound) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * builds the snapshot of the indexes, called by the first query after a change while no change is going on
+     */
+    private Snapshot snapshot(long version) {
+        CourseKey[] names = byName.keySet().toArray(new CourseKey[0]);
+        Object[] courses = byName.values().toArray();
+        List<Course> byNumberCourses = new ArrayList<>(), byCreditCourses = new ArrayList<>();
+        int[] numbers = values(byNumber, byNumberCourses), credits = values(byCredits, byCreditCourses);
+        Map<Department, VersionedList<Course>> departments = new HashMap<>();
+        for(Map.Entry<Department, NavigableMap<CourseKey, Course>> entry : byDepartment.entrySet())
+            if(!entry.getValue().isEmpty())
+                departments.put(entry.getKey(), new VersionedList<>(entry.getValue().values().toArray(), version));
+        return new Snapshot(names, new VersionedList<>(courses, version), numbers,
+                new VersionedList<>(byNumberCourses.toArray(), version), credits,
+                new VersionedList<>(byCreditCourses.toArray(), version), departments);
+    }
+
+    /**
+     * copies a secondary index into its int values and the courses, which line up. A change going on at the same
+     * time can make the two disagree, and the snapshot is then thrown away, so neither is sized up front.
+     */
+    private static int[] values(NavigableMap<IndexKey, Course> index, List<Course> courses) {
+        int[] values = new int[16];
+        for(Map.Entry<IndexKey, Course> entry : index.entrySet()) {
+            if(courses.size() == values.length) values = Arrays.copyOf(values, values.length * 2);
+            values[courses.size()] = entry.getKey().value();
+            courses.add(entry.getValue());
+        }
+        return Arrays.copyOf(values, courses.size());
+    }
+
+    /**
+     * The indexes as sorted arrays. The keys and values of each index are kept in separate arrays that line up, so
+     * a query finds its range by binary search on the keys and returns the matching part of the values.
+     */
+    private record Snapshot(CourseKey[] names, VersionedList<Course> byName, int[] numbers,
+                            VersionedList<Course> byNumber, int[] credits, VersionedList<Course> byCredits,
+                            Map<Department, VersionedList<Course>> byDepartment) {
+        static final Snapshot EMPTY = new Snapshot(new CourseKey[0], VersionedList.empty(), new int[0],
+                VersionedList.empty(), new int[0], VersionedList.empty(), Map.of());
+
+        int firstAtOrAfter(CourseKey key) {
+            int low = 0, high = names.length;
+            while(low < high) {
+                int middle = (low + high) >>> 1;
+                if(names[middle].compareTo(key) < 0) low = middle + 1;
+                else high = middle;
+            }
+            return low;
+        }
+    }
+
+    /**
+     * A course with the key, credits and department it is indexed under, so it can be taken out of the indexes
+     * after any of them changed.
+     */
+    private record Entry(Course course, CourseKey key, int credits, Department department) {
+
+        static Entry of(Course course) {
+            return new Entry(course, course.getKey(), course.getNumOfCredits(), course.getDepartment());
+        }
+    }
+
+    /**
+     * A secondary index key, an int value with the course key as a tie breaker. A null course key sorts before
+     * every other key with the same value, which makes it the lower bound of a range.
+     */
+    private record IndexKey(int value, CourseKey key) implements Comparable<IndexKey> {
+        @Override
+        public int compareTo(IndexKey o) {
+            int compare = Integer.compare(value, o.value);
+            if(compare != 0) return compare;
+            if(key == null) return o.key == null ? 0 : -1;
+            if(o.key == null) return 1;
+            return key.compareTo(o.key);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package miniprojects.schooldb;
+
+/**
+ * The primary key of a course: its name and course number, for example CMP 133.
+ * Keys sort the same way as {@link Course#compareTo(Course)}.
+ * @param name the upper-case name of the course
+ * @param courseNumber the course number
+ */
+public record CourseKey(String name, int courseNumber) implements Comparable<CourseKey> {
+
+    /**
+     * constructor, the name is stored in upper case
+     */
+    public CourseKey {
+        name = name.toUpperCase();
+    }
+
+    @Override
+    public int compareTo(CourseKey o) {
+        int compare = name.compareTo(o.name);
+        if(compare != 0) return compare;
+        return Integer.compare(courseNumber, o.courseNumber);
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + courseNumber;
+    }
+}
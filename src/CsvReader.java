@@ -0,0 +1,306 @@
+package miniprojects.schooldb;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * Reads a CSV file through a file channel into reusable {@link Rows} batches. Fields are copied into the batch's
+ * byte arena with their quotes removed and are only turned into strings, ints or dates when they are asked for, so
+ * reading a row creates no objects. Fields may be quoted with double quotes, and a quote inside a quoted field is
+ * written twice. Memory use is the read buffer plus the batches, no matter how big the file is.
+ */
+final class CsvReader implements Closeable {
+    private static final int START = 0, UNQUOTED = 1, QUOTED = 2, QUOTE_IN_QUOTED = 3;
+
+    private final FileChannel channel;
+    private final ByteBuffer in;
+    private long line = 1;
+    private int state = START;
+    private boolean endOfFile;
+
+    /**
+     * constructor
+     * @param file takes in the CSV file
+     * @param bufferBytes takes in the size of the read buffer
+     * @throws IOException when the file cannot be opened
+     */
+    CsvReader(Path file, int bufferBytes) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        in = ByteBuffer.allocate(bufferBytes).flip();
+    }
+
+    /**
+     * Fills the batch with the next rows of the file, until the batch is full or the file ends.
+     * @param rows takes in the batch to fill, which is cleared first
+     * @return returns false when there were no rows left
+     * @throws IOException when the file cannot be read
+     */
+    boolean read(Rows rows) throws IOException {
+        rows.clear();
+        while(true) {
+            //a batch only ends between rows, and only when the next row is sure to fit
+            boolean betweenRows = state == START && !rows.hasPartialRow();
+            if(betweenRows && (rows.size == rows.capacity || rows.used > rows.data.length - rows.maxRowBytes)) break;
+            if(!in.hasRemaining() && !fill()) break;
+            byte[] bytes = in.array();
+            int position = in.position(), limit = in.limit();
+            boolean rowDone = false;
+            while(position < limit && !rowDone) {
+                byte b = bytes[position++];
+                switch (state) {
+                    case START, UNQUOTED -> {
+                        if(b == '"' && state == START) state = QUOTED;
+                        else if(b == ',') rows.endField();
+                        else if(b == '\n') rowDone = true;
+                        else if(b != '\r') {
+                            state = UNQUOTED;
+                            rows.put(b);
+                        }
+                    }
+                    case QUOTED -> {
+                        if(b == '"') state = QUOTE_IN_QUOTED;
+                        else {
+                            if(b == '\n') line++;
+                            rows.put(b);
+                        }
+                    }
+                    default -> {
+                        if(b == '"') {
+                            state = QUOTED;
+                            rows.put(b);
+                        } else if(b == ',') rows.endField();
+                        else if(b == '\n') rowDone = true;
+                        else if(b != '\r') {
+                            state = UNQUOTED;
+                            rows.put(b);
+                        }
+                    }
+                }
+                if(b == ',' && state != QUOTED) state = START;
+            }
+            in.position(position);
+            if(rowDone) {
+                rows.endRow(line++);
+                state = START;
+            }
+        }
+        if(endOfFile && !in.hasRemaining() && rows.hasPartialRow()) {
+            rows.endRow(line++);
+            state = START;
+        }
+        return rows.size > 0;
+    }
+
+    private boolean fill() throws IOException {
+        if(endOfFile) return false;
+        in.clear();
+        int read;
+        do {
+            read = channel.read(in);
+        } while(read == 0);
+        in.flip();
+        if(read < 0) endOfFile = true;
+        return in.hasRemaining();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * A reusable batch of parsed rows. The fields of every row sit back to back in one byte arena.
+     */
+    static final class Rows {
+        final int capacity;
+        final int maxRowBytes;
+        private final int maxFields;
+        private final byte[] data;
+        private final int[] fieldEnds;
+        private final int[] rowFields;
+        private final int[] rowStarts;
+        private final long[] lines;
+        private final String[] errors;
+        private int used, size, fields, rowStart, rowFieldStart;
+        private boolean tooLong;
+
+        /**
+         * constructor
+         * @param capacity takes in the number of rows in a batch
+         * @param maxRowBytes takes in the longest row allowed, longer rows are reported as errors
+         * @param maxFields takes in the most fields a row may have
+         */
+        Rows(int capacity, int maxRowBytes, int maxFields) {
+            this.capacity = capacity;
+            this.maxRowBytes = maxRowBytes;
+            this.maxFields = maxFields;
+            data = new byte[Math.max(capacity * 64, maxRowBytes * 2)];
+            fieldEnds = new int[capacity * maxFields + 1];
+            rowFields = new int[capacity + 1];
+            rowStarts = new int[capacity];
+            lines = new long[capacity];
+            errors = new String[capacity];
+        }
+
+        private void clear() {
+            used = size = fields = rowStart = rowFieldStart = 0;
+            tooLong = false;
+        }
+
+        private void put(byte b) {
+            if(used - rowStart >= maxRowBytes) {
+                tooLong = true;
+                return;
+            }
+            data[used++] = b;
+        }
+
+        private void endField() {
+            if(fields - rowFieldStart >= maxFields) {
+                tooLong = true;
+                return;
+            }
+            fieldEnds[fields++] = used;
+        }
+
+        private boolean hasPartialRow() {
+            return used > rowStart || fields > rowFieldStart;
+        }
+
+        private void endRow(long line) {
+            endField();
+            lines[size] = line;
+            errors[size] = tooLong ? "Row is longer than " + maxRowBytes + " bytes or has more than " + maxFields
+                    + " fields" : null;
+            rowStarts[size] = rowStart;
+            rowFields[size] = rowFieldStart;
+            rowFields[++size] = fields;
+            rowFieldStart = fields;
+            rowStart = used;
+            tooLong = false;
+        }
+
+        /**
+         *
+         * @return returns the number of rows in the batch
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         *
+         * @param row takes in the index of a row in the batch
+         * @return returns the line of the file the row ends on
+         */
+        long line(int row) {
+            return lines[row];
+        }
+
+        /**
+         *
+         * @param row takes in the index of a row in the batch
+         * @return returns why the row could not be read, or null when it was read
+         */
+        String error(int row) {
+            return errors[row];
+        }
+
+        /**
+         *
+         * @param row takes in the index of a row in the batch
+         * @return returns the number of fields in the row
+         */
+        int fields(int row) {
+            return rowFields[row + 1] - rowFields[row];
+        }
+
+        private int start(int row, int field) {
+            return field == 0 ? rowStarts[row] : fieldEnds[rowFields[row] + field - 1];
+        }
+
+        private int end(int row, int field) {
+            return fieldEnds[rowFields[row] + field];
+        }
+
+        /**
+         *
+         * @return returns true if the field is missing or empty
+         */
+        boolean isEmpty(int row, int field) {
+            return field >= fields(row) || start(row, field) == end(row, field);
+        }
+
+        /**
+         *
+         * @return returns the field as a string, or null when it is missing or empty
+         */
+        String string(int row, int field) {
+            if(isEmpty(row, field)) return null;
+            int start = start(row, field);
+            return new String(data, start, end(row, field) - start, StandardCharsets.UTF_8).strip();
+        }
+
+        /**
+         *
+         * @return returns the field as an int
+         * @throws IllegalArgumentException when the field is not a number
+         */
+        int integer(int row, int field, String name) {
+            if(isEmpty(row, field)) throw new IllegalArgumentException("Missing " + name);
+            int start = start(row, field), end = end(row, field);
+            while(start < end && data[start] == ' ') start++;
+            while(end > start && data[end - 1] == ' ') end--;
+            if(end - start > 9 || start == end) throw new IllegalArgumentException("Invalid " + name);
+            int value = 0;
+            for(int i = start; i < end; i++) {
+                int digit = data[i] - '0';
+                if(digit < 0 || digit > 9) throw new IllegalArgumentException("Invalid " + name);
+                value = value * 10 + digit;
+            }
+            return value;
+        }
+
+        /**
+         *
+         * @return returns the field as a date written yyyy-mm-dd
+         * @throws IllegalArgumentException when the field is not a date
+         */
+        LocalDate date(int row, int field, String name) {
+            if(isEmpty(row, field)) throw new IllegalArgumentException("Missing " + name);
+            int start = start(row, field);
+            if(end(row, field) - start != 10 || data[start + 4] != '-' || data[start + 7] != '-')
+                throw new IllegalArgumentException("Invalid " + name);
+            try {
+                return LocalDate.of(digits(start, 4, name), digits(start + 5, 2, name), digits(start + 8, 2, name));
+            } catch (DateTimeException e) {
+                throw new IllegalArgumentException("Invalid " + name);
+            }
+        }
+
+        private int digits(int start, int count, String name) {
+            int value = 0;
+            for(int i = start; i < start + count; i++) {
+                int digit = data[i] - '0';
+                if(digit < 0 || digit > 9) throw new IllegalArgumentException("Invalid " + name);
+                value = value * 10 + digit;
+            }
+            return value;
+        }
+
+        /**
+         *
+         * @return returns the first character of the field in upper case, or 0 when it is empty
+         */
+        char initial(int row, int field) {
+            return isEmpty(row, field) ? 0 : Character.toUpperCase((char) data[start(row, field)]);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package miniprojects.schooldb;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Posts grades to transcripts and audits students against the graduation requirements. Every post updates the
+ * credit and GPA totals of the student's {@link Transcript} and the number of students that meet the requirements,
+ * so auditing one student or counting the students that can graduate never walks a transcript. {@link #recompute}
+ * adds every transcript up again on a fork-join pool to check the running totals.
+ */
+public final class DegreeAudit {
+    private static final int RECOMPUTE_CHUNK = 1024;
+
+    private final SchoolDataBase school;
+    private final int requiredCredits;
+    private final double minimumGpa;
+    private final AtomicInteger eligible = new AtomicInteger();
+    private final LongAdder gradesPosted = new LongAdder();
+
+    /**
+     * The standing of one student against the requirements.
+     * @param studentId the id of the student
+     * @param earnedCredits the credits the student has earned
+     * @param remainingCredits the credits still needed, 0 once the requirement is met
+     * @param gpa the grade point average
+     * @param eligible true if the student meets both the credit and the GPA requirement
+     */
+    public record Audit(String studentId, int earnedCredits, int remainingCredits, double gpa, boolean eligible) {
+    }
+
+    /**
+     * What a {@link #recompute(boolean)} found.
+     * @param students the number of students checked
+     * @param eligible the number of students that meet the requirements, counted from the recomputed totals
+     * @param mismatches the students whose running totals did not match, with the recomputed totals
+     * @param nanos the time the recompute took
+     */
+    public record Recompute(int students, int eligible, List<Mismatch> mismatches, long nanos) {
+        @Override
+        public String toString() {
+            return String.format("%,d students, %,d eligible, %,d mismatches in %,d ms", students, eligible,
+                    mismatches.size(), nanos / 1_000_000);
+        }
+    }
+
+    /**
+     * A student whose running totals were wrong.
+     * @param studentId the id of the student
+     * @param recomputed the totals added up from the transcript
+     */
+    public record Mismatch(String studentId, Transcript.Totals recomputed) {
+    }
+
+    /**
+     * constructor, requires 120 credits and a 2.0 GPA
+     * @param school takes in the school whose students are audited
+     */
+    public DegreeAudit(SchoolDataBase school) {
+        this(school, 120, 2.0);
+    }
+
+    /**
+     * constructor
+     * @param school takes in the school whose students are audited
+     * @param requiredCredits takes in the credits needed to graduate
+     * @param minimumGpa takes in the lowest GPA that can graduate
+     */
+    public DegreeAudit(SchoolDataBase school, int requiredCredits, double minimumGpa) {
+        if(requiredCredits < 0) throw new IllegalArgumentException("Required credits must not be negative");
+        this.school = school;
+        this.requiredCredits = requiredCredits;
+        this.minimumGpa = minimumGpa;
+        //count the students that already meet the requirements, such as those of a school loaded from a snapshot
+        for(Person person : school.people()) {
+            if(person instanceof Student student && eligible(student.getTranscript().totals()))
+                eligible.incrementAndGet();
+        }
+    }
+
+    /**
+     * Posts the final grade of a student in a course, or corrects the grade already posted for that course and
+     * term. The credits of the course are copied into the transcript, so changing them later does not change
+     * grades already posted.
+     * @param student takes in the student
+     * @param course takes in the course
+     * @param term takes in the term the course was taken in
+     * @param grade takes in the final grade
+     * @return returns the audit of the student after the post
+     */
+    public Audit postGrade(Student student, Course course, Term term, Grade grade) {
+        Transcript.Entry entry = new Transcript.Entry(course.getKey(), course.getNumOfCredits(), term, grade);
+        Transcript.Posted posted = student.getTranscript().post(entry);
+        school.listener().gradePosted(student, entry);
+        gradesPosted.increment();
+        boolean was = eligible(posted.before()), is = eligible(posted.after());
+        if(was != is) eligible.addAndGet(is ? 1 : -1);
+        return audit(student.getId(), posted.after());
+    }
+
+    /**
+     *
+     * @param student takes in the student to audit
+     * @return returns the standing of the student, read from the running totals
+     */
+    public Audit audit(Student student) {
+        return audit(student.getId(), student.getTranscript().totals());
+    }
+
+    private Audit audit(String id, Transcript.Totals totals) {
+        return new Audit(id, totals.earnedCredits(), Math.max(0, requiredCredits - totals.earnedCredits()),
+                totals.gpa(), eligible(totals));
+    }
+
+    private boolean eligible(Transcript.Totals totals) {
+        return totals.earnedCredits() >= requiredCredits && totals.gpa() >= minimumGpa;
+    }
+
+    /**
+     *
+     * @return returns the credits needed to graduate
+     */
+    public int getRequiredCredits() {
+        return requiredCredits;
+    }
+
+    /**
+     *
+     * @return returns the number of students that meet the requirements, from the running totals
+     */
+    public int eligibleCount() {
+        return eligible.get();
+    }
+
+    /**
+     *
+     * @return returns the number of grades posted through this audit
+     */
+    public long gradesPosted() {
+        return gradesPosted.sum();
+    }
+
+    /**
+     * Adds up the transcript of every student of the school again, in parallel on the common fork-join pool, and
+     * compares the sums with the running totals. The count of eligible students is only exact when no grades are
+     * posted during the recompute.
+     * @param repair takes in whether to replace wrong running totals and the eligible count with the recomputed
+     * ones
+     * @return returns what the recompute found
+     */
+    public Recompute recompute(boolean repair) {
+        long start = System.nanoTime();
+        Student[] students = school.people().stream().filter(person -> person instanceof Student)
+                .toArray(Student[]::new);
+        Part part = ForkJoinPool.commonPool().invoke(new Check(students, 0, students.length, repair));
+        if(repair) eligible.set(part.eligible);
+        return new Recompute(students.length, part.eligible, List.copyOf(part.mismatches), System.nanoTime() - start);
+    }
+
+    private static final class Part {
+        int eligible;
+        final List<Mismatch> mismatches = new ArrayList<>();
+    }
+
+    private final class Check extends RecursiveTask<Part> {
+        private static final long serialVersionUID = 1L;
+        private final Student[] students;
+        private final int from, to;
+        private final boolean repair;
+
+        Check(Student[] students, int from, int to, boolean repair) {
+            this.students = students;
+            this.from = from;
+            this.to = to;
+            this.repair = repair;
+        }
+
+        @Override
+        protected Part compute() {
+            if(to - from > RECOMPUTE_CHUNK) {
+                int middle = (from + to) >>> 1;
+                Check left = new Check(students, from, middle, repair);
+                left.fork();
+                Part part = new Check(students, middle, to, repair).compute();
+                Part other = left.join();
+                part.eligible += other.eligible;
+                part.mismatches.addAll(other.mismatches);
+                return part;
+            }
+            Part part = new Part();
+            for(int i = from; i < to; i++) {
+                Transcript transcript = students[i].getTranscript();
+                Transcript.Totals recomputed = transcript.verify(repair);
+                if(recomputed != null) part.mismatches.add(new Mismatch(students[i].getId(), recomputed));
+                if(eligible(recomputed != null ? recomputed : transcript.totals())) part.eligible++;
+            }
+            return part;
+        }
+    }
+}
@@ -1,16 +1,20 @@
 package miniprojects.schooldb;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * This class creates a Department of the School
+ * This class creates a Department of the School. Every department has its own course catalog and instructors, so
+ * threads working on different departments never touch the same state.
  * @author Michael Waller
  * @since 7/31/2022
  */
 public class Department {
     protected String name;
-    private static Map<Level, TreeSet<Course>> courseCatalog;
-    private static List<Instructor> instructors = new ArrayList<>();
+    private final CourseCatalog courseCatalog = new CourseCatalog();
+    private final Map<String, Instructor> instructors = new ConcurrentHashMap<>();
+    private final WorkloadIndex workloadIndex = new WorkloadIndex();
+    private volatile MutationListeners listeners;
 
     /**
      * constructor
@@ -18,31 +22,147 @@ public class Department {
      */
     public Department(String name) {
         this.name = name;
-        courseCatalog = new HashMap<>();
-        Arrays.stream(Level.values()).forEach(level -> courseCatalog.put(level, new TreeSet<>()));
     }
 
     /**
-     * this method adds a course to the course catalog for this department
+     * this method adds a course to the course catalog for this department. A course with the same name and course
+     * number as one already in the catalog is ignored.
      * @param course takes in the course to be added
      */
     public void addCourse(Course course) {
-        //      for(LinkedHashSet<Course> courses : courseCatalog.values()) {if(courses.contains(course)) return;}
-      if(courseCatalog.values().stream().anyMatch(values -> values.contains(course))) return;
+        if(courseCatalog.add(course)) getListener().courseAdded(this, course);
+    }
+
+    /**
+     * re-indexes a course of this department after its number of credits changed
+     * @param course takes in the course that changed
+     */
+    void updateCourse(Course course) {
+        courseCatalog.update(course);
+        getListener().courseChanged(this, course);
+    }
+
+    /**
+     * re-indexes a course of this department under its new key after its name changed
+     * @param course takes in the course that was renamed
+     * @param old takes in the key the course had before
+     */
+    void renameCourse(Course course, CourseKey old) {
+        if(courseCatalog.rename(course, old)) getListener().courseRenamed(this, course, old);
+    }
 
-      if(course.getCourseNumber() < 500) courseCatalog.get(Level.Undergrad).add(course);
-        else if(course.getCourseNumber() >= 500) courseCatalog.get(Level.Grad).add(course);
-        else courseCatalog.get(Level.Non_Degree).add(course);
+    /**
+     * takes a course out of the course catalog for this department
+     * @param course takes in the course to be removed
+     */
+    void removeCourse(Course course) {
+        if(courseCatalog.remove(course)) getListener().courseRemoved(this, course);
+    }
 
+    /**
+     *
+     * @return returns the course catalog, which answers prefix, course number and credit queries
+     */
+    public CourseCatalog getCatalog() {
+        return courseCatalog;
     }
 
+    /**
+     *
+     * @param level takes in the level of study
+     * @return returns the courses at that level, sorted by course number
+     */
+    public Collection<Course> getCourses(Level level) {
+        return courseCatalog.byLevel(level);
+    }
+
+    /**
+     * adds an instructor to this department. Adding the same instructor twice does nothing.
+     * @param instructor takes in the instructor to be added
+     */
     public void addInstructor(Instructor instructor) {
-        instructors.add(instructor);
+        if(instructors.putIfAbsent(instructor.getId(), instructor) == null) workloadIndex.add(instructor);
     }
 
+    /**
+     * takes an instructor out of this department
+     * @param instructor takes in the instructor to be removed
+     */
+    void removeInstructor(Instructor instructor) {
+        if(instructors.remove(instructor.getId(), instructor)) workloadIndex.remove(instructor);
+    }
+
+    /**
+     *
+     * @return returns the instructors of this department sorted by how much they teach
+     */
+    public WorkloadIndex getWorkloadIndex() {
+        return workloadIndex;
+    }
 
+    /**
+     *
+     * @return returns a read-only view of the instructors of this department
+     */
+    public Collection<Instructor> getInstructors() {
+        return Collections.unmodifiableCollection(instructors.values());
+    }
+
+    /**
+     *
+     * @return returns the listener told about changes to this department, its courses and their classes
+     */
+    MutationListener getListener() {
+        MutationListeners listeners = this.listeners;
+        return listeners == null ? MutationListener.NONE : listeners.active();
+    }
+
+    /**
+     * sets the listeners told about changes to this department, its courses and their classes
+     * @param listeners takes in the listeners of the school the department is registered with
+     */
+    void setListeners(MutationListeners listeners) {
+        this.listeners = Objects.requireNonNull(listeners);
+    }
+
+    /**
+     *
+     * @return returns the name of the department
+     */
+    public String getName() {
+        return name;
+    }
+
+
+    /**
+     * The levels of study. A course's level follows from its course number, numbers below 500 are undergraduate
+     * and the rest are graduate. No course number range is set aside for non-degree courses.
+     */
     public enum Level {
-        Undergrad, Grad, Non_Degree
+        Undergrad(Integer.MIN_VALUE, 499), Grad(500, Integer.MAX_VALUE), Non_Degree(0, -1);
+
+        private final int lowestCourseNumber, highestCourseNumber;
+
+        Level(int lowestCourseNumber, int highestCourseNumber) {
+            this.lowestCourseNumber = lowestCourseNumber;
+            this.highestCourseNumber = highestCourseNumber;
+        }
+
+        /**
+         *
+         * @return returns the lowest course number at this level
+         */
+        public int lowestCourseNumber() {
+            return lowestCourseNumber;
+        }
+
+        /**
+         *
+         * @return returns the highest course number at this level
+         */
+        public int highestCourseNumber() {
+            return highestCourseNumber;
+        }
     }
     public void printCourseLevels() {
         Arrays.stream(Level.values()).forEach(System.out::println);
@@ -55,7 +175,7 @@ public class Department {
                 '}';
     }
 
-    public static void main(String[] args) throws InvalidAgeException {
+    public static void main(String[] args) {
         Department firstDeparment = new Department("Math");
         System.out.println(firstDeparment);
         firstDeparment.printCourseLevels();
@@ -63,10 +183,9 @@ public class Department {
         Course.Clazz f = course.new Clazz("CAS");
 //        System.out.println(course.listOfClasses());
         for(int i = 0; i < 100; i++) {
-            try {
-                f.addStudent(new Student("Michael", "Joe", LocalDate.of(2004, 3, 21), Person.Gender.MALE));
-            }catch (IllegalStateException illegalStateException) {
-                System.out.println(illegalStateException.getMessage());
+            EnrollmentResult result = f.addStudent(new Student("Michael", "Joe", LocalDate.of(2004, 3, 21), Person.Gender.MALE));
+            if(result == EnrollmentResult.REJECTED) {
+                System.out.println("Queue full");
                 break;
             }
         }
@@ -9,4 +9,12 @@ public class Employee extends Person {
     Employee(String firstName, String lastName, LocalDate dob,Gender gender)  {
         super(firstName, lastName, dob, gender);
     }
+
+    Employee(String firstName, String lastName, LocalDate dob, Gender gender, String id) {
+        super(firstName, lastName, dob, gender, id);
+    }
+
+    Employee(String id, String firstName, String lastName, LocalDate dob, Gender gender) {
+        super(id, firstName, lastName, dob, gender);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,677 @@
+package miniprojects.schooldb;
+
+import miniprojects.schooldb.Course.Clazz;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32C;
+
+/**
+ * An append-only write-ahead log of the changes made to a school between snapshots. The log listens to the school,
+ * encodes every change into an in-memory batch, and a background thread writes each batch with one sequential write
+ * and one fsync, so a storm of enrollments costs a few writes per batch instead of one per enrollment. Callers that
+ * need a change on disk before they answer call {@link #sync()}.
+ * <br>
+ * To recover, load the last snapshot, {@link #replay(Path, SchoolDataBase)} the log into it, then open the log
+ * again, or let {@link #recover(Path, Path)} do all three. {@link #compact(Path)} writes a new snapshot and empties
+ * the log without stopping enrollment: it starts a new segment next to the log, which takes every change from then
+ * on, writes the snapshot, and then moves the new segment over the old log. Replaying a change that is already in the
+ * snapshot does nothing, so the changes made while the snapshot is being written can be in both. A record naming a
+ * course, class or student the school does not have means the log does not belong to the snapshot, and replay
+ * throws instead of dropping the change.
+ * <br>
+ * Every record is its length, a CRC32C checksum and a body made of an op code and its fields. A record that was cut
+ * off by a crash fails its checksum, so replay stops there and reopening the log cuts it off.
+ */
+public final class EnrollmentLog implements MutationListener, Closeable {
+    private static final byte DEPARTMENT = 1, PERSON = 2, COURSE = 3, CLASS = 4, ENROLL = 5, DROP = 6, ASSIGN = 7,
+            TIMES = 8, MOVE = 9, CREDITS = 10, RENAME = 11, UNCOURSE = 12, ROOM = 13, MAJOR = 14, GRADE = 15;
+    private static final byte STUDENT = 0, INSTRUCTOR = 1;
+    private static final byte COMPACT_ROSTER = 1, PRIORITY_WAITLIST = 2;
+    private static final int HEADER = 8;
+    private static final ThreadLocal<ByteBuffer> SCRATCH = ThreadLocal.withInitial(() -> ByteBuffer.allocate(1024));
+
+    private final SchoolDataBase school;
+    private final Path file;
+    private final Object lock = new Object();
+    private final Thread flusher;
+    //the segment batches are written to, the new segment while a compaction runs
+    private FileChannel channel;
+    private ByteBuffer pending, flushing;
+    private long appended, durable;
+    //paused holds appends back while a failed compaction puts its segment back into the log
+    private boolean compacting, paused, closed;
+    private IOException failure;
+
+    private EnrollmentLog(SchoolDataBase school, Path file, FileChannel channel, int batchBytes) {
+        this.school = school;
+        this.file = file;
+        this.channel = channel;
+        pending = ByteBuffer.allocateDirect(batchBytes);
+        flushing = ByteBuffer.allocateDirect(batchBytes);
+        flusher = new Thread(this::flushLoop, "enrollment-log-flusher");
+        flusher.setDaemon(true);
+    }
+
+    /**
+     * Opens the log for appending and starts listening to the school. A record cut off at the end of the file by a
+     * crash is removed first, so replay the log before opening it.
+     * @param school takes in the school whose changes are logged
+     * @param file takes in the log file, which is created if it does not exist
+     * @param batchBytes takes in the size of a batch buffer, appends wait when a whole batch is waiting for disk
+     * @return returns the open log
+     * @throws IOException when the file cannot be opened, or a compaction that did not finish left a new segment
+     * next to it, which {@link #recover(Path, Path)} folds back in
+     */
+    public static EnrollmentLog open(SchoolDataBase school, Path file, int batchBytes) throws IOException {
+        if(Files.exists(segment(file)))
+            throw new IOException("An unfinished compaction left " + segment(file) + ", recover the log first");
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long valid = validLength(channel);
+        channel.truncate(valid);
+        channel.position(valid);
+        EnrollmentLog log = new EnrollmentLog(school, file, channel, batchBytes);
+        log.flusher.start();
+        school.addListener(log);
+        return log;
+    }
+
+    /**
+     * opens the log with 1 MB batches
+     * @param school takes in the school whose changes are logged
+     * @param file takes in the log file
+     * @return returns the open log
+     * @throws IOException when the file cannot be opened
+     */
+    public static EnrollmentLog open(SchoolDataBase school, Path file) throws IOException {
+        return open(school, file, 1 << 20);
+    }
+
+    /**
+     * Loads the snapshot when there is one, replays the log on top of it and opens the log again. When a compaction
+     * did not finish, the new segment it left is replayed after the log, and the recovered school is written to the
+     * snapshot so the log can start out empty.
+     * @param snapshot takes in the snapshot file
+     * @param file takes in the log file
+     * @return returns the open log, the recovered school is {@link #school()}
+     * @throws IOException when a file cannot be read, or the snapshot cannot be written
+     */
+    public static EnrollmentLog recover(Path snapshot, Path file) throws IOException {
+        SchoolDataBase school = Files.exists(snapshot) ? SchoolSnapshot.load(snapshot) : new SchoolDataBase();
+        if(Files.exists(file)) replay(file, school);
+        Path segment = segment(file);
+        if(Files.exists(segment)) {
+            replay(segment, school);
+            SchoolSnapshot.write(school, snapshot);
+            Files.deleteIfExists(file);
+            Files.delete(segment);
+        }
+        return open(school, file);
+    }
+
+    /**
+     * @return returns the new segment a compaction of the log writes to
+     */
+    private static Path segment(Path file) {
+        return file.resolveSibling(file.getFileName() + ".next");
+    }
+
+    /**
+     *
+     * @return returns the school whose changes are logged
+     */
+    public SchoolDataBase school() {
+        return school;
+    }
+
+    /**
+     * waits until every change logged so far is on disk
+     * @throws IOException when writing the log failed
+     */
+    public void sync() throws IOException {
+        synchronized(lock) {
+            long target = appended;
+            lock.notifyAll();
+            try {
+                while(durable < target && failure == null) lock.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the log");
+            }
+            if(failure != null) throw failure;
+        }
+    }
+
+    /**
+     * Writes a snapshot of the school and empties the log. Changes go on being logged while the snapshot is being
+     * written: they go to a new segment, which replaces the log once the snapshot is on disk. When the snapshot
+     * cannot be written, the new segment is put back at the end of the log and nothing is lost.
+     * @param snapshot takes in the snapshot file to write
+     * @throws IOException when the snapshot or the log cannot be written
+     */
+    public void compact(Path snapshot) throws IOException {
+        Path segment = segment(file);
+        FileChannel old;
+        long rotated;
+        synchronized(lock) {
+            try {
+                while(compacting) lock.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the log");
+            }
+            if(failure != null) throw failure;
+            //batches taken by the flusher from here on go to the new segment, the ones before to the log
+            old = channel;
+            channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            rotated = appended;
+            compacting = true;
+        }
+        boolean done = false;
+        try {
+            //every change logged before the new segment started is in memory, so the snapshot has it
+            SchoolSnapshot.write(school, snapshot);
+            awaitDurable(rotated);
+            Files.move(segment, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            old.close();
+            done = true;
+        } finally {
+            if(!done) restore(old, segment);
+            synchronized(lock) {
+                compacting = false;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void awaitDurable(long target) throws IOException {
+        synchronized(lock) {
+            try {
+                while(durable < target && failure == null) lock.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the log");
+            }
+            if(failure != null) throw failure;
+        }
+    }
+
+    /**
+     * puts the new segment of a compaction that failed back at the end of the log, pausing appends while it copies
+     */
+    private void restore(FileChannel old, Path segment) throws IOException {
+        synchronized(lock) {
+            paused = true;
+            try {
+                while(durable < appended && failure == null) lock.wait();
+                FileChannel next = channel;
+                next.force(false);
+                for(long position = 0, size = next.size(); position < size; )
+                    position += old.transferFrom(next.position(position), old.size(), size - position);
+                old.force(false);
+                channel = old;
+                next.close();
+                Files.delete(segment);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while restoring the log");
+            } finally {
+                paused = false;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * stops listening to the school, writes what is left and closes the file
+     * @throws IOException when the last batch cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        school.removeListener(this);
+        synchronized(lock) {
+            if(closed) return;
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized(lock) {
+            channel.close();
+        }
+        if(failure != null) throw failure;
+    }
+
+    private void flushLoop() {
+        while(true) {
+            long upTo;
+            FileChannel target;
+            synchronized(lock) {
+                try {
+                    while(pending.position() == 0 && !closed) lock.wait();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if(pending.position() == 0) return;
+                ByteBuffer full = pending;
+                pending = flushing;
+                flushing = full;
+                upTo = appended;
+                target = channel;
+                lock.notifyAll();
+            }
+            try {
+                flushing.flip();
+                while(flushing.hasRemaining()) target.write(flushing);
+                target.force(false);
+            } catch (IOException e) {
+                synchronized(lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                return;
+            } finally {
+                flushing.clear();
+            }
+            synchronized(lock) {
+                durable = upTo;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void append(ByteBuffer record) {
+        record.flip();
+        int length = record.remaining() - HEADER;
+        CRC32C crc = new CRC32C();
+        crc.update(record.slice(HEADER, length));
+        record.putInt(0, length).putInt(4, (int) crc.getValue());
+        synchronized(lock) {
+            try {
+                while((paused || pending.remaining() < record.remaining()) && failure == null && !closed) {
+                    if(!paused && pending.position() == 0)
+                        throw new IllegalArgumentException("Record is larger than a log batch");
+                    lock.notifyAll();
+                    lock.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new InterruptedIOException("Interrupted while logging"));
+            }
+            if(failure != null) throw new UncheckedIOException(failure);
+            if(closed) return;
+            pending.put(record);
+            appended++;
+            lock.notifyAll();
+        }
+    }
+
+    private static ByteBuffer start(byte op) {
+        ByteBuffer record = SCRATCH.get().clear();
+        return record.position(HEADER).put(op);
+    }
+
+    private static ByteBuffer put(ByteBuffer record, String value) {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        //leave room for the fixed size fields that follow a string
+        return ensure(record, bytes.length + 2 + 16).putShort((short) bytes.length).put(bytes);
+    }
+
+    private static ByteBuffer ensure(ByteBuffer record, int bytes) {
+        if(record.remaining() >= bytes) return record;
+        ByteBuffer bigger = ByteBuffer.allocate(Math.max(record.capacity() * 2, record.position() + bytes));
+        bigger.put(record.flip());
+        SCRATCH.set(bigger);
+        return bigger;
+    }
+
+    private static ByteBuffer putPerson(ByteBuffer record, Person person) {
+        record.put(person instanceof Instructor ? INSTRUCTOR : STUDENT);
+        record = put(record, person.getId());
+        record = put(record, person.getFirstName());
+        record = put(record, person.getLastName());
+        record.putInt((int) person.getDob().toEpochDay()).put((byte) person.getGender().ordinal());
+        Department department = person instanceof Instructor instructor ? instructor.getDepartment() : null;
+        return put(record, department == null ? null : department.getName());
+    }
+
+    private static ByteBuffer putCourse(ByteBuffer record, CourseKey key) {
+        return put(record, key.name()).putInt(key.courseNumber());
+    }
+
+    private static ByteBuffer putClass(ByteBuffer record, Clazz clazz) {
+        return put(putCourse(record, clazz.getCourse().getKey()), clazz.getSection());
+    }
+
+    @Override
+    public void departmentRegistered(Department department) {
+        append(put(start(DEPARTMENT), department.getName()));
+    }
+
+    @Override
+    public void personRegistered(Person person) {
+        if(person instanceof Student || person instanceof Instructor) append(putPerson(start(PERSON), person));
+    }
+
+    @Override
+    public void courseAdded(Department department, Course course) {
+        ByteBuffer record = put(put(start(COURSE), department.getName()), course.getName());
+        append(record.putInt(course.getCourseNumber()).putInt(course.getNumOfCredits()));
+    }
+
+    @Override
+    public void courseChanged(Department department, Course course) {
+        append(putCourse(start(CREDITS), course.getKey()).putInt(course.getNumOfCredits()));
+    }
+
+    @Override
+    public void courseRenamed(Department department, Course course, CourseKey old) {
+        append(put(putCourse(start(RENAME), old), course.getName()));
+    }
+
+    @Override
+    public void courseRemoved(Department department, Course course) {
+        append(putCourse(put(start(UNCOURSE), department.getName()), course.getKey()));
+    }
+
+    @Override
+    public void classAdded(Clazz clazz) {
+        ByteBuffer record = putClass(start(CLASS), clazz).putInt(clazz.getCapacity()).putInt(clazz.getWaitlistCapacity());
+        record = put(record, clazz.getInstructor() == null ? null : clazz.getInstructor().getId());
+        append(record.put((byte) ((clazz.hasCompactRoster() ? COMPACT_ROSTER : 0)
+                | (clazz.hasPriorityWaitlist() ? PRIORITY_WAITLIST : 0))));
+    }
+
+    @Override
+    public void studentEnrolled(Clazz clazz, Student student, EnrollmentResult result) {
+        if(result == EnrollmentResult.ENROLLED || result == EnrollmentResult.WAITLISTED) append(putPerson(putClass(start(ENROLL), clazz), student));
+    }
+
+    @Override
+    public void studentDropped(Clazz clazz, Student student) {
+        append(put(putClass(start(DROP), clazz), student.getId()));
+    }
+
+    @Override
+    public void studentMoved(Clazz from, Clazz to, Student student) {
+        append(putClass(put(putClass(start(MOVE), from), student.getId()), to));
+    }
+
+    @Override
+    public void meetingTimesChanged(Clazz clazz) {
+        List<MeetingTime> meetings = clazz.getMeetingTimes();
+        ByteBuffer record = putClass(start(TIMES), clazz).putInt(meetings.size());
+        for(MeetingTime meeting : meetings) record = ensure(record, 4).putInt(meeting.encode());
+        append(record);
+    }
+
+    @Override
+    public void instructorAssigned(Clazz clazz, Instructor instructor) {
+        append(putPerson(putClass(start(ASSIGN), clazz), instructor).put((byte) 1));
+    }
+
+    @Override
+    public void instructorRemoved(Clazz clazz, Instructor instructor) {
+        append(putPerson(putClass(start(ASSIGN), clazz), instructor).put((byte) 0));
+    }
+
+    @Override
+    public void roomAssigned(Clazz clazz) {
+        Room room = clazz.getRoom();
+        ByteBuffer record = put(putClass(start(ROOM), clazz), room == null ? null : room.name());
+        append(record.putInt(room == null ? 0 : room.capacity()));
+    }
+
+    @Override
+    public void majorChanged(Student student) {
+        Department major = student.getMajor();
+        append(put(put(start(MAJOR), student.getId()), major == null ? null : major.getName()));
+    }
+
+    @Override
+    public void gradePosted(Student student, Transcript.Entry entry) {
+        ByteBuffer record = putCourse(put(start(GRADE), student.getId()), entry.course()).putInt(entry.credits());
+        append(record.putInt(entry.term().year()).put((byte) entry.term().season().ordinal())
+                .put((byte) entry.grade().ordinal()));
+    }
+
+    /**
+     * Applies every complete record in the log to the school. Changes the school already has are skipped.
+     * @param file takes in the log file
+     * @param school takes in the school to apply the changes to
+     * @return returns the number of records read
+     * @throws IOException when the log cannot be read
+     * @throws IllegalStateException when a record names a course, class or student the school does not have, which
+     * means the log was not written on top of the school's snapshot
+     */
+    public static int replay(Path file, SchoolDataBase school) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int records = 0;
+            ByteBuffer body;
+            while((body = next(buffer)) != null) {
+                apply(body, school);
+                records++;
+            }
+            return records;
+        }
+    }
+
+    /**
+     * reads the next record
+     * @return returns the body of the record, or null at the end of the log or at a damaged record
+     */
+    private static ByteBuffer next(ByteBuffer buffer) {
+        if(buffer.remaining() < HEADER) return null;
+        int length = buffer.getInt(buffer.position()), checksum = buffer.getInt(buffer.position() + 4);
+        if(length <= 0 || buffer.remaining() - HEADER < length) return null;
+        ByteBuffer body = buffer.slice(buffer.position() + HEADER, length);
+        CRC32C crc = new CRC32C();
+        crc.update(body.duplicate());
+        if((int) crc.getValue() != checksum) return null;
+        buffer.position(buffer.position() + HEADER + length);
+        return body;
+    }
+
+    private static long validLength(FileChannel channel) throws IOException {
+        if(channel.size() == 0) return 0;
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        while(next(buffer) != null) { }
+        return buffer.position();
+    }
+
+    private static String string(ByteBuffer body) {
+        byte[] bytes = new byte[body.getShort() & 0xFFFF];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void apply(ByteBuffer body, SchoolDataBase school) {
+        switch (body.get()) {
+            case DEPARTMENT -> {
+                String name = string(body);
+                if(school.findDepartment(name).isEmpty()) school.registerDepartment(new Department(name));
+            }
+            case PERSON -> person(body, school);
+            case COURSE -> {
+                Department department = school.findDepartment(string(body)).orElse(null);
+                String name = string(body);
+                int number = body.getInt(), credits = body.getInt();
+                Course course = findCourse(school, new CourseKey(name, number));
+                if(course == null) school.registerCourse(new Course(name, number, credits, department));
+                else if(department != null && department.getCatalog().get(course.getKey()) != course)
+                    course.setDepartment(department);
+            }
+            case CREDITS -> {
+                Course course = course(school, body);
+                int credits = body.getInt();
+                if(course.getNumOfCredits() != credits) course.setNumOfCredits(credits);
+            }
+            case RENAME -> {
+                CourseKey old = new CourseKey(string(body), body.getInt());
+                String name = string(body);
+                Course course = findCourse(school, old);
+                if(course != null) course.setName(name);
+                else if(findCourse(school, new CourseKey(name, old.courseNumber())) == null)
+                    throw new IllegalStateException("The log renames " + old + ", which the school does not have");
+            }
+            case UNCOURSE -> {
+                Department department = school.findDepartment(string(body)).orElse(null);
+                Course course = course(school, body);
+                if(department != null && department.getCatalog().get(course.getKey()) == course)
+                    department.removeCourse(course);
+            }
+            case CLASS -> {
+                Course course = course(school, body);
+                String section = string(body);
+                int capacity = body.getInt(), waitlistCapacity = body.getInt();
+                Instructor instructor = school.findInstructor(string(body)).orElse(null);
+                byte flags = body.get();
+                if(findClass(course, section) != null) return;
+                if((flags & PRIORITY_WAITLIST) != 0) school.registerClass(course.new Clazz(section, instructor, capacity,
+                        waitlistCapacity, school.reloadedPriority()));
+                else school.registerClass(course.new Clazz(section, instructor, capacity, waitlistCapacity,
+                        (flags & COMPACT_ROSTER) != 0 ? school : null));
+            }
+            case ENROLL -> {
+                Clazz clazz = clazz(school, body);
+                if(!(person(body, school) instanceof Student student))
+                    throw new IllegalStateException("The log enrolls someone who is not a student in " + clazz.getKey());
+                if(!clazz.isSeatedOrWaiting(student)) clazz.enroll(student);
+            }
+            case DROP -> {
+                Clazz clazz = clazz(school, body);
+                clazz.removeStudent(student(school, body));
+            }
+            case MOVE -> {
+                Clazz from = clazz(school, body);
+                Student student = student(school, body);
+                clazz(school, body).moveHere(student, from);
+            }
+            case TIMES -> {
+                Clazz clazz = clazz(school, body);
+                MeetingTime[] meetings = new MeetingTime[body.getInt()];
+                for(int i = 0; i < meetings.length; i++) meetings[i] = MeetingTime.decode(body.getInt());
+                if(!clazz.getMeetingTimes().equals(List.of(meetings))) clazz.setMeetingTimes(List.of(meetings));
+            }
+            case ASSIGN -> {
+                Clazz clazz = clazz(school, body);
+                Person person = person(body, school);
+                boolean teaches = body.get() == 1;
+                if(!(person instanceof Instructor instructor))
+                    throw new IllegalStateException("The log assigns someone who is not an instructor to " + clazz.getKey());
+                if(teaches && !instructor.teachesClass(clazz)) instructor.addClass(clazz);
+                else if(!teaches) instructor.removeClass(clazz);
+            }
+            case ROOM -> {
+                Clazz clazz = clazz(school, body);
+                String name = string(body);
+                int capacity = body.getInt();
+                Room room = name.isEmpty() ? null : new Room(name, capacity);
+                if(!Objects.equals(clazz.getRoom(), room)) clazz.setRoom(room);
+            }
+            case MAJOR -> {
+                Student student = student(school, body);
+                String name = string(body);
+                Department major = name.isEmpty() ? null : school.findDepartment(name).orElseThrow(() ->
+                        new IllegalStateException("The log refers to department " + name
+                                + ", which the school does not have"));
+                if(student.getMajor() != major) student.setMajor(major);
+            }
+            case GRADE -> {
+                Student student = student(school, body);
+                CourseKey course = new CourseKey(string(body), body.getInt());
+                int credits = body.getInt();
+                Term term = new Term(body.getInt(), Term.Season.values()[body.get()]);
+                //posting the same course and term again replaces the grade, so a grade the snapshot has changes nothing
+                student.getTranscript().post(new Transcript.Entry(course, credits, term, Grade.values()[body.get()]));
+            }
+            default -> throw new IllegalStateException("Unknown log record");
+        }
+    }
+
+    private static Person person(ByteBuffer body, SchoolDataBase school) {
+        byte kind = body.get();
+        String id = string(body), firstName = string(body), lastName = string(body);
+        LocalDate dob = LocalDate.ofEpochDay(body.getInt());
+        Person.Gender gender = Person.Gender.values()[body.get()];
+        Department department = school.findDepartment(string(body)).orElse(null);
+        Person existing = school.findPerson(id).orElse(null);
+        if(existing != null) return existing;
+        if(kind == INSTRUCTOR) {
+            Instructor instructor = new Instructor(firstName, lastName, dob, gender, department, id);
+            school.registerInstructor(instructor);
+            return instructor;
+        }
+        Student student = new Student(firstName, lastName, dob, gender, id);
+        school.registerStudent(student);
+        return student;
+    }
+
+    private static Course findCourse(SchoolDataBase school, CourseKey key) {
+        Course course = school.findCourse(key).orElse(null);
+        if(course != null) return course;
+        for(Department department : school.departments()) {
+            course = department.getCatalog().get(key);
+            if(course != null) return course;
+        }
+        return null;
+    }
+
+    /**
+     * @return returns the course a record names
+     * @throws IllegalStateException when the school does not have the course
+     */
+    private static Course course(SchoolDataBase school, ByteBuffer body) {
+        CourseKey key = new CourseKey(string(body), body.getInt());
+        Course course = findCourse(school, key);
+        if(course == null) throw new IllegalStateException("The log refers to " + key + ", which the school does not have");
+        return course;
+    }
+
+    /**
+     * @return returns the class a record names
+     * @throws IllegalStateException when the school does not have the class
+     */
+    private static Clazz clazz(SchoolDataBase school, ByteBuffer body) {
+        Course course = course(school, body);
+        String section = string(body);
+        Clazz clazz = findClass(course, section);
+        if(clazz == null)
+            throw new IllegalStateException("The log refers to " + course.getKey() + " " + section
+                    + ", which the school does not have");
+        return clazz;
+    }
+
+    /**
+     * @return returns the student a record names by id
+     * @throws IllegalStateException when the school does not have the student
+     */
+    private static Student student(SchoolDataBase school, ByteBuffer body) {
+        String id = string(body);
+        return school.findStudent(id).orElseThrow(() ->
+                new IllegalStateException("The log refers to student " + id + ", which the school does not have"));
+    }
+
+    private static Clazz findClass(Course course, String section) {
+        for(Clazz clazz : course.listOfClasses()) if(clazz.getSection().equals(section)) return clazz;
+        return null;
+    }
+}
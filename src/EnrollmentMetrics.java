@@ -0,0 +1,226 @@
+package miniprojects.schooldb;
+
+import miniprojects.schooldb.Course.Clazz;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms for the enrollment hot paths. Counting is off until {@link #setEnabled(boolean)}
+ * turns it on, and while it is off every hook is a single read of a volatile flag. Counters are {@link LongAdder}s,
+ * which spread concurrent increments over cells instead of fighting over one value.
+ * <br>
+ * The counters and histograms belong to the JVM, not to a school: every school in the process adds to the same
+ * numbers. Only the fill of the classes is worked out per school. Numbers are pulled, either with
+ * {@link #snapshot(SchoolDataBase)} or through JMX, where {@link #register()} publishes the counters once and
+ * {@link #register(SchoolDataBase, String)} publishes the classes of a school. Counters only ever grow, so rates come
+ * from comparing two snapshots.
+ */
+public final class EnrollmentMetrics {
+    private static volatile boolean enabled;
+
+    private static final LongAdder ENROLLED = new LongAdder();
+    private static final LongAdder WAITLISTED = new LongAdder();
+    private static final LongAdder REJECTED = new LongAdder();
+    private static final LongAdder CONFLICTS = new LongAdder();
+    private static final LongAdder DROPPED = new LongAdder();
+    private static final LongAdder PROMOTED = new LongAdder();
+    private static final LongAdder MOVED = new LongAdder();
+    private static final LongAdder IDS_CREATED = new LongAdder();
+    private static final LatencyHistogram ENROLL_LATENCY = new LatencyHistogram();
+    private static final LatencyHistogram CATALOG_LOOKUP_LATENCY = new LatencyHistogram();
+
+    private EnrollmentMetrics() {
+    }
+
+    /**
+     *
+     * @return returns true if the hot paths are being counted
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * turns counting on or off, the numbers counted so far are kept
+     * @param enabled takes in whether to count
+     */
+    public static void setEnabled(boolean enabled) {
+        EnrollmentMetrics.enabled = enabled;
+    }
+
+    static void enrolled(EnrollmentResult result) {
+        switch (result) {
+            case ENROLLED -> ENROLLED.increment();
+            case WAITLISTED -> WAITLISTED.increment();
+            case REJECTED -> REJECTED.increment();
+            case CONFLICT -> CONFLICTS.increment();
+        }
+    }
+
+    static void enrolled(EnrollmentResult result, long nanos) {
+        enrolled(result);
+        ENROLL_LATENCY.record(nanos);
+    }
+
+    static void dropped() {
+        if(enabled) DROPPED.increment();
+    }
+
+    static void promoted() {
+        if(enabled) PROMOTED.increment();
+    }
+
+    static void moved() {
+        if(enabled) MOVED.increment();
+    }
+
+    static void idCreated() {
+        if(enabled) IDS_CREATED.increment();
+    }
+
+    static void catalogLookup(long nanos) {
+        CATALOG_LOOKUP_LATENCY.record(nanos);
+    }
+
+    /**
+     * Reads every counter and histogram of the JVM, and works out the fill of every class of the school.
+     * @param school takes in the school whose classes are measured, or null to leave out the class numbers
+     * @return returns the numbers as they are now
+     */
+    public static MetricsSnapshot snapshot(SchoolDataBase school) {
+        Map<SectionKey, MetricsSnapshot.ClassFill> fills = new HashMap<>();
+        if(school != null) {
+            for(Clazz clazz : school.classes()) {
+                fills.put(clazz.getKey(), new MetricsSnapshot.ClassFill(clazz.getSeatsTaken(), clazz.getCapacity(),
+                        clazz.getWaitlistSize()));
+            }
+        }
+        return new MetricsSnapshot(System.nanoTime(), ENROLLED.sum(), WAITLISTED.sum(), REJECTED.sum(),
+                CONFLICTS.sum(), DROPPED.sum(), PROMOTED.sum(), MOVED.sum(), IDS_CREATED.sum(), idRetries(),
+                ENROLL_LATENCY.snapshot(), CATALOG_LOOKUP_LATENCY.snapshot(), Map.copyOf(fills));
+    }
+
+    /**
+     * @return returns the retries of the current id strategy, which only the random strategy makes
+     */
+    private static long idRetries() {
+        IdGenerator generator = Person.getIdGenerator();
+        return generator instanceof RandomIdGenerator random ? random.retries() : 0;
+    }
+
+    /**
+     * Publishes the counters and histograms of the JVM as an MXBean named
+     * miniprojects.schooldb:type=EnrollmentMetrics on the platform MBean server.
+     * @return returns the name the bean was registered under
+     * @throws IllegalStateException when the bean cannot be registered, for example when it already is
+     */
+    public static ObjectName register() {
+        return register(new Bean(), "miniprojects.schooldb:type=EnrollmentMetrics", "the JVM");
+    }
+
+    /**
+     * Publishes the class numbers of a school as an MXBean named miniprojects.schooldb:type=ClassMetrics,name=...
+     * on the platform MBean server. The counters are published once for the JVM by {@link #register()}.
+     * @param school takes in the school whose classes are measured
+     * @param name takes in the name of the school in the MBean name
+     * @return returns the name the bean was registered under
+     * @throws IllegalStateException when the bean cannot be registered, for example when the name is taken
+     */
+    public static ObjectName register(SchoolDataBase school, String name) {
+        return register(new ClassBean(school), "miniprojects.schooldb:type=ClassMetrics,name="
+                + ObjectName.quote(name), name);
+    }
+
+    private static ObjectName register(Object bean, String objectName, String owner) {
+        try {
+            ObjectName registered = new ObjectName(objectName);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(bean, registered);
+            return registered;
+        } catch (InstanceAlreadyExistsException e) {
+            throw new IllegalStateException("Metrics for " + owner + " are already registered", e);
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register metrics for " + owner, e);
+        }
+    }
+
+    /**
+     * removes a bean added by {@link #register()} or {@link #register(SchoolDataBase, String)}
+     * @param objectName takes in the name the bean was registered under
+     */
+    public static void unregister(ObjectName objectName) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot unregister " + objectName, e);
+        }
+    }
+
+    /**
+     * The JMX view of the counters and histograms, which every school in the JVM adds to.
+     */
+    public interface EnrollmentMetricsMXBean {
+        boolean isEnabled();
+        void setEnabled(boolean enabled);
+        long getEnrollments();
+        long getWaitlisted();
+        long getRejected();
+        long getConflicts();
+        long getDrops();
+        long getPromotions();
+        long getMoves();
+        long getIdsCreated();
+        long getIdRetries();
+        long getEnrollLatencyP50Nanos();
+        long getEnrollLatencyP99Nanos();
+        long getCatalogLookupP50Nanos();
+        long getCatalogLookupP99Nanos();
+    }
+
+    /**
+     * The JMX view of the classes of one school.
+     */
+    public interface ClassMetricsMXBean {
+        int getClasses();
+        int getFullClasses();
+        double getAverageFillRatio();
+        long getWaitlistDepth();
+        int getMaxWaitlistDepth();
+    }
+
+    private static final class Bean implements EnrollmentMetricsMXBean {
+        @Override public boolean isEnabled() { return enabled; }
+        @Override public void setEnabled(boolean on) { EnrollmentMetrics.setEnabled(on); }
+        @Override public long getEnrollments() { return ENROLLED.sum(); }
+        @Override public long getWaitlisted() { return WAITLISTED.sum(); }
+        @Override public long getRejected() { return REJECTED.sum(); }
+        @Override public long getConflicts() { return CONFLICTS.sum(); }
+        @Override public long getDrops() { return DROPPED.sum(); }
+        @Override public long getPromotions() { return PROMOTED.sum(); }
+        @Override public long getMoves() { return MOVED.sum(); }
+        @Override public long getIdsCreated() { return IDS_CREATED.sum(); }
+        @Override public long getIdRetries() { return idRetries(); }
+        @Override public long getEnrollLatencyP50Nanos() { return ENROLL_LATENCY.snapshot().percentile(50); }
+        @Override public long getEnrollLatencyP99Nanos() { return ENROLL_LATENCY.snapshot().percentile(99); }
+        @Override public long getCatalogLookupP50Nanos() { return CATALOG_LOOKUP_LATENCY.snapshot().percentile(50); }
+        @Override public long getCatalogLookupP99Nanos() { return CATALOG_LOOKUP_LATENCY.snapshot().percentile(99); }
+    }
+
+    private static final class ClassBean implements ClassMetricsMXBean {
+        private final SchoolDataBase school;
+
+        ClassBean(SchoolDataBase school) {
+            this.school = school;
+        }
+
+        @Override public int getClasses() { return school.classes().size(); }
+        @Override public int getFullClasses() { return snapshot(school).fullClasses(); }
+        @Override public double getAverageFillRatio() { return snapshot(school).averageFillRatio(); }
+        @Override public long getWaitlistDepth() { return snapshot(school).waitlistDepth(); }
+        @Override public int getMaxWaitlistDepth() { return snapshot(school).maxWaitlistDepth(); }
+    }
+}
@@ -0,0 +1,15 @@
+package miniprojects.schooldb;
+
+/**
+ * The outcome of adding a student to a class.
+ */
+public enum EnrollmentResult {
+    /** the student has a seat in the class */
+    ENROLLED,
+    /** the class is full and the student is on the waitlist */
+    WAITLISTED,
+    /** the class and its waitlist are both full */
+    REJECTED,
+    /** the class meets at the same time as a class the student already has */
+    CONFLICT
+}
@@ -0,0 +1,46 @@
+package miniprojects.schooldb;
+
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A lock-free waitlist that promotes students in the order they joined it. The ids of the waiting students are kept
+ * in a set next to the queue, so a student can not wait twice. Adding, promoting and finding a student take constant
+ * time, removing a student takes linear time.
+ */
+final class FifoWaitlist implements Waitlist {
+    private final Queue<Student> queue = new ConcurrentLinkedQueue<>();
+    private final Set<String> waiting = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public boolean offer(Student student) {
+        if(!waiting.add(student.getId())) return false;
+        return queue.offer(student);
+    }
+
+    @Override
+    public Student poll() {
+        Student student = queue.poll();
+        if(student != null) waiting.remove(student.getId());
+        return student;
+    }
+
+    @Override
+    public boolean remove(Student student) {
+        if(!queue.remove(student)) return false;
+        waiting.remove(student.getId());
+        return true;
+    }
+
+    @Override
+    public boolean contains(Student student) {
+        return waiting.contains(student.getId());
+    }
+
+    @Override
+    public Student[] toArray() {
+        return queue.toArray(new Student[0]);
+    }
+}
@@ -0,0 +1,73 @@
+package miniprojects.schooldb;
+
+/**
+ * A final grade in a course. Letter grades earn the credits of the course, except F, and count toward the GPA with
+ * their grade points. P earns the credits without counting toward the GPA, and W neither earns credits nor counts.
+ */
+public enum Grade {
+    A("A", 40), A_MINUS("A-", 37),
+    B_PLUS("B+", 33), B("B", 30), B_MINUS("B-", 27),
+    C_PLUS("C+", 23), C("C", 20), C_MINUS("C-", 17),
+    D_PLUS("D+", 13), D("D", 10),
+    F("F", 0),
+    /** passed a pass/fail course */
+    P("P", -1),
+    /** withdrew from the course */
+    W("W", -1);
+
+    private final String letter;
+    private final int tenths;
+
+    Grade(String letter, int tenths) {
+        this.letter = letter;
+        this.tenths = tenths;
+    }
+
+    /**
+     *
+     * @return returns the grade points in tenths, A is 40, so totals can be kept in whole numbers
+     */
+    int pointTenths() {
+        return Math.max(0, tenths);
+    }
+
+    /**
+     *
+     * @return returns the grade points, A is 4.0
+     */
+    public double points() {
+        return pointTenths() / 10.0;
+    }
+
+    /**
+     *
+     * @return returns true if the grade counts toward the GPA
+     */
+    public boolean countsTowardGpa() {
+        return tenths >= 0;
+    }
+
+    /**
+     *
+     * @return returns true if the grade earns the credits of the course
+     */
+    public boolean earnsCredit() {
+        return this != F && this != W;
+    }
+
+    /**
+     *
+     * @param letter takes in a grade as written on a transcript, for example B+
+     * @return returns the grade
+     * @throws IllegalArgumentException when the letter is not a grade
+     */
+    public static Grade of(String letter) {
+        for(Grade grade : values()) if(grade.letter.equalsIgnoreCase(letter.trim())) return grade;
+        throw new IllegalArgumentException("Invalid grade: " + letter);
+    }
+
+    @Override
+    public String toString() {
+        return letter;
+    }
+}
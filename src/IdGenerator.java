@@ -0,0 +1,61 @@
+package miniprojects.schooldb;
+
+/**
+ * A strategy for creating person ids. Every id is the first two letters of the first name, followed by a 7-digit
+ * number, followed by the last initial. Implementations must be safe to call from many threads at once.
+ * @see Person#setIdGenerator(IdGenerator)
+ */
+public interface IdGenerator {
+    int MIN_NUMBER = 1_000_000;
+    int MAX_NUMBER = 9_999_999;
+
+    /**
+     * creates a new unique id
+     * @param firstName takes in the first name of the person
+     * @param lastName takes in the last name of the person
+     * @return returns the id
+     */
+    String nextId(String firstName, String lastName);
+
+    /**
+     * Tells the generator about an id that was created elsewhere, for example one loaded from a snapshot, so the
+     * generator never hands it out again.
+     * @param id takes in the existing id
+     */
+    void claim(String id);
+
+    /**
+     * tells the generator about many ids at once, see {@link #claim(String)}
+     * @param ids takes in the existing ids
+     */
+    default void claimAll(String[] ids) {
+        for(String id : ids) claim(id);
+    }
+
+    /**
+     *
+     * @param id takes in an id in the standard format
+     * @return returns the 7-digit number in the id, or -1 if the id is not in the standard format
+     */
+    static int number(String id) {
+        if(id.length() != 10) return -1;
+        int number = 0;
+        for(int i = 2; i < 9; i++) {
+            char c = id.charAt(i);
+            if(c < '0' || c > '9') return -1;
+            number = number * 10 + c - '0';
+        }
+        return number;
+    }
+
+    /**
+     * builds an id in the standard format
+     * @param firstName takes in the first name of the person
+     * @param number takes in the 7-digit number
+     * @param lastName takes in the last name of the person
+     * @return returns the id
+     */
+    static String format(String firstName, int number, String lastName) {
+        return new StringBuilder(10).append(firstName, 0, 2).append(number).append(lastName.charAt(0)).toString();
+    }
+}
@@ -0,0 +1,45 @@
+package miniprojects.schooldb;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * What a {@link SchoolImporter} run did.
+ * @param rows the number of data rows read, not counting header and blank rows
+ * @param imported the number of rows that were imported
+ * @param failed the number of rows that were not imported
+ * @param errors the errors of the first failed rows, sorted by line
+ */
+public record ImportReport(long rows, long imported, long failed, List<RowError> errors) {
+
+    /**
+     * A row that could not be imported.
+     * @param file the name of the file the row is in
+     * @param line the line the row ends on
+     * @param message why the row was not imported
+     */
+    public record RowError(String file, long line, String message) {
+        @Override
+        public String toString() {
+            return file + ":" + line + ": " + message;
+        }
+    }
+
+    /**
+     *
+     * @param other takes in the report of another file
+     * @return returns a report that adds up both reports
+     */
+    ImportReport plus(ImportReport other) {
+        List<RowError> all = new ArrayList<>(errors);
+        all.addAll(other.errors);
+        all.sort(Comparator.comparing(RowError::file).thenComparingLong(RowError::line));
+        return new ImportReport(rows + other.rows, imported + other.imported, failed + other.failed, List.copyOf(all));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,d rows, %,d imported, %,d failed", rows, imported, failed);
+    }
+}
@@ -2,16 +2,23 @@ package miniprojects.schooldb;
 
 import miniprojects.schooldb.Course.Clazz;
 import java.time.LocalDate;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * A class that creates an Instructor for the school
+ * A class that creates an Instructor for the school. The classes an instructor teaches are kept in a hash map, so
+ * an instructor can teach any number of classes and checking whether they teach one takes constant time. Their
+ * {@link Workload} is updated with every class they take on or give up, and so is their entry in the
+ * {@link WorkloadIndex} of their department.
  */
 public class Instructor extends Employee {
-    private Department department;
-    private Clazz aClass;
-    private final Clazz[] classes;
-    private int size = 0;
+    private volatile Department department;
+    private final Map<Clazz, Workload> taught = new ConcurrentHashMap<>();
+    private volatile VersionedList<Clazz> classes = VersionedList.empty();
+    private final Set<CourseKey> qualifications = ConcurrentHashMap.newKeySet();
+    private volatile Workload workload = Workload.NONE;
 
     /**
      * a constructor
@@ -22,26 +29,96 @@ public class Instructor extends Employee {
      * @param department takes in the department of the Instructor.
      */
     public Instructor(String firstName, String lastName, LocalDate dob, Gender gender, Department department) {
-        super(firstName, lastName, dob, gender);
+        this(firstName, lastName, dob, gender, department, null);
+    }
+
+    /**
+     * a constructor that restores an Instructor that already has an id
+     * @param firstName takes in the First name of the Instructor.
+     * @param lastName takes in the Last name of the Instructor.
+     * @param dob takes in the Date of Birth of the Instructor.
+     * @param gender takes in the Gender of the Instructor.
+     * @param department takes in the department of the Instructor.
+     * @param id takes in the existing id, or null to create a new one
+     */
+    Instructor(String firstName, String lastName, LocalDate dob, Gender gender, Department department, String id) {
+        super(firstName, lastName, dob, gender, id);
 //        this(firstName, lastName, dob , gender);
         this.department = department;
-        classes = new Clazz[10];
         if(department != null) department.addInstructor(this);
 
         //this.courses = courses;
     }
 
     /**
-     * this method adds a class to this Instructors class array.
+     * a constructor that restores an Instructor read back from a snapshot, see
+     * {@link Person#Person(String, String, String, LocalDate, Gender)}
+     * @param id takes in the existing id
+     * @param firstName takes in the First name of the Instructor.
+     * @param lastName takes in the Last name of the Instructor.
+     * @param dob takes in the Date of Birth of the Instructor.
+     * @param gender takes in the Gender of the Instructor.
+     * @param department takes in the department of the Instructor.
+     */
+    Instructor(String id, String firstName, String lastName, LocalDate dob, Gender gender, Department department) {
+        super(id, firstName, lastName, dob, gender);
+        this.department = department;
+        if(department != null) department.addInstructor(this);
+    }
+
+    /**
+     * this method adds a class to the classes this Instructor teaches and takes it off the instructor teaching it
+     * before. The class is not added when it meets at the same time as a class the Instructor already teaches.
      * @param c takes in the Class to be added to the instructors taught classes.
+     * @return returns true if the class was added, false if the Instructor already teaches it or is busy when it
+     * meets
+     */
+    public boolean addClass(Clazz c) {
+        return c.assign(this);
+    }
+
+    /**
+     * this method takes a class off the classes this Instructor teaches and frees the time it meets. The class is
+     * left without an instructor, unless another one was assigned to it since.
+     * @param c takes in the Class to be removed
+     * @return returns true if the Instructor taught the class
+     */
+    public boolean removeClass(Clazz c) {
+        return c.unassign(this);
+    }
+
+    /**
+     * books the class in the schedule and adds it to the workload, the class holds its own lock while it calls this
+     * @return returns false if the class is already taught or the schedule is busy when it meets
+     */
+    synchronized boolean take(Clazz c) {
+        if(taught.containsKey(c) || !getSchedule().book(c.getMeetingSlots())) return false;
+        Workload load = Workload.of(c);
+        taught.put(c, load);
+        classes = classes.with(c);
+        setWorkload(workload.plus(load, 1));
+        return true;
+    }
+
+    /**
+     * frees the class in the schedule and takes it out of the workload, the class holds its own lock while it calls
+     * this
+     * @return returns true if the class was taught
      */
-    public void addClass(Clazz c) {
-        if(!teachesClass(c) && size < classes.length) {
-            classes[size++] = c;
-            c.setInstructor(this);
-        }
-        else
-            System.out.println("Unable to add course!");
+    synchronized boolean release(Clazz c) {
+        Workload load = taught.remove(c);
+        if(load == null) return false;
+        getSchedule().release(c.getMeetingSlots());
+        classes = classes.without(c);
+        setWorkload(workload.plus(load, -1));
+        return true;
+    }
+
+    private void setWorkload(Workload next) {
+        Workload before = workload;
+        workload = next;
+        Department department = this.department;
+        if(department != null) department.getWorkloadIndex().changed(this, before, next);
     }
 
     /**
@@ -49,35 +126,81 @@ public class Instructor extends Employee {
      * @return returns the number of classes taught by this Instructor.
      */
     public int numOfClassTaught() {
-        return size;
+        return classes.size();
     }
 
     /**
      *
-     * @return returns an array of classes taught by this Instructor.
+     * @return returns an array of classes taught by this Instructor, in the order they were added. The array is
+     * empty when the Instructor teaches nothing.
      */
     public Clazz[] getClasses() {
-        if(size == 0) throw new NullPointerException("Array is empty");
-        return Arrays.stream(classes).limit(size).toArray(Clazz[]::new);
+        return classes.toArray(new Clazz[0]);
+    }
+
+    /**
+     *
+     * @return returns the classes taught by this Instructor, in the order they were added, as an immutable view
+     * that is replaced, not changed, when a class is added or removed
+     */
+    public VersionedList<Clazz> listOfClasses() {
+        return classes;
     }
 
     /**
      * A method that gives the class at the chosen index
-     * @param index takes in the index of the class in the class array
+     * @param index takes in the index of the class in the order the classes were added
      * @return returns the class at the given index
-     * @throws IndexOutOfBoundsException throws NullPointerException when the index is out of Bounds
+     * @throws IndexOutOfBoundsException throws IndexOutOfBoundsException when the index is out of Bounds
      */
     public Clazz getClassAtIndex(int index) {
-        if(index >= 0 && index < size)
-            return classes[index];
+        VersionedList<Clazz> classes = this.classes;
+        if(index >= 0 && index < classes.size())
+            return classes.get(index);
         throw new IndexOutOfBoundsException(getFirstName() + " " + getLastName() + " does not teach this class.");
     }
 
+    /**
+     *
+     * @return returns the classes, credits and seats this Instructor teaches
+     */
+    public Workload getWorkload() {
+        return workload;
+    }
+
+    /**
+     * records that this Instructor is qualified to teach a course, see {@link WorkloadIndex#leastLoaded(CourseKey)}
+     * @param course takes in the course
+     */
+    public synchronized void addQualification(CourseKey course) {
+        Department department = this.department;
+        if(qualifications.add(course) && department != null) department.getWorkloadIndex().qualified(this, course);
+    }
+
+    /**
+     *
+     * @return returns a read-only view of the courses this Instructor is qualified to teach
+     */
+    public Set<CourseKey> getQualifications() {
+        return Collections.unmodifiableSet(qualifications);
+    }
+
+    /**
+     *
+     * @return returns the department of this Instructor.
+     */
+    public Department getDepartment() {
+        return department;
+    }
+
     /**
      * A method that sets the department of this Instructor.
      * @param department takes in the department to be added to this Instructor.
      */
-    public void setDepartment(Department department) {
+    public synchronized void setDepartment(Department department) {
+        Department old = this.department;
+        if(old == department) return;
+        if(old != null) old.removeInstructor(this);
         this.department = department;
         department.addInstructor(this);
     }
@@ -88,7 +211,7 @@ public class Instructor extends Employee {
      * @return returns a boolean value if whether the class is taught by this Instructor.
      */
     public boolean teachesClass(Clazz e) {
-        return size != 0 && Arrays.asList(classes).contains(e);
+        return taught.containsKey(e);
     }
 
     /**
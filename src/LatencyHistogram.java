@@ -0,0 +1,116 @@
+package miniprojects.schooldb;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A latency histogram in the style of HdrHistogram. Values are sorted into buckets by their power of two and then
+ * into {@value #SUB_BUCKETS} linear steps inside it, so every percentile is within 1/{@value #SUB_BUCKETS} of the
+ * true value while the histogram stays a fixed {@value #BUCKETS} counts. Counts are striped over several arrays by
+ * thread, so threads recording at the same time rarely write the same cache line.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+    private static final int STRIPES = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+
+    private final AtomicLongArray[] stripes = new AtomicLongArray[STRIPES];
+
+    /**
+     * constructor
+     */
+    public LatencyHistogram() {
+        for(int i = 0; i < STRIPES; i++) stripes[i] = new AtomicLongArray(BUCKETS);
+    }
+
+    /**
+     * adds one value to the histogram
+     * @param nanos takes in the value, negative values count as 0
+     */
+    public void record(long nanos) {
+        int stripe = (int) Thread.currentThread().getId() & STRIPES - 1;
+        stripes[stripe].getAndIncrement(bucket(Math.max(0, nanos)));
+    }
+
+    /**
+     * @return returns the bucket of a value. Values below {@value #SUB_BUCKETS} * 2 get a bucket each, larger values
+     * share a bucket with the values that agree with them in their top {@value #SUB_BITS} + 1 bits
+     */
+    static int bucket(long value) {
+        int magnitude = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BITS);
+        return magnitude * SUB_BUCKETS + (int) (value >>> magnitude);
+    }
+
+    /**
+     * @return returns the largest value that falls in the bucket
+     */
+    static long highestValue(int bucket) {
+        int magnitude = Math.max(0, bucket / SUB_BUCKETS - 1);
+        long highest = ((long) (bucket - magnitude * SUB_BUCKETS + 1) << magnitude) - 1;
+        return highest < 0 ? Long.MAX_VALUE : highest;
+    }
+
+    /**
+     *
+     * @return returns the counts recorded so far, merged over every stripe
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        for(AtomicLongArray stripe : stripes)
+            for(int i = 0; i < BUCKETS; i++) counts[i] += stripe.get(i);
+        return new Snapshot(counts);
+    }
+
+    /**
+     * The counts of a histogram at one point in time.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+
+        private Snapshot(long[] counts) {
+            this.counts = counts;
+            long total = 0;
+            for(long c : counts) total += c;
+            count = total;
+        }
+
+        /**
+         *
+         * @return returns the number of values recorded
+         */
+        public long count() {
+            return count;
+        }
+
+        /**
+         *
+         * @param percentile takes in a percentile between 0 and 100
+         * @return returns the value at the percentile, rounded up to its bucket, or 0 when nothing was recorded
+         */
+        public long percentile(double percentile) {
+            if(count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(count * Math.min(100, Math.max(0, percentile)) / 100));
+            long seen = 0;
+            for(int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if(seen >= rank) return highestValue(i);
+            }
+            return highestValue(counts.length - 1);
+        }
+
+        /**
+         *
+         * @return returns the largest value recorded, rounded up to its bucket
+         */
+        public long max() {
+            return percentile(100);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%,d p50=%,dns p99=%,dns p99.9=%,dns max=%,dns", count, percentile(50),
+                    percentile(99), percentile(99.9), max());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package miniprojects.schooldb;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+
+/**
+ * A weekly meeting of a class, for example Monday from 9:00 to 9:50.
+ * @param day the day of the week the class meets
+ * @param start the time the meeting starts
+ * @param end the time the meeting ends, after the start and on the same day
+ */
+public record MeetingTime(DayOfWeek day, LocalTime start, LocalTime end) {
+
+    /**
+     * constructor
+     * @throws IllegalArgumentException when the meeting does not end after it starts
+     */
+    public MeetingTime {
+        if(day == null || start == null || end == null) throw new IllegalArgumentException("Meeting time is incomplete");
+        if(!end.isAfter(start)) throw new IllegalArgumentException("Meeting must end after it starts");
+    }
+
+    /**
+     *
+     * @return returns the minute of the week the meeting starts at, Monday 0:00 is minute 0
+     */
+    int startMinute() {
+        return (day.getValue() - 1) * 24 * 60 + start.getHour() * 60 + start.getMinute();
+    }
+
+    /**
+     *
+     * @return returns the minute of the week the meeting ends at
+     */
+    int endMinute() {
+        return (day.getValue() - 1) * 24 * 60 + end.getHour() * 60 + end.getMinute();
+    }
+
+    /**
+     *
+     * @return returns the meeting packed into one int, see {@link #decode(int)}
+     */
+    int encode() {
+        return day.getValue() << 24 | (start.getHour() * 60 + start.getMinute()) << 12 | end.getHour() * 60 + end.getMinute();
+    }
+
+    /**
+     *
+     * @param encoded takes in a meeting packed by {@link #encode()}
+     * @return returns the meeting
+     */
+    static MeetingTime decode(int encoded) {
+        int start = encoded >>> 12 & 0xFFF, end = encoded & 0xFFF;
+        return new MeetingTime(DayOfWeek.of(encoded >>> 24), LocalTime.of(start / 60, start % 60),
+                LocalTime.of(end / 60, end % 60));
+    }
+
+    @Override
+    public String toString() {
+        return day + " " + start + "-" + end;
+    }
+}
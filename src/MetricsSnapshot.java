@@ -0,0 +1,121 @@
+package miniprojects.schooldb;
+
+import java.util.Map;
+
+/**
+ * The enrollment metrics at one point in time, see {@link EnrollmentMetrics#snapshot(SchoolDataBase)}. Counters
+ * count from when the program started, across every school in it, so two snapshots give the rate of everything
+ * between them.
+ * @param takenAtNanos the {@link System#nanoTime()} the snapshot was taken at
+ * @param enrolled the number of enrollments that got a seat
+ * @param waitlisted the number of enrollments that were wait-listed
+ * @param rejected the number of enrollments turned away by a full waitlist
+ * @param conflicts the number of enrollments turned away by a schedule conflict
+ * @param dropped the number of students removed from a class or waitlist
+ * @param promoted the number of students moved from a waitlist into a seat
+ * @param moved the number of wait-listed students moved into a seat of another section, see {@link SectionBalancer}
+ * @param idsCreated the number of ids created for new people
+ * @param idRetries the number of random ids drawn again because they were taken
+ * @param enrollLatency the time taken by single enrollments
+ * @param catalogLookupLatency the time taken by catalog lookups by key
+ * @param classes the fill of every class of the school
+ */
+public record MetricsSnapshot(long takenAtNanos, long enrolled, long waitlisted, long rejected, long conflicts,
+                              long dropped, long promoted, long moved, long idsCreated, long idRetries,
+                              LatencyHistogram.Snapshot enrollLatency,
+                              LatencyHistogram.Snapshot catalogLookupLatency,
+                              Map<SectionKey, ClassFill> classes) {
+
+    /**
+     * The seats and waitlist of one class.
+     * @param seatsTaken the number of seats that are taken
+     * @param capacity the number of seats
+     * @param waitlistDepth the number of students waiting for a seat
+     */
+    public record ClassFill(int seatsTaken, int capacity, int waitlistDepth) {
+
+        /**
+         *
+         * @return returns the share of seats that are taken, 1 for a class without seats
+         */
+        public double fillRatio() {
+            return capacity == 0 ? 1 : (double) seatsTaken / capacity;
+        }
+    }
+
+    /**
+     *
+     * @return returns the number of classes where every seat is taken
+     */
+    public int fullClasses() {
+        int full = 0;
+        for(ClassFill fill : classes.values()) if(fill.seatsTaken() >= fill.capacity()) full++;
+        return full;
+    }
+
+    /**
+     *
+     * @return returns the fill ratio averaged over the classes, or 0 when there are none
+     */
+    public double averageFillRatio() {
+        double total = 0;
+        for(ClassFill fill : classes.values()) total += fill.fillRatio();
+        return classes.isEmpty() ? 0 : total / classes.size();
+    }
+
+    /**
+     *
+     * @return returns the number of students waiting over every class
+     */
+    public long waitlistDepth() {
+        long depth = 0;
+        for(ClassFill fill : classes.values()) depth += fill.waitlistDepth();
+        return depth;
+    }
+
+    /**
+     *
+     * @return returns the longest waitlist of any class
+     */
+    public int maxWaitlistDepth() {
+        int max = 0;
+        for(ClassFill fill : classes.values()) max = Math.max(max, fill.waitlistDepth());
+        return max;
+    }
+
+    /**
+     * works out how fast each counter grew between an earlier snapshot and this one
+     * @param earlier takes in a snapshot taken before this one
+     * @return returns the counters per second
+     */
+    public Rates ratesSince(MetricsSnapshot earlier) {
+        double seconds = Math.max(1, takenAtNanos - earlier.takenAtNanos) / 1e9;
+        return new Rates((enrolled - earlier.enrolled) / seconds, (waitlisted - earlier.waitlisted) / seconds,
+                (rejected + conflicts - earlier.rejected - earlier.conflicts) / seconds,
+                (dropped - earlier.dropped) / seconds, (promoted - earlier.promoted) / seconds,
+                (moved - earlier.moved) / seconds, (idRetries - earlier.idRetries) / seconds);
+    }
+
+    /**
+     * Counters per second between two snapshots.
+     * @param enrolled seats given per second
+     * @param waitlisted students wait-listed per second
+     * @param rejected enrollments turned away per second, for a full waitlist or a schedule conflict
+     * @param dropped students removed per second
+     * @param promoted students promoted from a waitlist per second
+     * @param moved wait-listed students moved to another section per second
+     * @param idRetries random ids drawn again per second
+     */
+    public record Rates(double enrolled, double waitlisted, double rejected, double dropped, double promoted,
+                        double moved, double idRetries) {
+    }
+
+    @Override
+    public String toString() {
+        return String.format("enrolled=%,d waitlisted=%,d rejected=%,d conflicts=%,d dropped=%,d promoted=%,d "
+                        + "moved=%,d ids=%,d idRetries=%,d classes=%,d full=%,d fill=%.2f waitlist=%,d%nenroll: %s%n"
+                        + "catalog lookup: %s", enrolled, waitlisted, rejected, conflicts, dropped, promoted,
+                moved, idsCreated, idRetries, classes.size(), fullClasses(), averageFillRatio(), waitlistDepth(),
+                enrollLatency, catalogLookupLatency);
+    }
+}
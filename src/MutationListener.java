@@ -0,0 +1,139 @@
+package miniprojects.schooldb;
+
+import miniprojects.schooldb.Course.Clazz;
+
+/**
+ * Gets told about every change made to a school. Listeners are added to a {@link SchoolDataBase} and hear about the
+ * departments registered with it, and the courses and classes of those departments. Every method is called on the
+ * thread that made the change, right after the change, so implementations must be quick and thread-safe. Changes to
+ * the same class are reported in the order they happened.
+ */
+public interface MutationListener {
+
+    /**
+     * a listener that ignores everything
+     */
+    MutationListener NONE = new MutationListener() { };
+
+    /**
+     * called when a department is registered
+     * @param department takes in the department
+     */
+    default void departmentRegistered(Department department) { }
+
+    /**
+     * called when a student or instructor is registered
+     * @param person takes in the person
+     */
+    default void personRegistered(Person person) { }
+
+    /**
+     * called when a course is added to a department's catalog
+     * @param department takes in the department
+     * @param course takes in the course
+     */
+    default void courseAdded(Department department, Course course) { }
+
+    /**
+     * called when the number of credits of a course in a department's catalog changes
+     * @param department takes in the department
+     * @param course takes in the course
+     */
+    default void courseChanged(Department department, Course course) { }
+
+    /**
+     * called when a course in a department's catalog is renamed, reported to {@link #courseChanged} unless a
+     * listener needs the key the course had before
+     * @param department takes in the department
+     * @param course takes in the course, which has its new name
+     * @param old takes in the key the course had before
+     */
+    default void courseRenamed(Department department, Course course, CourseKey old) {
+        courseChanged(department, course);
+    }
+
+    /**
+     * called when a course is taken out of a department's catalog
+     * @param department takes in the department
+     * @param course takes in the course
+     */
+    default void courseRemoved(Department department, Course course) { }
+
+    /**
+     * called when a new class is created for a course
+     * @param clazz takes in the class
+     */
+    default void classAdded(Clazz clazz) { }
+
+    /**
+     * called when a student is added to a class
+     * @param clazz takes in the class
+     * @param student takes in the student
+     * @param result takes in where the student ended up
+     */
+    default void studentEnrolled(Clazz clazz, Student student, EnrollmentResult result) { }
+
+    /**
+     * called when a student is removed from a class or its waitlist
+     * @param clazz takes in the class
+     * @param student takes in the student
+     */
+    default void studentDropped(Clazz clazz, Student student) { }
+
+    /**
+     * called when a wait-listed student leaves the waitlist for a seat in another section of the course, see
+     * {@link SectionBalancer}. The seat is part of the move and is not reported to {@link #studentEnrolled}.
+     * @param from takes in the section whose waitlist the student left
+     * @param to takes in the section the student got a seat in
+     * @param student takes in the student
+     */
+    default void studentMoved(Clazz from, Clazz to, Student student) { }
+
+    /**
+     * called when a wait-listed student is moved into a free seat
+     * @param clazz takes in the class
+     * @param student takes in the student
+     */
+    default void studentPromoted(Clazz clazz, Student student) { }
+
+    /**
+     * called when the meeting times of a class change
+     * @param clazz takes in the class
+     */
+    default void meetingTimesChanged(Clazz clazz) { }
+
+    /**
+     * called when a class gets an instructor
+     * @param clazz takes in the class
+     * @param instructor takes in the instructor
+     */
+    default void instructorAssigned(Clazz clazz, Instructor instructor) { }
+
+    /**
+     * called when an instructor gives a class up, or is replaced by another instructor
+     * @param clazz takes in the class
+     * @param instructor takes in the instructor who no longer teaches it
+     */
+    default void instructorRemoved(Clazz clazz, Instructor instructor) { }
+
+    /**
+     * called when a class is given a room, or its room changes
+     * @param clazz takes in the class, which has its new room
+     */
+    default void roomAssigned(Clazz clazz) { }
+
+    /**
+     * called when a student declares, changes or drops their major. The change is reported to the listeners of
+     * the new major's department, or of the old one when the major is dropped.
+     * @param student takes in the student, who has their new major
+     */
+    default void majorChanged(Student student) { }
+
+    /**
+     * called when a grade is posted to a student's transcript, or a posted grade is corrected, see
+     * {@link DegreeAudit#postGrade}
+     * @param student takes in the student
+     * @param entry takes in the entry that was posted
+     */
+    default void gradePosted(Student student, Transcript.Entry entry) { }
+}
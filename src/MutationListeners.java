@@ -0,0 +1,115 @@
+package miniprojects.schooldb;
+
+import miniprojects.schooldb.Course.Clazz;
+import java.util.Arrays;
+
+/**
+ * Passes every change on to a list of listeners. The list is copied on write, so notifying costs one volatile read
+ * and a loop, and nothing at all when no listener has been added.
+ */
+final class MutationListeners implements MutationListener {
+    private volatile MutationListener[] listeners = new MutationListener[0];
+
+    /**
+     *
+     * @return returns this, or {@link MutationListener#NONE} when there is nobody to tell
+     */
+    MutationListener active() {
+        return listeners.length == 0 ? NONE : this;
+    }
+
+    synchronized void add(MutationListener listener) {
+        MutationListener[] next = Arrays.copyOf(listeners, listeners.length + 1);
+        next[listeners.length] = listener;
+        listeners = next;
+    }
+
+    synchronized void remove(MutationListener listener) {
+        listeners = Arrays.stream(listeners).filter(l -> l != listener).toArray(MutationListener[]::new);
+    }
+
+    @Override
+    public void departmentRegistered(Department department) {
+        for(MutationListener listener : listeners) listener.departmentRegistered(department);
+    }
+
+    @Override
+    public void personRegistered(Person person) {
+        for(MutationListener listener : listeners) listener.personRegistered(person);
+    }
+
+    @Override
+    public void courseAdded(Department department, Course course) {
+        for(MutationListener listener : listeners) listener.courseAdded(department, course);
+    }
+
+    @Override
+    public void courseChanged(Department department, Course course) {
+        for(MutationListener listener : listeners) listener.courseChanged(department, course);
+    }
+
+    @Override
+    public void courseRenamed(Department department, Course course, CourseKey old) {
+        for(MutationListener listener : listeners) listener.courseRenamed(department, course, old);
+    }
+
+    @Override
+    public void courseRemoved(Department department, Course course) {
+        for(MutationListener listener : listeners) listener.courseRemoved(department, course);
+    }
+
+    @Override
+    public void classAdded(Clazz clazz) {
+        for(MutationListener listener : listeners) listener.classAdded(clazz);
+    }
+
+    @Override
+    public void studentEnrolled(Clazz clazz, Student student, EnrollmentResult result) {
+        for(MutationListener listener : listeners) listener.studentEnrolled(clazz, student, result);
+    }
+
+    @Override
+    public void studentDropped(Clazz clazz, Student student) {
+        for(MutationListener listener : listeners) listener.studentDropped(clazz, student);
+    }
+
+    @Override
+    public void studentMoved(Clazz from, Clazz to, Student student) {
+        for(MutationListener listener : listeners) listener.studentMoved(from, to, student);
+    }
+
+    @Override
+    public void studentPromoted(Clazz clazz, Student student) {
+        for(MutationListener listener : listeners) listener.studentPromoted(clazz, student);
+    }
+
+    @Override
+    public void meetingTimesChanged(Clazz clazz) {
+        for(MutationListener listener : listeners) listener.meetingTimesChanged(clazz);
+    }
+
+    @Override
+    public void instructorAssigned(Clazz clazz, Instructor instructor) {
+        for(MutationListener listener : listeners) listener.instructorAssigned(clazz, instructor);
+    }
+
+    @Override
+    public void instructorRemoved(Clazz clazz, Instructor instructor) {
+        for(MutationListener listener : listeners) listener.instructorRemoved(clazz, instructor);
+    }
+
+    @Override
+    public void roomAssigned(Clazz clazz) {
+        for(MutationListener listener : listeners) listener.roomAssigned(clazz);
+    }
+
+    @Override
+    public void majorChanged(Student student) {
+        for(MutationListener listener : listeners) listener.majorChanged(student);
+    }
+
+    @Override
+    public void gradePosted(Student student, Transcript.Entry entry) {
+        for(MutationListener listener : listeners) listener.gradePosted(student, entry);
+    }
+}
@@ -1,9 +1,6 @@
 package miniprojects.schooldb;
 import java.time.LocalDate;
-import java.util.HashSet;
 import java.util.Objects;
-import java.util.Random;
-import java.util.Set;
 
 import static miniprojects.schooldb.Person.Gender.*;
 
@@ -17,9 +14,12 @@ public abstract class Person implements Comparable<Person> {
     protected String firstName;
     protected String lastName;
     private final Gender gender;
-    private final static Set<String> ids = new HashSet<>();
+    private static volatile IdGenerator idGenerator = new ShardedIdGenerator();
     private final LocalDate dob;
     private final String id;
+    private final WeeklySchedule schedule = new WeeklySchedule();
+    private volatile int handle = -1;
+    private final int hash;
 
     /**
      * a constructor that creates a Person
@@ -28,19 +28,48 @@ public abstract class Person implements Comparable<Person> {
      * @param dob takes in the person's date of birth
      */
     Person(String firstName, String lastName, LocalDate dob, Gender gender) {
-        try {
-            checkAge(dob);
-        } catch (InvalidAgeException e) {
-            System.out.println("Invalid Age!");
-            throw new RuntimeException(e);
-        }
+        this(firstName, lastName, dob, gender, null);
+    }
+
+    /**
+     * a constructor that restores a Person that already has an id, for example one loaded from a snapshot. The id
+     * generator is told about the id so it is never handed out again.
+     * @param firstName takes in the first name of the person
+     * @param lastName takes in the last name of the person
+     * @param dob takes in the person's date of birth
+     * @param id takes in the existing id, or null to create a new one
+     * @throws IllegalArgumentException when the date of birth is not before today
+     */
+    Person(String firstName, String lastName, LocalDate dob, Gender gender, String id) {
+        Validator.getDefault().birthDate(dob).orThrow();
 
         if(!gender.equals(MALE) && !gender.equals(FEMALE)) gender = OTHER;
         this.firstName = firstName;
         this.lastName = lastName;
         this.dob = dob;
         this.gender = gender;
-        id = createId();
+        if(id == null) id = createId();
+        else idGenerator.claim(id);
+        this.id = id;
+        hash = id.hashCode();
+    }
+
+    /**
+     * a constructor that restores a Person read back from a snapshot in bulk. The date of birth was checked when
+     * the person was first created, and the loader claims every id at once with
+     * {@link IdGenerator#claimAll(String[])}, so neither is done again here.
+     * @param id takes in the existing id
+     * @param firstName takes in the first name of the person
+     * @param lastName takes in the last name of the person
+     * @param dob takes in the person's date of birth
+     */
+    Person(String id, String firstName, String lastName, LocalDate dob, Gender gender) {
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.dob = dob;
+        this.gender = gender;
+        this.id = Objects.requireNonNull(id);
+        hash = id.hashCode();
     }
 
     /**
@@ -49,7 +78,8 @@ public abstract class Person implements Comparable<Person> {
      * @throws InvalidAgeException when the age is invalid
      */
     final void checkAge(LocalDate dob) throws InvalidAgeException {
-        if(!dob.isBefore(LocalDate.now())) throw new InvalidAgeException("Person is too young");
+        ValidationResult valid = Validator.getDefault().birthDate(dob);
+        if(!valid.isValid()) throw new InvalidAgeException(valid.message());
     }
 
     /**
@@ -109,26 +139,67 @@ public abstract class Person implements Comparable<Person> {
     }
 
     /**
-     * This method creates a unique id for every person using the first two letters of their last name followed by
+     *
+     * @return returns the gender of the person
+     */
+    Gender getGender() {
+        return gender;
+    }
+
+    /**
+     *
+     * @return returns the times of the week this person is in class
+     */
+    WeeklySchedule getSchedule() {
+        return schedule;
+    }
+
+    /**
+     *
+     * @return returns the int handle given by the school this person was first registered with, or -1
+     */
+    int getHandle() {
+        return handle;
+    }
+
+    /**
+     * sets the int handle of this person, see {@link PersonHandles}
+     * @param handle takes in the handle
+     */
+    void setHandle(int handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * This method creates a unique id for every person using the first two letters of their first name followed by
      * a 7-digit number ending with their last initial. This method is only called with a new instance
      * of person is created
      * @return returns the unique id of this person
+     * @see IdGenerator
      */
     private String createId() {
-        Random random = new Random();
+        EnrollmentMetrics.idCreated();
+        return idGenerator.nextId(getFirstName(), getLastName());
+    }
 
-        while(true) {
-            int numb = random.nextInt(9_000_000) + 1_000_000;
-            String uniqueId = getFirstName().substring(0,2) + "" + numb + "" + getLastName().charAt(0);
-            if(!ids.contains(uniqueId)) {
-                ids.add(uniqueId);
-                return uniqueId;
-            }
-        }
+    /**
+     * Sets the strategy used to create the ids of new people. People that already exist keep their ids.
+     * @param generator takes in the id strategy
+     */
+    static void setIdGenerator(IdGenerator generator) {
+        idGenerator = Objects.requireNonNull(generator);
+    }
+
+    /**
+     *
+     * @return returns the strategy used to create the ids of new people
+     */
+    static IdGenerator getIdGenerator() {
+        return idGenerator;
     }
 
     /**
-     * this method checks whether the object taken in has values of this instance
+     * this method checks whether the object taken in is the same person, people are the same when their ids are
      * @param o takes in the object to check for equality
      * @return returns true or false based on the equality of the two objects
      */
@@ -137,18 +208,16 @@ public abstract class Person implements Comparable<Person> {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Person person = (Person) o;
-        return Objects.equals(firstName, person.firstName) &&
-                Objects.equals(lastName, person.lastName) && gender == person.gender &&
-                Objects.equals(dob, person.dob) && Objects.equals(id, person.id);
+        return hash == person.hash && id.equals(person.id);
     }
 
     /**
      *
-     * @return returns the hashcode of this instance
+     * @return returns the hashcode of this instance, the hash of the id worked out once when the person is created
      */
     @Override
     public int hashCode() {
-        return Objects.hash(firstName, lastName, gender, dob, id);
+        return hash;
     }
 
     /**
@@ -0,0 +1,49 @@
+package miniprojects.schooldb;
+
+import java.util.Arrays;
+
+/**
+ * Numbers the people registered with a school 0, 1, 2 and so on, so a large roster can store a person as an int
+ * instead of a reference. People are kept in chunks of {@value #CHUNK} that are added as they fill up, so growing
+ * never copies the people, and looking a handle up is two array reads.
+ * <br>
+ * A handle is only handed out by {@link Person#getHandle()} after the person is stored, so anyone holding a handle
+ * also sees the person it stands for.
+ */
+final class PersonHandles {
+    private static final int SHIFT = 12;
+    private static final int CHUNK = 1 << SHIFT;
+
+    private volatile Person[][] chunks = new Person[1][];
+    private int size;
+
+    /**
+     * gives the person the next handle
+     * @param person takes in the person
+     * @return returns the handle
+     */
+    synchronized int add(Person person) {
+        int handle = size;
+        if(handle == Integer.MAX_VALUE) throw new IllegalStateException("No handles left");
+        Person[][] current = chunks;
+        int chunk = handle >>> SHIFT;
+        if(chunk == current.length) current = Arrays.copyOf(current, current.length * 2);
+        if(current[chunk] == null) current[chunk] = new Person[CHUNK];
+        current[chunk][handle & CHUNK - 1] = person;
+        chunks = current;
+        size++;
+        return handle;
+    }
+
+    /**
+     *
+     * @param handle takes in a handle
+     * @return returns the person with the handle, or null when there is none
+     */
+    Person get(int handle) {
+        Person[][] current = chunks;
+        int chunk = handle >>> SHIFT;
+        if(handle < 0 || chunk >= current.length || current[chunk] == null) return null;
+        return current[chunk][handle & CHUNK - 1];
+    }
+}
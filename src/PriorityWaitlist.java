@@ -0,0 +1,176 @@
+package miniprojects.schooldb;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * A waitlist that promotes students by priority tier, with aging so that no one waits forever. Every student gets
+ * a number in the order they join, and a student of tier t is ranked as though they had joined t times the aging
+ * window earlier. The rank is fixed when the student joins, so the students can be kept in a binary heap, and a
+ * waiting student is passed by at most {@value #MAX_TIER} times the aging window students that join after them.
+ * <br>
+ * The heap is indexed by student id, so adding, promoting and removing any student all take O(log n) time and
+ * finding a student takes constant time. Every method locks the waitlist.
+ */
+final class PriorityWaitlist implements Waitlist {
+    static final int MAX_TIER = 15;
+
+    private final ToIntFunction<Student> tiers;
+    private final long agingWindow;
+    private final Map<String, Integer> index = new HashMap<>();
+    private Student[] students = new Student[16];
+    private long[] ranks = new long[16];
+    private long[] joined = new long[16];
+    private long arrivals;
+    private int size;
+
+    /**
+     * constructor
+     * @param tiers takes in the tier of a student, from 0 up to {@value #MAX_TIER}, higher tiers go first
+     * @param agingWindow takes in how many later students a student of one tier higher is ranked ahead of
+     */
+    PriorityWaitlist(ToIntFunction<Student> tiers, long agingWindow) {
+        if(agingWindow < 0) throw new IllegalArgumentException("The aging window must not be negative");
+        this.tiers = tiers;
+        this.agingWindow = agingWindow;
+    }
+
+    @Override
+    public synchronized boolean offer(Student student) {
+        if(index.containsKey(student.getId())) return false;
+        int tier = Math.max(0, Math.min(MAX_TIER, tiers.applyAsInt(student)));
+        long arrival = arrivals++;
+        add(student, arrival - tier * agingWindow, arrival);
+        return true;
+    }
+
+    @Override
+    public synchronized Student poll() {
+        if(size == 0) return null;
+        Student head = students[0];
+        removeAt(0);
+        return head;
+    }
+
+    @Override
+    public synchronized boolean remove(Student student) {
+        Integer at = index.get(student.getId());
+        if(at == null) return false;
+        removeAt(at);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean contains(Student student) {
+        return index.containsKey(student.getId());
+    }
+
+    @Override
+    public synchronized Student[] toArray() {
+        Integer[] order = new Integer[size];
+        for(int i = 0; i < size; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> before(a, b) ? -1 : before(b, a) ? 1 : 0);
+        Student[] copy = new Student[size];
+        for(int i = 0; i < size; i++) copy[i] = students[order[i]];
+        return copy;
+    }
+
+    @Override
+    public synchronized Order order() {
+        Student[] copy = toArray();
+        int[] tiers = new int[size];
+        long[] arrivals = new long[size];
+        for(int i = 0; i < size; i++) {
+            int at = index.get(copy[i].getId());
+            tiers[i] = agingWindow == 0 ? 0 : (int) ((joined[at] - ranks[at]) / agingWindow);
+            arrivals[i] = joined[at];
+        }
+        return new Order(copy, tiers, arrivals, this.arrivals);
+    }
+
+    /**
+     * {@inheritDoc} The students keep the tiers and arrival numbers of the order, so they are promoted in the same
+     * order and students that join later are ranked against them as before.
+     */
+    @Override
+    public synchronized int restore(Order order) {
+        int added = 0;
+        for(int i = 0; i < order.students().length; i++) {
+            Student student = order.students()[i];
+            if(index.containsKey(student.getId())) continue;
+            long arrival = order.joined()[i];
+            add(student, arrival - order.tiers()[i] * agingWindow, arrival);
+            added++;
+        }
+        arrivals = Math.max(arrivals, order.arrivals());
+        return added;
+    }
+
+    private void add(Student student, long rank, long arrival) {
+        if(size == students.length) {
+            students = Arrays.copyOf(students, size * 2);
+            ranks = Arrays.copyOf(ranks, size * 2);
+            joined = Arrays.copyOf(joined, size * 2);
+        }
+        set(size, student, rank, arrival);
+        up(size++);
+    }
+
+    private void removeAt(int at) {
+        index.remove(students[at].getId());
+        size--;
+        if(at != size) {
+            set(at, students[size], ranks[size], joined[size]);
+            if(!up(at)) down(at);
+        }
+        students[size] = null;
+    }
+
+    /**
+     * @return returns true if the student at i is promoted before the student at j
+     */
+    private boolean before(int i, int j) {
+        return ranks[i] != ranks[j] ? ranks[i] < ranks[j] : joined[i] < joined[j];
+    }
+
+    private void set(int at, Student student, long rank, long arrival) {
+        students[at] = student;
+        ranks[at] = rank;
+        joined[at] = arrival;
+        index.put(student.getId(), at);
+    }
+
+    private void swap(int i, int j) {
+        Student student = students[i];
+        long rank = ranks[i], arrival = joined[i];
+        set(i, students[j], ranks[j], joined[j]);
+        set(j, student, rank, arrival);
+    }
+
+    /**
+     * @return returns true if the student moved
+     */
+    private boolean up(int at) {
+        int start = at;
+        while(at > 0) {
+            int parent = (at - 1) >>> 1;
+            if(!before(at, parent)) break;
+            swap(at, parent);
+            at = parent;
+        }
+        return at != start;
+    }
+
+    private void down(int at) {
+        while(true) {
+            int child = 2 * at + 1;
+            if(child >= size) return;
+            if(child + 1 < size && before(child + 1, child)) child++;
+            if(!before(child, at)) return;
+            swap(at, child);
+            at = child;
+        }
+    }
+}
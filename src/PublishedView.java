@@ -0,0 +1,80 @@
+package miniprojects.schooldb;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongFunction;
+
+/**
+ * An immutable view of state that lock-free writers change, built again only after something changed. Writers mark
+ * the start and end of every change, and the end of a change that did something moves the version up. A reader
+ * gets the view published for the current version without copying or locking. The first reader after a change
+ * builds the new view, and keeps it only when no writer was busy while it was built, the way a sequence lock
+ * works, so every view shows the state between two changes.
+ * <br>
+ * A reader that keeps running into writers gives up after a few tries and gets the newest view that was kept,
+ * which is consistent but may miss the latest changes. Readers never wait for writers, so under a steady stream of
+ * changes the view can stay behind until the writers pause.
+ * @param <T> the type of the view
+ */
+final class PublishedView<T> {
+    private static final int ATTEMPTS = 8;
+
+    private final AtomicInteger writing = new AtomicInteger();
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicReference<Published<T>> published;
+    private final LongFunction<T> build;
+
+    private record Published<T>(long version, T view) { }
+
+    /**
+     * constructor
+     * @param initial takes in the view of the state before any change, at version 0
+     * @param build takes in the function that builds the view of the current state, given its version
+     */
+    PublishedView(T initial, LongFunction<T> build) {
+        published = new AtomicReference<>(new Published<>(0, initial));
+        this.build = build;
+    }
+
+    /**
+     * marks the start of a change, every call is followed by {@link #endWrite(boolean)}
+     */
+    void beginWrite() {
+        writing.incrementAndGet();
+    }
+
+    /**
+     * marks the end of a change
+     * @param changed takes in whether the change did something, which makes the next read build a new view
+     */
+    void endWrite(boolean changed) {
+        if(changed) version.incrementAndGet();
+        writing.decrementAndGet();
+    }
+
+    /**
+     *
+     * @return returns the view of the current state
+     */
+    T get() {
+        Published<T> current = published.get();
+        for(int attempt = 0; attempt < ATTEMPTS; attempt++) {
+            long now = version.get();
+            if(current.version() == now) return current.view();
+            if(writing.get() != 0) {
+                Thread.onSpinWait();
+                current = published.get();
+                continue;
+            }
+            T view = build.apply(now);
+            if(writing.get() == 0 && version.get() == now) {
+                Published<T> next = new Published<>(now, view);
+                while(current.version() < now && !published.compareAndSet(current, next)) current = published.get();
+                return view;
+            }
+            current = published.get();
+        }
+        return current.view();
+    }
+}
@@ -0,0 +1,267 @@
+package miniprojects.schooldb;
+
+import miniprojects.schooldb.Course.Clazz;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A read-through cache in front of the derived queries portal pages run over and over: class summaries, the courses
+ * of a department at a level, the weekly meetings of an instructor and the open seats of a course. Each query has a
+ * {@link Region} with its own memory budget, evicts the least recently used answers when the budget is full, and
+ * counts its hits and misses.
+ * <br>
+ * The cache listens to the school and drops exactly the answers a change affects, right after the change, so an
+ * answer is never older than the last change to what it was computed from. Only changes to departments registered
+ * with the school are heard, so answers about anything else are computed every time and never kept. Adding the
+ * cache as a listener moves enrollment in the school's classes off the lock-free path, see {@link MutationListener}.
+ */
+public final class QueryCache implements MutationListener, AutoCloseable {
+    private final SchoolDataBase school;
+    private final CacheRegion<Clazz, String> summaries;
+    private final CacheRegion<LevelKey, VersionedList<Course>> levels;
+    private final CacheRegion<String, List<Meeting>> schedules;
+    private final CacheRegion<Course, Integer> openSeats;
+
+    /**
+     * The queries the cache answers, each with its own budget.
+     */
+    public enum Region {
+        CLASS_SUMMARY(4 << 20), LEVEL_CATALOG(1 << 20), INSTRUCTOR_SCHEDULE(1 << 20), OPEN_SEATS(256 << 10);
+
+        private final long defaultBudget;
+
+        Region(long defaultBudget) {
+            this.defaultBudget = defaultBudget;
+        }
+
+        /**
+         *
+         * @return returns the estimated bytes the region holds unless told otherwise
+         */
+        public long defaultBudget() {
+            return defaultBudget;
+        }
+    }
+
+    /**
+     * What a region has done so far.
+     * @param hits the number of answers found in the region
+     * @param misses the number of answers computed
+     * @param evictions the number of answers dropped to stay in the budget
+     * @param invalidations the number of answers dropped because of a change
+     * @param entries the number of answers held now
+     * @param bytes the estimated bytes held now
+     */
+    public record Stats(long hits, long misses, long evictions, long invalidations, int entries, long bytes) {
+
+        /**
+         *
+         * @return returns the share of lookups that were hits, 0 before the first lookup
+         */
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+    }
+
+    /**
+     * A weekly meeting of a class an instructor teaches.
+     * @param clazz the class
+     * @param time the meeting
+     */
+    public record Meeting(Clazz clazz, MeetingTime time) {
+    }
+
+    private record LevelKey(Department department, Department.Level level) {
+    }
+
+    /**
+     * constructor, gives every region its default budget
+     * @param school takes in the school whose queries are cached
+     */
+    public QueryCache(SchoolDataBase school) {
+        this(school, Map.of());
+    }
+
+    /**
+     * constructor
+     * @param school takes in the school whose queries are cached
+     * @param budgets takes in the estimated bytes each region may hold, regions left out get their default budget
+     */
+    public QueryCache(SchoolDataBase school, Map<Region, Long> budgets) {
+        this.school = school;
+        Map<Region, Long> budget = new EnumMap<>(Region.class);
+        for(Region region : Region.values()) budget.put(region, budgets.getOrDefault(region, region.defaultBudget()));
+        summaries = new CacheRegion<>(budget.get(Region.CLASS_SUMMARY), summary -> 40 + summary.length());
+        //the list shares its array with the catalog snapshot, only the view itself is extra
+        levels = new CacheRegion<>(budget.get(Region.LEVEL_CATALOG), courses -> 32);
+        schedules = new CacheRegion<>(budget.get(Region.INSTRUCTOR_SCHEDULE), meetings -> 16 + 40L * meetings.size());
+        openSeats = new CacheRegion<>(budget.get(Region.OPEN_SEATS), seats -> 16);
+        school.addListener(this);
+    }
+
+    /**
+     *
+     * @param clazz takes in a class
+     * @return returns the one line summary of the class, see {@link Clazz#toString()}
+     */
+    public String classSummary(Clazz clazz) {
+        return summaries.get(clazz, key -> clazz.toString(), watched(clazz.getCourse()));
+    }
+
+    /**
+     *
+     * @param department takes in a department
+     * @param level takes in a level of study
+     * @return returns the courses of the department at that level, see {@link Department#getCourses}
+     */
+    public VersionedList<Course> courses(Department department, Department.Level level) {
+        return levels.get(new LevelKey(department, level), key -> department.getCatalog().byLevel(level),
+                watched(department));
+    }
+
+    /**
+     *
+     * @param instructor takes in an instructor
+     * @return returns the meetings of every class the instructor teaches, in the order they happen in the week
+     */
+    public List<Meeting> schedule(Instructor instructor) {
+        VersionedList<Clazz> taught = instructor.listOfClasses();
+        boolean keep = true;
+        for(Clazz clazz : taught) keep &= watched(clazz.getCourse());
+        return schedules.get(instructor.getId(), key -> {
+            List<Meeting> meetings = new ArrayList<>();
+            for(Clazz clazz : instructor.listOfClasses())
+                for(MeetingTime time : clazz.getMeetingTimes()) meetings.add(new Meeting(clazz, time));
+            meetings.sort(Comparator.comparingInt(meeting -> meeting.time().startMinute()));
+            return List.copyOf(meetings);
+        }, keep);
+    }
+
+    /**
+     *
+     * @param course takes in a course
+     * @return returns the number of free seats over every class of the course
+     */
+    public int openSeats(Course course) {
+        return openSeats.get(course, key -> {
+            int open = 0;
+            for(Clazz clazz : course.listOfClasses()) open += Math.max(0, clazz.getCapacity() - clazz.getSeatsTaken());
+            return open;
+        }, watched(course));
+    }
+
+    /**
+     *
+     * @param region takes in a region
+     * @return returns what the region has done so far
+     */
+    public Stats stats(Region region) {
+        return switch(region) {
+            case CLASS_SUMMARY -> summaries.stats();
+            case LEVEL_CATALOG -> levels.stats();
+            case INSTRUCTOR_SCHEDULE -> schedules.stats();
+            case OPEN_SEATS -> openSeats.stats();
+        };
+    }
+
+    /**
+     * drops every answer
+     */
+    public void invalidateAll() {
+        summaries.clear();
+        levels.clear();
+        schedules.clear();
+        openSeats.clear();
+    }
+
+    /**
+     * stops listening to the school and drops every answer
+     */
+    @Override
+    public void close() {
+        school.removeListener(this);
+        invalidateAll();
+    }
+
+    private boolean watched(Course course) {
+        return watched(course.getDepartment());
+    }
+
+    private boolean watched(Department department) {
+        return department != null && school.findDepartment(department.getName()).orElse(null) == department;
+    }
+
+    private void courseChange(Department department) {
+        for(Department.Level level : Department.Level.values()) levels.invalidate(new LevelKey(department, level));
+    }
+
+    private void rosterChange(Clazz clazz) {
+        summaries.invalidate(clazz);
+        openSeats.invalidate(clazz.getCourse());
+    }
+
+    @Override
+    public void courseAdded(Department department, Course course) {
+        courseChange(department);
+    }
+
+    @Override
+    public void courseChanged(Department department, Course course) {
+        courseChange(department);
+        //a renamed course shows its new name in the summaries of its classes
+        for(Clazz clazz : course.listOfClasses()) summaries.invalidate(clazz);
+    }
+
+    @Override
+    public void courseRemoved(Department department, Course course) {
+        courseChange(department);
+    }
+
+    @Override
+    public void classAdded(Clazz clazz) {
+        openSeats.invalidate(clazz.getCourse());
+    }
+
+    @Override
+    public void studentEnrolled(Clazz clazz, Student student, EnrollmentResult result) {
+        rosterChange(clazz);
+    }
+
+    @Override
+    public void studentDropped(Clazz clazz, Student student) {
+        rosterChange(clazz);
+    }
+
+    @Override
+    public void studentPromoted(Clazz clazz, Student student) {
+        rosterChange(clazz);
+    }
+
+    @Override
+    public void studentMoved(Clazz from, Clazz to, Student student) {
+        rosterChange(from);
+        rosterChange(to);
+    }
+
+    @Override
+    public void meetingTimesChanged(Clazz clazz) {
+        Instructor instructor = clazz.getInstructor();
+        if(instructor != null) schedules.invalidate(instructor.getId());
+    }
+
+    @Override
+    public void instructorAssigned(Clazz clazz, Instructor instructor) {
+        summaries.invalidate(clazz);
+        if(instructor != null) schedules.invalidate(instructor.getId());
+    }
+
+    @Override
+    public void instructorRemoved(Clazz clazz, Instructor instructor) {
+        summaries.invalidate(clazz);
+        schedules.invalidate(instructor.getId());
+    }
+}
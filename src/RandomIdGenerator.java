@@ -0,0 +1,39 @@
+package miniprojects.schooldb;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The original id strategy. It draws random numbers and retries until the id has not been handed out before, so
+ * it slows down as the population grows and remembers every id it has ever created.
+ */
+public class RandomIdGenerator implements IdGenerator {
+    private final Set<String> ids = ConcurrentHashMap.newKeySet();
+    private final LongAdder retries = new LongAdder();
+
+    @Override
+    public String nextId(String firstName, String lastName) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while(true) {
+            int numb = random.nextInt(MIN_NUMBER, MAX_NUMBER + 1);
+            String uniqueId = IdGenerator.format(firstName, numb, lastName);
+            if(ids.add(uniqueId)) return uniqueId;
+            retries.increment();
+        }
+    }
+
+    @Override
+    public void claim(String id) {
+        ids.add(id);
+    }
+
+    /**
+     *
+     * @return returns the number of times a random id collided with an existing one
+     */
+    public long retries() {
+        return retries.sum();
+    }
+}
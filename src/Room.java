@@ -0,0 +1,23 @@
+package miniprojects.schooldb;
+
+/**
+ * A room classes can meet in.
+ * @param name the name of the room, for example "SCI 104"
+ * @param capacity the number of seats in the room
+ */
+public record Room(String name, int capacity) {
+
+    /**
+     * constructor
+     * @throws IllegalArgumentException when the name is blank or the room has no seats
+     */
+    public Room {
+        if(name == null || name.isBlank()) throw new IllegalArgumentException("Room must have a name");
+        if(capacity < 1) throw new IllegalArgumentException("Room must have at least one seat");
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + capacity + ")";
+    }
+}
@@ -1,9 +1,327 @@
 package miniprojects.schooldb;
 
+import miniprojects.schooldb.Course.Clazz;
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
-
+/**
+ * An in-memory store for the school. People are indexed by their id, courses by their name and course number,
+ * and classes by their course and section, so every lookup is a single hash lookup no matter how many classes
+ * the school offers. The school-wide {@link CourseCatalog} also answers prefix, course number, credit and
+ * department queries. Lookups can run from any number of threads while registration is going on.
+ */
 public class SchoolDataBase {
+    private final Map<String, Person> people;
+    private final CourseCatalog catalog = new CourseCatalog();
+    private final Map<SectionKey, Clazz> classes;
+    private final Map<String, Department> departments = new ConcurrentHashMap<>();
+    private final MutationListeners listeners = new MutationListeners();
+    private final PersonHandles handles = new PersonHandles();
+    private volatile WaitlistPriority reloadedPriority;
+
+    /**
+     * constructor for an empty school
+     */
+    public SchoolDataBase() {
+        this(16, 16);
+    }
+
+    /**
+     * constructor for a school whose size is known up front, such as one loaded from a snapshot, so the people and
+     * class indexes do not have to grow while it fills
+     * @param expectedPeople takes in the number of people the school will hold
+     * @param expectedClasses takes in the number of classes the school will hold
+     */
+    SchoolDataBase(int expectedPeople, int expectedClasses) {
+        people = new ConcurrentHashMap<>(expectedPeople);
+        classes = new ConcurrentHashMap<>(expectedClasses);
+    }
+
+    /**
+     * adds a listener that is told about every change to the school from now on
+     * @param listener takes in the listener
+     */
+    public void addListener(MutationListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * removes a listener added with {@link #addListener(MutationListener)}
+     * @param listener takes in the listener
+     */
+    public void removeListener(MutationListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     *
+     * @return returns the listener told about changes that belong to the school rather than to a department, such
+     * as posted grades
+     */
+    MutationListener listener() {
+        return listeners.active();
+    }
+
+    /**
+     * The priority of the classes with a priority waitlist that are loaded from a snapshot or a log, which only
+     * record that the class had one: the registrar priority of a {@link DegreeAudit} with the default requirements.
+     * @return returns the priority, the same one for every class of the school
+     */
+    WaitlistPriority reloadedPriority() {
+        WaitlistPriority priority = reloadedPriority;
+        if(priority == null) reloadedPriority = priority = WaitlistPriority.registrar(new DegreeAudit(this));
+        return priority;
+    }
+
+    /**
+     * Adds a department to the store. Departments are spread over the bins of a concurrent hash map, so threads
+     * registering or looking up different departments do not contend with each other. From now on the store's
+     * listeners hear about changes to the department's courses and classes.
+     * @param department takes in the department to add
+     * @throws IllegalArgumentException when a different department already has the same name
+     */
+    public void registerDepartment(Department department) {
+        Department existing = departments.putIfAbsent(department.getName(), department);
+        if(existing != null && existing != department)
+            throw new IllegalArgumentException("Department " + department.getName() + " is already registered");
+        if(existing == null) {
+            department.setListeners(listeners);
+            listeners.departmentRegistered(department);
+        }
+    }
+
+    /**
+     *
+     * @param name takes in the name of the department
+     * @return returns the department, if there is one
+     */
+    public Optional<Department> findDepartment(String name) {
+        return Optional.ofNullable(departments.get(name));
+    }
+
+    /**
+     *
+     * @return returns a read-only view of every registered department
+     */
+    public Collection<Department> departments() {
+        return Collections.unmodifiableCollection(departments.values());
+    }
+
+    /**
+     * adds a student to the store
+     * @param student takes in the student to add
+     * @throws IllegalArgumentException when a different person already has the student's id
+     */
+    public void registerStudent(Student student) {
+        registerPerson(student);
+    }
+
+    /**
+     * adds an instructor to the store
+     * @param instructor takes in the instructor to add
+     * @throws IllegalArgumentException when a different person already has the instructor's id
+     */
+    public void registerInstructor(Instructor instructor) {
+        registerPerson(instructor);
+    }
+
+    private void registerPerson(Person person) {
+        Person existing = people.putIfAbsent(person.getId(), person);
+        if(existing != null && existing != person)
+            throw new IllegalArgumentException("Id " + person.getId() + " is already taken");
+        if(existing == null) {
+            if(person.getHandle() < 0) person.setHandle(handles.add(person));
+            listeners.personRegistered(person);
+        }
+    }
+
+    /**
+     *
+     * @param person takes in a person
+     * @return returns the int handle this store gave the person, or -1 when the person is not registered here
+     */
+    int handleOf(Person person) {
+        int handle = person.getHandle();
+        return handle >= 0 && handles.get(handle) == person ? handle : -1;
+    }
+
+    /**
+     *
+     * @param handle takes in a handle given by {@link #handleOf(Person)}
+     * @return returns the student with the handle
+     */
+    Student studentAt(int handle) {
+        return (Student) handles.get(handle);
+    }
+
+    /**
+     * Adds a course and every class it currently offers to the store. Classes created for the course later on
+     * have to be added with {@link #registerClass(Clazz)}.
+     * @param course takes in the course to add
+     * @throws IllegalArgumentException when a different course already has the same name and course number
+     */
+    public void registerCourse(Course course) {
+        if(catalog.add(course)) course.setSchool(this);
+        else if(catalog.get(course.getKey()) != course)
+            throw new IllegalArgumentException(course.getKey() + " is already registered");
+        course.listOfClasses().forEach(this::registerClass);
+    }
+
+    /**
+     * re-indexes a registered course after its number of credits or its department changed. A registered course
+     * calls this itself when it changes.
+     * @param course takes in the course that changed
+     */
+    public void updateCourse(Course course) {
+        catalog.update(course);
+    }
+
+    /**
+     * re-indexes a registered course and its classes under the new key after the course was renamed
+     * @param course takes in the course that was renamed
+     * @param old takes in the key the course had before
+     */
+    void renameCourse(Course course, CourseKey old) {
+        if(!catalog.rename(course, old)) return;
+        for(Clazz clazz : course.listOfClasses()) {
+            classes.remove(new SectionKey(old, clazz.getSection()), clazz);
+            classes.putIfAbsent(clazz.getKey(), clazz);
+        }
+    }
+
+    /**
+     * adds a class to the store, along with its course when the course is not registered yet
+     * @param clazz takes in the class to add
+     * @throws IllegalArgumentException when a different class already has the same course and section
+     */
+    public void registerClass(Clazz clazz) {
+        Course course = clazz.getCourse();
+        if(catalog.add(course)) course.setSchool(this);
+        Clazz existing = classes.putIfAbsent(clazz.getKey(), clazz);
+        if(existing != null && existing != clazz)
+            throw new IllegalArgumentException(clazz.getKey() + " is already registered");
+    }
+
+    /**
+     *
+     * @param id takes in the id of the person
+     * @return returns the person with the id, if there is one
+     */
+    public Optional<Person> findPerson(String id) {
+        return Optional.ofNullable(people.get(id));
+    }
+
+    /**
+     *
+     * @param id takes in the id of the student
+     * @return returns the student with the id, if there is one
+     */
+    public Optional<Student> findStudent(String id) {
+        return people.get(id) instanceof Student student ? Optional.of(student) : Optional.empty();
+    }
+
+    /**
+     *
+     * @param id takes in the id of the instructor
+     * @return returns the instructor with the id, if there is one
+     */
+    public Optional<Instructor> findInstructor(String id) {
+        return people.get(id) instanceof Instructor instructor ? Optional.of(instructor) : Optional.empty();
+    }
+
+    /**
+     *
+     * @param key takes in the name and course number of the course
+     * @return returns the course, if there is one
+     */
+    public Optional<Course> findCourse(CourseKey key) {
+        return Optional.ofNullable(catalog.get(key));
+    }
+
+    /**
+     *
+     * @param name takes in the name of the course, such as CMP
+     * @param courseNumber takes in the course number
+     * @return returns the course, if there is one
+     */
+    public Optional<Course> findCourse(String name, int courseNumber) {
+        return findCourse(new CourseKey(name, courseNumber));
+    }
+
+    /**
+     *
+     * @param key takes in the course and section of the class
+     * @return returns the class, if there is one
+     */
+    public Optional<Clazz> findClass(SectionKey key) {
+        return Optional.ofNullable(classes.get(key));
+    }
+
+    /**
+     *
+     * @param name takes in the name of the course, such as CMP
+     * @param courseNumber takes in the course number
+     * @param section takes in the section of the class
+     * @return returns the class, if there is one
+     */
+    public Optional<Clazz> findClass(String name, int courseNumber, String section) {
+        return findClass(new SectionKey(new CourseKey(name, courseNumber), section));
+    }
+
+    /**
+     *
+     * @return returns a read-only view of every registered person
+     */
+    public Collection<Person> people() {
+        return Collections.unmodifiableCollection(people.values());
+    }
+
+    /**
+     *
+     * @return returns a read-only view of every registered course, sorted by name and course number
+     */
+    public Collection<Course> courses() {
+        return catalog.all();
+    }
+
+    /**
+     *
+     * @return returns the catalog of every registered course
+     */
+    public CourseCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     *
+     * @return returns a read-only view of every registered class
+     */
+    public Collection<Clazz> classes() {
+        return Collections.unmodifiableCollection(classes.values());
+    }
+
     public static void main(String[] args) {
+        SchoolDataBase school = new SchoolDataBase();
+        Department math = new Department("Math");
+        Instructor instructor = new Instructor("Ada", "Lovelace", LocalDate.of(1980, 12, 10),
+                Person.Gender.FEMALE, math);
+        Course course = new Course("MAT", 232, 3, math);
+        Clazz clazz = course.new Clazz("01", instructor);
+        Student student = new Student("Michael", "Joe", LocalDate.of(2004, 3, 21), Person.Gender.MALE);
+        clazz.addStudent(student);
+
+        school.registerDepartment(math);
+        school.registerInstructor(instructor);
+        school.registerStudent(student);
+        school.registerCourse(course);
+
+        System.out.println(school.findStudent(student.getId()).orElseThrow());
+        System.out.println(school.findCourse("mat", 232).orElseThrow());
+        System.out.println(school.findClass("MAT", 232, "01").orElseThrow());
+        System.out.println(school.getCatalog().byNumberRange(200, 299));
     }
 }
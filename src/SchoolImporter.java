@@ -0,0 +1,273 @@
+package miniprojects.schooldb;
+
+import miniprojects.schooldb.Course.Clazz;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Imports students, instructors, courses and classes from CSV exports into a school. One thread reads the file
+ * into batches of rows while the executor builds and registers the rows of earlier batches, so the import uses
+ * every core. Only a fixed number of batches exist, and the reader waits for a free one, so memory use stays the
+ * same no matter how big the file is. A row that cannot be imported is reported with its line and does not stop
+ * the import.
+ * <br>
+ * Every file starts with a header row, which is skipped. The columns are:
+ * <ul>
+ *     <li>students: id, first name, last name, date of birth, gender</li>
+ *     <li>instructors: id, first name, last name, date of birth, gender, department</li>
+ *     <li>courses: department, name, course number, number of credits</li>
+ *     <li>classes: course name, course number, section, capacity, waitlist capacity, instructor id</li>
+ * </ul>
+ * Rows are checked with {@link Validator#getDefault()}. Dates are written yyyy-mm-dd and genders as M, F or anything
+ * else for other. An empty id gives the person a new id. Departments are created the first time they are named.
+ * Import people and courses before the classes that refer to them, {@link #importAll(Path)} does this.
+ */
+public final class SchoolImporter {
+    private static final int MAX_ROW_BYTES = 4096;
+    private static final int MAX_FIELDS = 16;
+    private static final int READ_BUFFER = 1 << 16;
+
+    private final SchoolDataBase school;
+    private final Executor executor;
+    private final int batchRows;
+    private final int batches;
+    private final int maxErrors;
+    private final Map<String, Department> departments = new ConcurrentHashMap<>();
+
+    /**
+     * constructor, imports on the common fork-join pool in batches of 4096 rows
+     * @param school takes in the school to import into
+     */
+    public SchoolImporter(SchoolDataBase school) {
+        this(school, ForkJoinPool.commonPool(), 4096, ForkJoinPool.getCommonPoolParallelism() + 2, 1000);
+    }
+
+    /**
+     * constructor
+     * @param school takes in the school to import into
+     * @param executor takes in the executor that builds the rows of a batch
+     * @param batchRows takes in the number of rows in a batch
+     * @param batches takes in the number of batches, the most rows held in memory is batches times batchRows
+     * @param maxErrors takes in the number of row errors kept in a report, the rest are only counted
+     */
+    public SchoolImporter(SchoolDataBase school, Executor executor, int batchRows, int batches, int maxErrors) {
+        if(batchRows < 1 || batches < 1 || maxErrors < 0) throw new IllegalArgumentException("Invalid import sizes");
+        this.school = school;
+        this.executor = executor;
+        this.batchRows = batchRows;
+        this.batches = batches;
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * imports every file of a directory export that exists, in the order students.csv, instructors.csv,
+     * courses.csv and classes.csv
+     * @param directory takes in the directory holding the files
+     * @return returns the combined report of every file
+     * @throws IOException when a file cannot be read
+     */
+    public ImportReport importAll(Path directory) throws IOException {
+        ImportReport report = new ImportReport(0, 0, 0, List.of());
+        Path file;
+        if(Files.exists(file = directory.resolve("students.csv"))) report = report.plus(importStudents(file));
+        if(Files.exists(file = directory.resolve("instructors.csv"))) report = report.plus(importInstructors(file));
+        if(Files.exists(file = directory.resolve("courses.csv"))) report = report.plus(importCourses(file));
+        if(Files.exists(file = directory.resolve("classes.csv"))) report = report.plus(importClasses(file));
+        return report;
+    }
+
+    /**
+     * imports and registers students
+     * @param file takes in the CSV file
+     * @return returns what was imported
+     * @throws IOException when the file cannot be read
+     */
+    public ImportReport importStudents(Path file) throws IOException {
+        return run(file, (rows, row) -> {
+            String id = rows.string(row, 0);
+            LocalDate dob = birthDate(rows, row);
+            Student student = new Student(name(rows, row, 1, "first name"), name(rows, row, 2, "last name"), dob,
+                    gender(rows, row, 4), claimable(id));
+            school.registerStudent(student);
+        });
+    }
+
+    /**
+     * imports and registers instructors
+     * @param file takes in the CSV file
+     * @return returns what was imported
+     * @throws IOException when the file cannot be read
+     */
+    public ImportReport importInstructors(Path file) throws IOException {
+        return run(file, (rows, row) -> {
+            String id = rows.string(row, 0);
+            LocalDate dob = birthDate(rows, row);
+            String department = rows.string(row, 5);
+            Instructor instructor = new Instructor(name(rows, row, 1, "first name"), name(rows, row, 2, "last name"),
+                    dob, gender(rows, row, 4), department == null ? null : department(department), claimable(id));
+            school.registerInstructor(instructor);
+        });
+    }
+
+    /**
+     * imports courses and adds them to their department and the school
+     * @param file takes in the CSV file
+     * @return returns what was imported
+     * @throws IOException when the file cannot be read
+     */
+    public ImportReport importCourses(Path file) throws IOException {
+        return run(file, (rows, row) -> {
+            Department department = department(name(rows, row, 0, "department"));
+            CourseKey key = courseKey(rows, row, 1, 2);
+            int credits = rows.integer(row, 3, "number of credits");
+            if(school.findCourse(key).isPresent()) throw new IllegalArgumentException(key + " is already registered");
+            school.registerCourse(new Course(key.name(), key.courseNumber(), credits, department));
+        });
+    }
+
+    /**
+     * imports classes of courses that are already registered, and assigns their instructors
+     * @param file takes in the CSV file
+     * @return returns what was imported
+     * @throws IOException when the file cannot be read
+     */
+    public ImportReport importClasses(Path file) throws IOException {
+        return run(file, (rows, row) -> {
+            CourseKey key = courseKey(rows, row, 0, 1);
+            Course course = school.findCourse(key)
+                    .orElseThrow(() -> new IllegalArgumentException(key + " is not registered"));
+            String section = name(rows, row, 2, "section");
+            int capacity = rows.integer(row, 3, "capacity");
+            int waitlistCapacity = rows.isEmpty(row, 4) ? 0 : rows.integer(row, 4, "waitlist capacity");
+            String instructorId = rows.string(row, 5);
+            Instructor instructor = instructorId == null ? null : school.findInstructor(instructorId)
+                    .orElseThrow(() -> new IllegalArgumentException("Instructor " + instructorId + " is not registered"));
+            Clazz clazz;
+            //checking for the section and creating it has to happen as one step, or a duplicate row could slip in
+            synchronized(course) {
+                if(school.findClass(new SectionKey(key, section)).isPresent())
+                    throw new IllegalArgumentException(key + " " + section + " is already registered");
+                clazz = course.new Clazz(section, null, capacity, waitlistCapacity);
+                school.registerClass(clazz);
+            }
+            if(instructor != null && !instructor.addClass(clazz))
+                throw new IllegalArgumentException("Instructor " + instructorId + " cannot teach another class");
+        });
+    }
+
+    private interface RowHandler {
+        void handle(CsvReader.Rows rows, int row);
+    }
+
+    private ImportReport run(Path file, RowHandler handler) throws IOException {
+        String name = file.getFileName().toString();
+        BlockingQueue<CsvReader.Rows> free = new ArrayBlockingQueue<>(batches);
+        for(int i = 0; i < batches; i++) free.add(new CsvReader.Rows(batchRows, MAX_ROW_BYTES, MAX_FIELDS));
+        AtomicLong rowCount = new AtomicLong(), imported = new AtomicLong(), failed = new AtomicLong();
+        Queue<ImportReport.RowError> errors = new ConcurrentLinkedQueue<>();
+        boolean header = true;
+        try(CsvReader reader = new CsvReader(file, READ_BUFFER)) {
+            while(true) {
+                CsvReader.Rows rows = free.take();
+                if(!reader.read(rows)) {
+                    free.add(rows);
+                    break;
+                }
+                int first = header ? 1 : 0;
+                header = false;
+                Runnable batch = () -> {
+                    try {
+                        for(int row = first; row < rows.size(); row++) {
+                            if(rows.fields(row) == 1 && rows.isEmpty(row, 0)) continue;
+                            rowCount.incrementAndGet();
+                            String error = rows.error(row);
+                            if(error == null) {
+                                try {
+                                    handler.handle(rows, row);
+                                    imported.incrementAndGet();
+                                    continue;
+                                } catch (RuntimeException e) {
+                                    error = e.getMessage() != null ? e.getMessage() : e.toString();
+                                }
+                            }
+                            if(failed.incrementAndGet() <= maxErrors)
+                                errors.add(new ImportReport.RowError(name, rows.line(row), error));
+                        }
+                    } finally {
+                        free.add(rows);
+                    }
+                };
+                try {
+                    executor.execute(batch);
+                } catch (RuntimeException e) {
+                    free.add(rows);
+                    throw e;
+                }
+            }
+            //every batch is back once the executor is done with them
+            for(int i = 0; i < batches; i++) free.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while importing " + name);
+        }
+        List<ImportReport.RowError> sorted = new ArrayList<>(errors);
+        sorted.sort(Comparator.comparingLong(ImportReport.RowError::line));
+        return new ImportReport(rowCount.get(), imported.get(), failed.get(), List.copyOf(sorted));
+    }
+
+    private Department department(String name) {
+        return departments.computeIfAbsent(name, n -> school.findDepartment(n).orElseGet(() -> {
+            Department department = new Department(n);
+            school.registerDepartment(department);
+            return department;
+        }));
+    }
+
+    private String claimable(String id) {
+        if(id == null) return null;
+        if(school.findPerson(id).isPresent()) throw new IllegalArgumentException("Id " + id + " is already taken");
+        return id;
+    }
+
+    private static String name(CsvReader.Rows rows, int row, int field, String what) {
+        String value = rows.string(row, field);
+        if(value == null || value.isEmpty()) throw new IllegalArgumentException("Missing " + what);
+        return value;
+    }
+
+    private static LocalDate birthDate(CsvReader.Rows rows, int row) {
+        LocalDate dob = rows.date(row, 3, "date of birth");
+        Validator.getDefault().birthDate(dob).orThrow();
+        return dob;
+    }
+
+    private static Person.Gender gender(CsvReader.Rows rows, int row, int field) {
+        return switch (rows.initial(row, field)) {
+            case 'M' -> Person.Gender.MALE;
+            case 'F' -> Person.Gender.FEMALE;
+            default -> Person.Gender.OTHER;
+        };
+    }
+
+    private static CourseKey courseKey(CsvReader.Rows rows, int row, int nameField, int numberField) {
+        String name = name(rows, row, nameField, "course name");
+        int number = rows.integer(row, numberField, "course number");
+        Validator.getDefault().course(name, number).orThrow();
+        return new CourseKey(name, number);
+    }
+}
@@ -0,0 +1,330 @@
+package miniprojects.schooldb;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import miniprojects.schooldb.Course.Clazz;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A small HTTP front end for a school that answers in JSON. The routes are:
+ * <ul>
+ *     <li>POST /classes/{course}/{number}/{section}/enroll?student={id} enrolls a student</li>
+ *     <li>POST /classes/{course}/{number}/{section}/drop?student={id} drops a student</li>
+ *     <li>GET /classes/{course}/{number}/{section} gives the seated and wait-listed students of a class</li>
+ *     <li>GET /catalog?prefix=&amp;from=&amp;to=&amp;credits=&amp;department=&amp;limit= searches the courses</li>
+ *     <li>GET /instructors/{id}/schedule gives the classes an instructor teaches and when they meet</li>
+ * </ul>
+ * Every request runs on its own virtual thread when the runtime has them, and on a fixed pool of threads when it
+ * does not. Enrolling and dropping go through {@link SectionWriters}, so each class has a single writer, while reads
+ * run on the request thread against the school directly and scale with the cores.
+ */
+public final class SchoolServer implements AutoCloseable {
+    private final SchoolDataBase school;
+    private final HttpServer server;
+    private final ExecutorService requests;
+    private final SectionWriters writers;
+
+    /**
+     * constructor, the server does not answer until {@link #start()}
+     * @param school takes in the school to serve
+     * @param address takes in the address to listen on, port 0 picks a free port
+     * @param backlog takes in the number of connections the system queues before refusing more
+     * @throws IOException when the address cannot be bound
+     */
+    public SchoolServer(SchoolDataBase school, InetSocketAddress address, int backlog) throws IOException {
+        this.school = school;
+        server = HttpServer.create(address, backlog);
+        requests = requestExecutor();
+        writers = new SectionWriters(Runtime.getRuntime().availableProcessors());
+        server.setExecutor(requests);
+        server.createContext("/classes/", exchange -> handle(exchange, this::classes));
+        server.createContext("/catalog", exchange -> handle(exchange, this::catalog));
+        server.createContext("/instructors/", exchange -> handle(exchange, this::instructors));
+    }
+
+    /**
+     * @return returns an executor that starts a virtual thread per task, or a fixed pool on runtimes before virtual
+     * threads
+     */
+    private static ExecutorService requestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Math.max(64, Runtime.getRuntime().availableProcessors() * 16));
+        }
+    }
+
+    /**
+     * starts answering requests
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     *
+     * @return returns the address the server listens on
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * stops the server, letting requests in progress finish for up to a second
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        requests.shutdown();
+        writers.close();
+    }
+
+    private interface Route {
+        Response answer(String method, String[] path, Map<String, String> query);
+    }
+
+    private record Response(int status, String json) {
+        static Response ok(String json) {
+            return new Response(200, json);
+        }
+
+        static Response error(int status, String message) {
+            return new Response(status, "{\"error\":" + quote(message) + "}");
+        }
+    }
+
+    private void handle(HttpExchange exchange, Route route) throws IOException {
+        Response response;
+        try {
+            String[] path = Stream.of(exchange.getRequestURI().getRawPath().split("/"))
+                    .filter(part -> !part.isEmpty()).map(SchoolServer::decode).toArray(String[]::new);
+            response = route.answer(exchange.getRequestMethod(), path, query(exchange.getRequestURI().getRawQuery()));
+        } catch (NoSuchElementException e) {
+            response = Response.error(404, e.getMessage());
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            response = Response.error(400, e.getMessage());
+        } catch (RuntimeException e) {
+            response = Response.error(500, String.valueOf(e));
+        }
+        byte[] body = response.json().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(response.status(), body.length);
+        try(OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private Response classes(String method, String[] path, Map<String, String> query) {
+        if(path.length < 4 || path.length > 5) return Response.error(404, "Expected /classes/{course}/{number}/{section}");
+        SectionKey key = new SectionKey(new CourseKey(path[1], number(path[2], "course number")), path[3]);
+        Clazz clazz = school.findClass(key).orElseThrow(() -> new NoSuchElementException("No class " + key));
+        if(path.length == 4) {
+            if(!method.equals("GET")) return Response.error(405, "Use GET for a roster");
+            return Response.ok(roster(clazz));
+        }
+        if(!method.equals("POST")) return Response.error(405, "Use POST to " + path[4]);
+        String id = query.get("student");
+        if(id == null) throw new IllegalArgumentException("Missing student");
+        Student student = school.findStudent(id).orElseThrow(() -> new NoSuchElementException("No student " + id));
+        switch (path[4]) {
+            case "enroll" -> {
+                EnrollmentResult result = write(key, () -> clazz.enroll(student));
+                return Response.ok("{\"student\":" + quote(id) + ",\"result\":" + quote(result.name()) + "}");
+            }
+            case "drop" -> {
+                boolean dropped = write(key, () -> {
+                    boolean present = clazz.isSeatedOrWaiting(student);
+                    clazz.removeStudent(student);
+                    return present;
+                });
+                return Response.ok("{\"student\":" + quote(id) + ",\"dropped\":" + dropped + "}");
+            }
+            default -> {
+                return Response.error(404, "Unknown action " + path[4]);
+            }
+        }
+    }
+
+    private <T> T write(SectionKey key, Supplier<T> change) {
+        try {
+            return writers.write(key, change);
+        } catch (CompletionException e) {
+            if(e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    private static String roster(Clazz clazz) {
+        return "{\"class\":" + quote(clazz.getKey().toString()) + ",\"capacity\":" + clazz.getCapacity()
+                + ",\"waitlistCapacity\":" + clazz.getWaitlistCapacity()
+                + ",\"seated\":" + ids(clazz.roster()) + ",\"waitlisted\":" + ids(Arrays.asList(clazz.waitlistedStudents()))
+                + "}";
+    }
+
+    private Response catalog(String method, String[] path, Map<String, String> query) {
+        if(!method.equals("GET")) return Response.error(405, "Use GET for the catalog");
+        if(path.length != 1) return Response.error(404, "Expected /catalog");
+        CourseCatalog catalog = school.getCatalog();
+        //start from the smallest index that answers one of the filters, and check the others on what it gives
+        //course names are kept in upper case
+        String prefix = query.containsKey("prefix") ? query.get("prefix").toUpperCase() : null;
+        List<Course> start = prefix != null ? catalog.byPrefix(prefix) : catalog.all();
+        boolean byName = true;
+        int from = query.containsKey("from") ? number(query.get("from"), "from") : Integer.MIN_VALUE;
+        int to = query.containsKey("to") ? number(query.get("to"), "to") : Integer.MAX_VALUE;
+        if(query.containsKey("from") || query.containsKey("to")) {
+            List<Course> numbers = catalog.byNumberRange(from, to);
+            if(numbers.size() < start.size()) {
+                start = numbers;
+                byName = false;
+            }
+        }
+        boolean byCredits = query.containsKey("credits");
+        int credits = byCredits ? number(query.get("credits"), "credits") : 0;
+        if(byCredits) {
+            List<Course> worth = catalog.byCredits(credits);
+            if(worth.size() < start.size()) {
+                start = worth;
+                byName = false;
+            }
+        }
+        String department = query.get("department");
+        Department registered = department == null ? null : school.findDepartment(department).orElse(null);
+        if(registered != null) {
+            List<Course> offered = catalog.byDepartment(registered);
+            if(offered.size() < start.size()) {
+                start = offered;
+                byName = true;
+            }
+        }
+        Stream<Course> courses = start.stream()
+                .filter(course -> prefix == null || course.getName().startsWith(prefix))
+                .filter(course -> course.getCourseNumber() >= from && course.getCourseNumber() <= to)
+                .filter(course -> !byCredits || course.getNumOfCredits() == credits)
+                .filter(course -> department == null || course.getDepartment() != null
+                        && course.getDepartment().getName().equals(department));
+        //the number and credit indexes are not sorted by name, the answer always is
+        if(!byName) courses = courses.sorted();
+        int limit = query.containsKey("limit") ? number(query.get("limit"), "limit") : 100;
+        return Response.ok(courses.limit(Math.max(0, limit)).map(course -> "{\"name\":" + quote(course.getName())
+                + ",\"number\":" + course.getCourseNumber() + ",\"credits\":" + course.getNumOfCredits()
+                + ",\"department\":" + (course.getDepartment() == null ? "null" : quote(course.getDepartment().getName()))
+                + "}").collect(Collectors.joining(",", "[", "]")));
+    }
+
+    private Response instructors(String method, String[] path, Map<String, String> query) {
+        if(!method.equals("GET")) return Response.error(405, "Use GET for a schedule");
+        if(path.length != 3 || !path[2].equals("schedule")) return Response.error(404, "Expected /instructors/{id}/schedule");
+        Instructor instructor = school.findInstructor(path[1])
+                .orElseThrow(() -> new NoSuchElementException("No instructor " + path[1]));
+        return Response.ok(instructor.listOfClasses().stream().map(clazz -> "{\"class\":" + quote(clazz.getKey().toString())
+                + ",\"meetings\":" + clazz.getMeetingTimes().stream().map(time -> "{\"day\":" + quote(time.day().name())
+                + ",\"start\":" + quote(time.start().toString()) + ",\"end\":" + quote(time.end().toString()) + "}")
+                .collect(Collectors.joining(",", "[", "]")) + "}").collect(Collectors.joining(",", "[", "]")));
+    }
+
+    private static String ids(List<Student> students) {
+        return students.stream().map(student -> quote(student.getId())).collect(Collectors.joining(",", "[", "]"));
+    }
+
+    private static int number(String value, String what) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + what + ": " + value);
+        }
+    }
+
+    private static String decode(String part) {
+        return URLDecoder.decode(part, StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> query(String raw) {
+        Map<String, String> query = new HashMap<>();
+        if(raw == null || raw.isEmpty()) return query;
+        for(String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if(eq < 0) query.put(decode(pair), "");
+            else query.put(decode(pair.substring(0, eq)), decode(pair.substring(eq + 1)));
+        }
+        return query;
+    }
+
+    /**
+     * @return returns the text as a JSON string
+     */
+    static String quote(String text) {
+        StringBuilder json = new StringBuilder(text.length() + 2).append('"');
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if(c < 0x20) json.append(String.format("\\u%04x", (int) c));
+                    else json.append(c);
+                }
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    /**
+     * Serves a school on a port, 8080 by default. With a directory of CSV exports the school is imported from it,
+     * see {@link SchoolImporter#importAll(Path)}, otherwise a small demo school is served.
+     * @param args takes in the port and the directory to import from, both optional
+     */
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        SchoolDataBase school = new SchoolDataBase();
+        if(args.length > 1) System.out.println(new SchoolImporter(school).importAll(Path.of(args[1])));
+        else demo(school);
+        SchoolServer server = new SchoolServer(school, new InetSocketAddress(port), 0);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        server.start();
+        System.out.println("Serving " + school.classes().size() + " classes on " + server.getAddress());
+    }
+
+    private static void demo(SchoolDataBase school) {
+        Department math = new Department("Math");
+        school.registerDepartment(math);
+        Instructor instructor = new Instructor("Ada", "Lovelace", LocalDate.of(1980, 12, 10), Person.Gender.FEMALE,
+                math);
+        school.registerInstructor(instructor);
+        Course course = new Course("MAT", 232, 3, math);
+        school.registerCourse(course);
+        Clazz clazz = course.new Clazz("01", instructor, 30, 10);
+        clazz.setMeetingTimes(List.of(new MeetingTime(DayOfWeek.MONDAY, LocalTime.of(9, 0), LocalTime.of(10, 15)),
+                new MeetingTime(DayOfWeek.WEDNESDAY, LocalTime.of(9, 0), LocalTime.of(10, 15))));
+        school.registerClass(clazz);
+        instructor.addClass(clazz);
+        //the last few students are left out, so there are students to enroll
+        for(int i = 0; i < 40; i++) {
+            Student student = new Student("Student", "Demo", LocalDate.of(2004, 3, 21), Person.Gender.OTHER);
+            school.registerStudent(student);
+            if(i < 35) clazz.enroll(student);
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package miniprojects.schooldb;
+
+import miniprojects.schooldb.Course.Clazz;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the whole school to a binary snapshot and loads it back. The snapshot is columnar: every field of every
+ * entity is stored as one int column, strings are stored once in a shared table, and people, departments, courses
+ * and classes refer to each other by their index in their own table, so two departments with the same name stay
+ * apart. Loading maps the file into memory and reads each column with a single bulk copy, without Java
+ * serialization, then builds the school straight from the columns: the people are not validated again, their ids
+ * are claimed in one pass and the rosters are seated as they were, without going through enrollment. A class with a
+ * priority waitlist keeps the tiers and arrival order of its waiting students, and gets the registrar priority for
+ * the students that join after the load, see {@link SchoolDataBase#reloadedPriority()}.
+ * <br>
+ * Layout, every value is a 4-byte int: a header of {@value #HEADER_INTS} ints, the string offsets followed by the
+ * UTF-8 string bytes padded to a multiple of 4, then the department, person, course and class columns, and finally
+ * the roster and waitlist columns, which hold person indexes in seat order and in waitlist order with the tier and
+ * arrival of every waiting student, the meeting column, which holds the meeting times of every class packed by
+ * {@link MeetingTime#encode()}, and the transcript columns, which hold every posted grade.
+ */
+final class SchoolSnapshot {
+    static final int MAGIC = 0x5343_4442;
+    static final int VERSION = 5;
+    private static final int HEADER_INTS = 12;
+    private static final int NONE = -1;
+    private static final int STUDENT = 0, INSTRUCTOR = 1, EMPLOYEE = 2;
+    private static final int TEACHES = 1, COMPACT_ROSTER = 2, PRIORITY_WAITLIST = 4;
+    private static final int REGISTERED = 1;
+
+    private SchoolSnapshot() {
+    }
+
+    /**
+     * writes every department, person, course and class of the school to a snapshot file. The file is written next
+     * to the target and moved into place, so a crash never leaves a half written snapshot behind.
+     * @param school takes in the school to write
+     * @param file takes in the file to write
+     * @throws IOException when the file cannot be written
+     */
+    static void write(SchoolDataBase school, Path file) throws IOException {
+        Tables tables = new Tables(school);
+        Strings strings = new Strings();
+
+        int[] departmentNames = new int[tables.departments.size()], departmentFlags = new int[departmentNames.length];
+        for(int i = 0; i < departmentNames.length; i++) {
+            Department department = tables.departments.get(i);
+            departmentNames[i] = strings.add(department.getName());
+            //a department can share its name with the registered one without being registered itself
+            boolean registered = school.findDepartment(department.getName()).orElse(null) == department;
+            departmentFlags[i] = registered ? REGISTERED : 0;
+        }
+
+        int people = tables.people.size();
+        int[] flags = new int[people], firstNames = new int[people], lastNames = new int[people], ids = new int[people];
+        int[] births = new int[people], personDepartments = new int[people], transcriptEnds = new int[people];
+        IntList gradeCourses = new IntList(), gradeNumbers = new IntList(), gradeCredits = new IntList();
+        IntList gradeTerms = new IntList(), grades = new IntList();
+        for(int i = 0; i < people; i++) {
+            Person person = tables.people.get(i);
+            int kind = person instanceof Student ? STUDENT : person instanceof Instructor ? INSTRUCTOR : EMPLOYEE;
+            flags[i] = kind | person.getGender().ordinal() << 8;
+            firstNames[i] = strings.add(person.getFirstName());
+            lastNames[i] = strings.add(person.getLastName());
+            ids[i] = strings.add(person.getId());
+            births[i] = (int) person.getDob().toEpochDay();
+            //the department of an instructor, the major of a student
+            personDepartments[i] = person instanceof Instructor instructor ? tables.index(instructor.getDepartment())
+                    : person instanceof Student student ? tables.index(student.getMajor()) : NONE;
+            if(person instanceof Student student) {
+                for(Transcript.Entry entry : student.getTranscript().entries()) {
+                    gradeCourses.add(strings.add(entry.course().name()));
+                    gradeNumbers.add(entry.course().courseNumber());
+                    gradeCredits.add(entry.credits());
+                    gradeTerms.add(entry.term().year() << 2 | entry.term().season().ordinal());
+                    grades.add(entry.grade().ordinal());
+                }
+            }
+            transcriptEnds[i] = grades.size;
+        }
+
+        int courses = tables.courses.size();
+        int[] courseNames = new int[courses], numbers = new int[courses], credits = new int[courses];
+        int[] courseDepartments = new int[courses];
+        for(int i = 0; i < courses; i++) {
+            Course course = tables.courses.get(i);
+            courseNames[i] = strings.add(course.getName());
+            numbers[i] = course.getCourseNumber();
+            credits[i] = course.getNumOfCredits();
+            courseDepartments[i] = tables.index(course.getDepartment());
+        }
+
+        int sections = tables.classes.size();
+        int[] sectionCourses = new int[sections], sectionNames = new int[sections], capacities = new int[sections];
+        int[] waitlistCapacities = new int[sections], instructors = new int[sections], sectionFlags = new int[sections];
+        int[] rosterEnds = new int[sections], waitlistEnds = new int[sections], meetingEnds = new int[sections];
+        int[] roomNames = new int[sections], roomCapacities = new int[sections], waitlistArrivals = new int[sections];
+        IntList roster = new IntList(), waitlist = new IntList(), meetings = new IntList();
+        IntList waitlistTiers = new IntList(), waitlistJoined = new IntList();
+        for(int i = 0; i < sections; i++) {
+            Clazz clazz = tables.classes.get(i);
+            sectionCourses[i] = tables.courseIndex.get(clazz.getCourse());
+            sectionNames[i] = strings.add(clazz.getSection());
+            capacities[i] = clazz.getCapacity();
+            waitlistCapacities[i] = clazz.getWaitlistCapacity();
+            instructors[i] = tables.index(clazz.getInstructor());
+            sectionFlags[i] = (clazz.getInstructor() != null && clazz.getInstructor().teachesClass(clazz) ? TEACHES : 0)
+                    | (clazz.hasCompactRoster() ? COMPACT_ROSTER : 0)
+                    | (clazz.hasPriorityWaitlist() ? PRIORITY_WAITLIST : 0);
+            Room room = clazz.getRoom();
+            roomNames[i] = room == null ? NONE : strings.add(room.name());
+            roomCapacities[i] = room == null ? 0 : room.capacity();
+            for(Student student : clazz.getStudents()) roster.add(tables.index(student));
+            Waitlist.Order order = clazz.waitlistOrder();
+            //arrival numbers count every student that ever joined, only how far apart they are matters
+            long base = order.arrivals();
+            for(long joined : order.joined()) base = Math.min(base, joined);
+            if(order.arrivals() - base > Integer.MAX_VALUE)
+                throw new IOException(clazz.getKey() + " has too long a waitlist history for a snapshot");
+            for(int j = 0; j < order.students().length; j++) {
+                waitlist.add(tables.index(order.students()[j]));
+                waitlistTiers.add(order.tiers()[j]);
+                waitlistJoined.add((int) (order.joined()[j] - base));
+            }
+            waitlistArrivals[i] = (int) (order.arrivals() - base);
+            for(MeetingTime meeting : clazz.getMeetingTimes()) meetings.add(meeting.encode());
+            rosterEnds[i] = roster.size;
+            waitlistEnds[i] = waitlist.size;
+            meetingEnds[i] = meetings.size;
+        }
+
+        byte[] stringBytes = strings.bytes();
+        int paddedBytes = (stringBytes.length + 3) & ~3;
+        long size = 4L * (HEADER_INTS + strings.offsets.size + 2L * departmentNames.length + 7L * people + 4L * courses
+                + 12L * sections + roster.size + 3L * waitlist.size + meetings.size + 5L * grades.size) + paddedBytes;
+        if(size > Integer.MAX_VALUE) throw new IOException("School is too large for a single snapshot file");
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            IntBuffer ints = buffer.asIntBuffer();
+            ints.put(new int[] {MAGIC, VERSION, strings.offsets.size - 1, stringBytes.length, departmentNames.length,
+                    people, courses, sections, roster.size, waitlist.size, meetings.size, grades.size});
+            ints.put(strings.offsets.values, 0, strings.offsets.size);
+            buffer.position(ints.position() * 4);
+            buffer.put(stringBytes);
+            ints = buffer.position(buffer.position() + paddedBytes - stringBytes.length).slice().asIntBuffer();
+            for(int[] column : List.of(departmentNames, departmentFlags, flags, firstNames, lastNames, ids, births,
+                    personDepartments, transcriptEnds, courseNames, numbers, credits, courseDepartments, sectionCourses,
+                    sectionNames, capacities, waitlistCapacities, instructors, sectionFlags, rosterEnds, waitlistEnds,
+                    meetingEnds, roomNames, roomCapacities, waitlistArrivals)) ints.put(column);
+            for(IntList column : List.of(roster, waitlist, waitlistTiers, waitlistJoined, meetings, gradeCourses,
+                    gradeNumbers, gradeCredits, gradeTerms, grades)) ints.put(column.values, 0, column.size);
+            buffer.force();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * loads a school from a snapshot file
+     * @param file takes in the snapshot file
+     * @return returns a new store holding everything in the snapshot
+     * @throws IOException when the file cannot be read or is not a snapshot of this version
+     */
+    static SchoolDataBase load(Path file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            IntBuffer ints = buffer.asIntBuffer();
+            if(ints.remaining() < HEADER_INTS || ints.get() != MAGIC) throw new IOException(file + " is not a school snapshot");
+            int version = ints.get();
+            if(version != VERSION) throw new IOException("Unsupported snapshot version " + version);
+            int stringCount = ints.get(), stringLength = ints.get(), departmentCount = ints.get(), people = ints.get();
+            int courses = ints.get(), sections = ints.get(), rosterSize = ints.get(), waitlistSize = ints.get();
+            int meetingCount = ints.get(), gradeCount = ints.get();
+
+            int[] offsets = column(ints, stringCount + 1);
+            byte[] stringBytes = new byte[stringLength];
+            buffer.position(ints.position() * 4).get(stringBytes);
+            String[] strings = new String[stringCount];
+            for(int i = 0; i < stringCount; i++)
+                strings[i] = new String(stringBytes, offsets[i], offsets[i + 1] - offsets[i], StandardCharsets.UTF_8);
+            ints = buffer.position(buffer.position() + ((stringLength + 3) & ~3) - stringLength).slice().asIntBuffer();
+
+            int[] departmentNames = column(ints, departmentCount), departmentFlags = column(ints, departmentCount);
+            int[] flags = column(ints, people), firstNames = column(ints, people), lastNames = column(ints, people);
+            int[] ids = column(ints, people), births = column(ints, people), personDepartments = column(ints, people);
+            int[] transcriptEnds = column(ints, people);
+            int[] courseNames = column(ints, courses), numbers = column(ints, courses), credits = column(ints, courses);
+            int[] courseDepartments = column(ints, courses);
+            int[] sectionCourses = column(ints, sections), sectionNames = column(ints, sections);
+            int[] capacities = column(ints, sections), waitlistCapacities = column(ints, sections);
+            int[] instructors = column(ints, sections), sectionFlags = column(ints, sections);
+            int[] rosterEnds = column(ints, sections), waitlistEnds = column(ints, sections);
+            int[] meetingEnds = column(ints, sections), roomNames = column(ints, sections);
+            int[] roomCapacities = column(ints, sections), waitlistArrivals = column(ints, sections);
+            int[] roster = column(ints, rosterSize), waitlist = column(ints, waitlistSize);
+            int[] waitlistTiers = column(ints, waitlistSize), waitlistJoined = column(ints, waitlistSize);
+            int[] meetings = column(ints, meetingCount);
+            int[] gradeCourses = column(ints, gradeCount), gradeNumbers = column(ints, gradeCount);
+            int[] gradeCredits = column(ints, gradeCount), gradeTerms = column(ints, gradeCount);
+            int[] grades = column(ints, gradeCount);
+
+            SchoolDataBase school = new SchoolDataBase(people, sections);
+            Department[] departments = new Department[departmentCount];
+            for(int i = 0; i < departmentCount; i++) {
+                departments[i] = new Department(strings[departmentNames[i]]);
+                if((departmentFlags[i] & REGISTERED) != 0) school.registerDepartment(departments[i]);
+            }
+
+            Person.Gender[] genders = Person.Gender.values();
+            Term.Season[] seasons = Term.Season.values();
+            Grade[] gradeValues = Grade.values();
+            Person[] persons = new Person[people];
+            String[] personIds = new String[people];
+            //birth dates repeat a lot, so people born on the same day share one date
+            Map<Integer, LocalDate> dates = new HashMap<>();
+            for(int i = 0; i < people; i++) {
+                String first = strings[firstNames[i]], last = strings[lastNames[i]], id = strings[ids[i]];
+                LocalDate dob = dates.computeIfAbsent(births[i], LocalDate::ofEpochDay);
+                Person.Gender gender = genders[flags[i] >>> 8];
+                personIds[i] = id;
+                switch (flags[i] & 0xFF) {
+                    case STUDENT -> {
+                        Student student = new Student(id, first, last, dob, gender);
+                        if(personDepartments[i] != NONE) student.setMajor(departments[personDepartments[i]]);
+                        for(int j = i == 0 ? 0 : transcriptEnds[i - 1]; j < transcriptEnds[i]; j++) {
+                            CourseKey course = new CourseKey(strings[gradeCourses[j]], gradeNumbers[j]);
+                            Term term = new Term(gradeTerms[j] >> 2, seasons[gradeTerms[j] & 3]);
+                            student.getTranscript().post(new Transcript.Entry(course, gradeCredits[j], term,
+                                    gradeValues[grades[j]]));
+                        }
+                        school.registerStudent(student);
+                        persons[i] = student;
+                    }
+                    case INSTRUCTOR -> {
+                        Department department = personDepartments[i] == NONE ? null : departments[personDepartments[i]];
+                        Instructor instructor = new Instructor(id, first, last, dob, gender, department);
+                        school.registerInstructor(instructor);
+                        persons[i] = instructor;
+                    }
+                    default -> persons[i] = new Employee(id, first, last, dob, gender);
+                }
+            }
+            Person.getIdGenerator().claimAll(personIds);
+
+            Course[] courseTable = new Course[courses];
+            for(int i = 0; i < courses; i++) {
+                Department department = courseDepartments[i] == NONE ? null : departments[courseDepartments[i]];
+                courseTable[i] = new Course(strings[courseNames[i]], numbers[i], credits[i], department);
+            }
+
+            for(int i = 0, rosterStart = 0, waitlistStart = 0, meetingStart = 0; i < sections; i++) {
+                Instructor instructor = instructors[i] == NONE ? null : (Instructor) persons[instructors[i]];
+                Course course = courseTable[sectionCourses[i]];
+                Clazz clazz = (sectionFlags[i] & PRIORITY_WAITLIST) != 0
+                        ? course.new Clazz(strings[sectionNames[i]], instructor, capacities[i], waitlistCapacities[i],
+                                school.reloadedPriority())
+                        : course.new Clazz(strings[sectionNames[i]], instructor, capacities[i], waitlistCapacities[i],
+                                (sectionFlags[i] & COMPACT_ROSTER) != 0 ? school : null);
+                if(roomNames[i] != NONE) clazz.setRoom(new Room(strings[roomNames[i]], roomCapacities[i]));
+                List<MeetingTime> times = new ArrayList<>(meetingEnds[i] - meetingStart);
+                for(int j = meetingStart; j < meetingEnds[i]; j++) times.add(MeetingTime.decode(meetings[j]));
+                if(!times.isEmpty()) clazz.setMeetingTimes(times);
+                meetingStart = meetingEnds[i];
+                if((sectionFlags[i] & TEACHES) != 0) instructor.addClass(clazz);
+                int waiting = waitlistEnds[i] - waitlistStart;
+                Student[] waitingStudents = new Student[waiting];
+                int[] tiers = new int[waiting];
+                long[] joined = new long[waiting];
+                for(int j = 0; j < waiting; j++) {
+                    waitingStudents[j] = (Student) persons[waitlist[waitlistStart + j]];
+                    tiers[j] = waitlistTiers[waitlistStart + j];
+                    joined[j] = waitlistJoined[waitlistStart + j];
+                }
+                clazz.restore(students(persons, roster, rosterStart, rosterEnds[i]),
+                        new Waitlist.Order(waitingStudents, tiers, joined, waitlistArrivals[i]));
+                rosterStart = rosterEnds[i];
+                waitlistStart = waitlistEnds[i];
+            }
+            for(Course course : courseTable) school.registerCourse(course);
+            return school;
+        }
+    }
+
+    private static int[] column(IntBuffer ints, int length) throws IOException {
+        if(ints.remaining() < length) throw new IOException("Snapshot is truncated");
+        int[] column = new int[length];
+        ints.get(column);
+        return column;
+    }
+
+    private static List<Student> students(Person[] persons, int[] indexes, int from, int to) {
+        List<Student> students = new ArrayList<>(to - from);
+        for(int i = from; i < to; i++) students.add((Student) persons[indexes[i]]);
+        return students;
+    }
+
+    /**
+     * Numbers every department, person, course and class reachable from the school.
+     */
+    private static final class Tables {
+        final List<Department> departments = new ArrayList<>();
+        final List<Person> people = new ArrayList<>();
+        final List<Course> courses = new ArrayList<>();
+        final List<Clazz> classes = new ArrayList<>();
+        final Map<Department, Integer> departmentIndex = new IdentityHashMap<>();
+        final Map<Person, Integer> personIndex = new IdentityHashMap<>();
+        final Map<Course, Integer> courseIndex = new IdentityHashMap<>();
+
+        Tables(SchoolDataBase school) {
+            school.departments().forEach(this::add);
+            school.people().forEach(this::add);
+            for(Course course : school.courses()) {
+                add(course.getDepartment());
+                courseIndex.put(course, courses.size());
+                courses.add(course);
+                for(Clazz clazz : course.listOfClasses()) {
+                    classes.add(clazz);
+                    add(clazz.getInstructor());
+                    for(Student student : clazz.getStudents()) add(student);
+                    for(Student student : clazz.waitlistedStudents()) add(student);
+                }
+            }
+        }
+
+        private void add(Department department) {
+            if(department != null && departmentIndex.putIfAbsent(department, departments.size()) == null)
+                departments.add(department);
+        }
+
+        private void add(Person person) {
+            if(person == null || personIndex.putIfAbsent(person, people.size()) != null) return;
+            people.add(person);
+            if(person instanceof Instructor instructor) add(instructor.getDepartment());
+            if(person instanceof Student student) add(student.getMajor());
+        }
+
+        int index(Department department) {
+            return department == null ? NONE : departmentIndex.get(department);
+        }
+
+        int index(Person person) {
+            return person == null ? NONE : personIndex.get(person);
+        }
+    }
+
+    /**
+     * The shared string table, every distinct string is stored once.
+     */
+    private static final class Strings {
+        final Map<String, Integer> index = new HashMap<>();
+        final List<byte[]> encoded = new ArrayList<>();
+        final IntList offsets = new IntList();
+
+        Strings() {
+            offsets.add(0);
+        }
+
+        int add(String value) {
+            return index.computeIfAbsent(value, v -> {
+                byte[] bytes = v.getBytes(StandardCharsets.UTF_8);
+                encoded.add(bytes);
+                offsets.add(offsets.values[offsets.size - 1] + bytes.length);
+                return encoded.size() - 1;
+            });
+        }
+
+        byte[] bytes() {
+            byte[] all = new byte[offsets.values[offsets.size - 1]];
+            for(int i = 0; i < encoded.size(); i++)
+                System.arraycopy(encoded.get(i), 0, all, offsets.values[i], encoded.get(i).length);
+            return all;
+        }
+    }
+
+    /**
+     * A growable int column.
+     */
+    private static final class IntList {
+        int[] values = new int[16];
+        int size;
+
+        void add(int value) {
+            if(size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package miniprojects.schooldb;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Holds the seated and wait-listed students of a class. Every implementation is safe to use from many threads,
+ * never seats more students than the class has seats, and promotes wait-listed students in the order they joined
+ * the waitlist unless it was given a {@link Waitlist} with another order.
+ * @see ConcurrentSeatAllocator
+ * @see CompactSeatAllocator
+ */
+interface SeatAllocator {
+
+    /**
+     * Gives the student a seat, or puts them on the waitlist when the class is full. Adding a student that is
+     * already seated or waiting does nothing.
+     * @param student takes in the student to add
+     * @return returns where the student ended up
+     */
+    EnrollmentResult add(Student student);
+
+    /**
+     * adds a batch of students, seating them in iteration order, wait-listing the overflow and rejecting the rest
+     * @param students takes in the students to add
+     * @return returns the result for each student, in the iteration order of the collection
+     */
+    EnrollmentResult[] addAll(Collection<? extends Student> students);
+
+    /**
+     * Fills an empty allocator with the students of a snapshot, seating the first list in order and putting the
+     * waiting students back on the waitlist in their places. Nobody is checked for being in the class twice and
+     * nobody is promoted, so only the snapshot loader calls this.
+     * @param seated takes in the seated students
+     * @param waiting takes in the wait-listed students, as {@link #waitlistOrder()} gave them
+     * @throws IllegalArgumentException when the students do not fit in the seats or on the waitlist
+     */
+    void restore(List<Student> seated, Waitlist.Order waiting);
+
+    /**
+     * Removes the student from their seat or from the waitlist. A freed seat goes to the head of the waitlist.
+     * @param student takes in the student to remove
+     * @return returns true if the student was seated or wait-listed in this class
+     */
+    boolean remove(Student student);
+
+    /**
+     * removes the student from the waitlist, leaving them alone when they are seated
+     * @param student takes in the student to remove
+     * @return returns true if the student was wait-listed in this class
+     */
+    boolean removeWaiting(Student student);
+
+    /**
+     *
+     * @param student takes in the student to look for
+     * @return returns ENROLLED or WAITLISTED for a student in the class, or null for a student that is not
+     */
+    EnrollmentResult find(Student student);
+
+    /**
+     *
+     * @param student takes in the student to look for
+     * @return returns true if the student is seated or wait-listed
+     */
+    default boolean contains(Student student) {
+        return find(student) != null;
+    }
+
+    /**
+     *
+     * @return returns the number of seats that are taken
+     */
+    int seatsTaken();
+
+    /**
+     *
+     * @return returns the number of wait-listed students
+     */
+    int waitlistSize();
+
+    /**
+     *
+     * @return returns the number of seats in the class
+     */
+    int capacity();
+
+    /**
+     *
+     * @return returns the number of students that can be wait-listed
+     */
+    int waitlistCapacity();
+
+    /**
+     *
+     * @return returns a copy of the seated students
+     */
+    Student[] students();
+
+    /**
+     *
+     * @return returns a copy of the wait-listed students in the order they will be promoted
+     */
+    Student[] waitlisted();
+
+    /**
+     *
+     * @return returns the wait-listed students in the order they will be promoted, with what the waitlist needs to
+     * take them back in the same places, see {@link Waitlist#order()}
+     */
+    Waitlist.Order waitlistOrder();
+}
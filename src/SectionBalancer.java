@@ -0,0 +1,235 @@
+package miniprojects.schooldb;
+
+import miniprojects.schooldb.Course.Clazz;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the sections of a course evenly filled. New students can be sent to the least filled section of a course
+ * with {@link #enroll(Student, Course)}, and {@link #balance(Course)} moves wait-listed students into open seats of
+ * sibling sections, longest waiting first, and opens an overflow section when too many students are still waiting.
+ * {@link #start(Duration)} balances every course of the school in the background.
+ * <br>
+ * Balancing runs alongside live enrollment without a global lock. A move locks the two sections, gives the student
+ * a seat in the new section and only then takes them off the old waitlist, so nobody is ever out of both. When the
+ * student was promoted or dropped in the meantime, the seat is given back. A move is counted and reported as one
+ * move, see {@link MutationListener#studentMoved}, and a section that turns out to be full is left as it was, so
+ * trying sections never shows up as enrollments and drops. Only one balance of a course runs at a time, balances of
+ * different courses run side by side. A section is not compatible for a student whose schedule it conflicts with,
+ * which includes sections meeting at the same time as the one the student waits for.
+ */
+public final class SectionBalancer implements AutoCloseable {
+    private final SchoolDataBase school;
+    private final int batchSize;
+    private final int overflowThreshold;
+    private final int overflowCapacity;
+    private final int overflowWaitlistCapacity;
+    private final Set<CourseKey> balancing = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService background;
+
+    /**
+     * What one balance did.
+     * @param moved the number of wait-listed students that got a seat in another section
+     * @param opened the number of overflow sections opened
+     */
+    public record Balance(int moved, int opened) {
+        static final Balance NONE = new Balance(0, 0);
+
+        Balance plus(Balance other) {
+            return new Balance(moved + other.moved, opened + other.opened);
+        }
+    }
+
+    /**
+     * Where a student ended up.
+     * @param clazz the section the student was added to, or null when no section would take them
+     * @param result whether the student was enrolled, wait-listed, rejected or has a schedule conflict
+     */
+    public record Placement(Clazz clazz, EnrollmentResult result) {
+    }
+
+    /**
+     * constructor, moves up to 100 students per balance of a course and opens a 30 seat overflow section once 30
+     * students are waiting
+     * @param school takes in the school whose courses are balanced and that overflow sections are registered with
+     */
+    public SectionBalancer(SchoolDataBase school) {
+        this(school, 100, 30, 30, 30);
+    }
+
+    /**
+     * constructor
+     * @param school takes in the school whose courses are balanced and that overflow sections are registered with
+     * @param batchSize takes in the most students moved in one balance of a course
+     * @param overflowThreshold takes in the number of students waiting over all sections of a course, with no open
+     * seat left, that opens an overflow section
+     * @param overflowCapacity takes in the number of seats of an overflow section
+     * @param overflowWaitlistCapacity takes in the waitlist capacity of an overflow section
+     */
+    public SectionBalancer(SchoolDataBase school, int batchSize, int overflowThreshold, int overflowCapacity,
+                           int overflowWaitlistCapacity) {
+        if(batchSize < 1 || overflowThreshold < 1 || overflowCapacity < 1 || overflowWaitlistCapacity < 0)
+            throw new IllegalArgumentException("Batch size, threshold and capacity must be positive");
+        this.school = school;
+        this.batchSize = batchSize;
+        this.overflowThreshold = overflowThreshold;
+        this.overflowCapacity = overflowCapacity;
+        this.overflowWaitlistCapacity = overflowWaitlistCapacity;
+    }
+
+    /**
+     * Enrolls a student in the least filled section of a course that has a seat for them. When every section is
+     * full, the student joins the shortest waitlist instead.
+     * @param student takes in the student
+     * @param course takes in the course
+     * @return returns the section and the result, CONFLICT when every section conflicts with the student's schedule
+     */
+    public Placement enroll(Student student, Course course) {
+        List<Clazz> sections = new ArrayList<>(course.listOfClasses());
+        sections.sort(Comparator.comparingDouble(SectionBalancer::fill));
+        for(Clazz section : sections) {
+            //a spot the student already has is not ours to take back
+            if(section.getSeatsTaken() >= section.getCapacity() || section.isSeatedOrWaiting(student)) continue;
+            EnrollmentResult result = section.enrollIfOpen(student);
+            if(result == EnrollmentResult.ENROLLED) return new Placement(section, result);
+        }
+        sections.sort(Comparator.comparingInt(Clazz::getWaitlistSize));
+        Placement placement = new Placement(null, EnrollmentResult.CONFLICT);
+        for(Clazz section : sections) {
+            EnrollmentResult result = section.enroll(student);
+            if(result == EnrollmentResult.ENROLLED || result == EnrollmentResult.WAITLISTED)
+                return new Placement(section, result);
+            if(result == EnrollmentResult.REJECTED) placement = new Placement(null, result);
+        }
+        return placement;
+    }
+
+    /**
+     * Moves wait-listed students of a course into open seats of its other sections, and opens an overflow section
+     * when the students still waiting reach the threshold. Does nothing when the course is already being balanced.
+     * @param course takes in the course
+     * @return returns what the balance did
+     */
+    public Balance balance(Course course) {
+        if(!balancing.add(course.getKey())) return Balance.NONE;
+        try {
+            int moved = migrate(course.listOfClasses(), batchSize);
+            int opened = 0;
+            List<Clazz> sections = course.listOfClasses();
+            int waiting = 0;
+            boolean open = false;
+            for(Clazz section : sections) {
+                waiting += section.getWaitlistSize();
+                open |= section.getSeatsTaken() < section.getCapacity();
+            }
+            if(!open && waiting >= overflowThreshold && moved < batchSize) {
+                Clazz overflow = course.new Clazz(overflowName(sections), null, overflowCapacity,
+                        overflowWaitlistCapacity);
+                school.registerClass(overflow);
+                opened = 1;
+                moved += migrate(course.listOfClasses(), batchSize - moved);
+            }
+            return new Balance(moved, opened);
+        } finally {
+            balancing.remove(course.getKey());
+        }
+    }
+
+    /**
+     *
+     * @return returns what balancing every course of the school did
+     */
+    public Balance balanceAll() {
+        Balance total = Balance.NONE;
+        for(Course course : school.courses()) total = total.plus(balance(course));
+        return total;
+    }
+
+    /**
+     * balances every course of the school on a background thread, once per period, until {@link #close()}
+     * @param period takes in the time between two runs
+     * @throws IllegalStateException when the balancer is already running
+     */
+    public synchronized void start(Duration period) {
+        if(background != null) throw new IllegalStateException("The balancer is already running");
+        background = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "section-balancer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        background.scheduleWithFixedDelay(this::balanceAll, period.toNanos(), period.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * stops the background balancing started by {@link #start(Duration)}
+     */
+    @Override
+    public synchronized void close() {
+        if(background == null) return;
+        background.shutdown();
+        background = null;
+    }
+
+    /**
+     * @return returns the number of students moved, at most the limit
+     */
+    private int migrate(List<Clazz> sections, int limit) {
+        List<Clazz> targets = new ArrayList<>();
+        for(Clazz section : sections) if(section.getSeatsTaken() < section.getCapacity()) targets.add(section);
+        int moved = 0;
+        for(Clazz source : sections) {
+            if(targets.isEmpty() || moved == limit) break;
+            if(source.getWaitlistSize() == 0) continue;
+            for(Student student : source.waitlistedStudents()) {
+                if(targets.isEmpty() || moved == limit) break;
+                if(move(student, source, targets)) moved++;
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * moves a student from the waitlist of the source into the least filled target that gives them a seat
+     * @return returns true if the student moved
+     */
+    private boolean move(Student student, Clazz source, List<Clazz> targets) {
+        targets.sort(Comparator.comparingDouble(SectionBalancer::fill));
+        for(int i = 0; i < targets.size(); i++) {
+            Clazz target = targets.get(i);
+            //a seat or spot the student already has is not the move's to undo, so leave such a section alone
+            if(target == source || target.isSeatedOrWaiting(student)) continue;
+            EnrollmentResult result;
+            try {
+                result = target.moveHere(student, source);
+            } catch (IllegalArgumentException e) {
+                //a compact roster only takes students registered with its school
+                continue;
+            }
+            //the student was promoted or dropped in the source while we moved them
+            if(result == null) return false;
+            if(result == EnrollmentResult.ENROLLED) return true;
+            if(result == EnrollmentResult.CONFLICT) continue;
+            //the target filled up since we looked
+            targets.remove(i--);
+        }
+        return false;
+    }
+
+    private static double fill(Clazz section) {
+        return section.getCapacity() == 0 ? 1 : (double) section.getSeatsTaken() / section.getCapacity();
+    }
+
+    private static String overflowName(List<Clazz> sections) {
+        Set<String> taken = new HashSet<>();
+        for(Clazz section : sections) taken.add(section.getSection());
+        for(int i = 1; ; i++) if(!taken.contains("OVF" + i)) return "OVF" + i;
+    }
+}
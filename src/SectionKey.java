@@ -0,0 +1,14 @@
+package miniprojects.schooldb;
+
+/**
+ * The primary key of a class: the key of its course and its section.
+ * @param course the key of the course the class belongs to
+ * @param section the section of the class
+ */
+public record SectionKey(CourseKey course, String section) {
+
+    @Override
+    public String toString() {
+        return course + " " + section;
+    }
+}
@@ -0,0 +1,77 @@
+package miniprojects.schooldb;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs the changes to each class on one thread. Classes are spread over a fixed number of partitions by the hash of
+ * their key, and every partition has a single writer thread, so all changes to one class happen one after another
+ * in the order they were submitted while changes to classes in different partitions run side by side. Reads do not
+ * go through the writers.
+ */
+final class SectionWriters implements AutoCloseable {
+    private final ExecutorService[] partitions;
+
+    /**
+     * constructor
+     * @param partitions takes in the number of writer threads
+     */
+    SectionWriters(int partitions) {
+        if(partitions < 1) throw new IllegalArgumentException("There must be at least one partition");
+        this.partitions = new ExecutorService[partitions];
+        for(int i = 0; i < partitions; i++) {
+            String name = "section-writer-" + i;
+            this.partitions[i] = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * runs a change on the writer of a class and waits for it
+     * @param key takes in the key of the class the change is made to
+     * @param change takes in the change
+     * @param <T> the result of the change
+     * @return returns the result of the change
+     * @throws CompletionException when the change throws, with what it threw as the cause
+     * @throws IllegalStateException when the writers are closed
+     */
+    <T> T write(SectionKey key, Supplier<T> change) {
+        Future<T> result;
+        try {
+            result = partitions[Math.floorMod(key.hashCode(), partitions.length)].submit(change::get);
+        } catch (RejectedExecutionException e) {
+            throw new IllegalStateException("The section writers are closed", e);
+        }
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            throw new CompletionException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.cancel(false);
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * stops taking changes and waits for the ones already submitted
+     */
+    @Override
+    public void close() {
+        for(ExecutorService partition : partitions) partition.shutdown();
+        try {
+            for(ExecutorService partition : partitions) partition.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
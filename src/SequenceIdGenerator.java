@@ -0,0 +1,43 @@
+package miniprojects.schooldb;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An id strategy that hands out the 7-digit numbers in order from a single counter. Ids never collide, so there
+ * are no retries and nothing has to be remembered.
+ */
+public class SequenceIdGenerator implements IdGenerator {
+    private final AtomicInteger next;
+
+    /**
+     * constructor, starts at the smallest 7-digit number
+     */
+    public SequenceIdGenerator() {
+        this(MIN_NUMBER);
+    }
+
+    /**
+     * constructor
+     * @param first takes in the first number to hand out
+     */
+    public SequenceIdGenerator(int first) {
+        if(first < MIN_NUMBER || first > MAX_NUMBER) throw new IllegalArgumentException("Not a 7-digit number");
+        next = new AtomicInteger(first);
+    }
+
+    @Override
+    public String nextId(String firstName, String lastName) {
+        int numb = next.getAndIncrement();
+        if(numb > MAX_NUMBER || numb < MIN_NUMBER) {
+            next.set(MAX_NUMBER + 1);
+            throw new IllegalStateException("No more ids available");
+        }
+        return IdGenerator.format(firstName, numb, lastName);
+    }
+
+    @Override
+    public void claim(String id) {
+        int numb = IdGenerator.number(id);
+        if(numb >= MIN_NUMBER) next.accumulateAndGet(numb + 1, Math::max);
+    }
+}
@@ -0,0 +1,79 @@
+package miniprojects.schooldb;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * An id strategy for bulk loads on many threads. The 7-digit numbers are split into shards by their remainder, and
+ * every thread draws from the shard picked by its thread id, so threads rarely touch the same counter. When a shard
+ * runs out the thread moves on to the next one. Ids never collide and there are no retries.
+ */
+public class ShardedIdGenerator implements IdGenerator {
+    //counters are spread 64 bytes apart so two shards never share a cache line
+    private static final int SPREAD = 16;
+    private final int shards;
+    private final AtomicIntegerArray counters;
+
+    /**
+     * constructor, uses two shards per available processor
+     */
+    public ShardedIdGenerator() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * constructor
+     * @param shards takes in the number of shards
+     */
+    public ShardedIdGenerator(int shards) {
+        if(shards < 1) throw new IllegalArgumentException("At least one shard is needed");
+        this.shards = shards;
+        counters = new AtomicIntegerArray(shards * SPREAD);
+    }
+
+    @Override
+    public String nextId(String firstName, String lastName) {
+        int home = (int) (Thread.currentThread().getId() % shards);
+        for(int i = 0; i < shards; i++) {
+            int shard = (home + i) % shards;
+            int numb = MIN_NUMBER + shard + counters.getAndIncrement(shard * SPREAD) * shards;
+            //a full shard keeps counting past the end, but never wraps back into handed out numbers
+            if(numb <= MAX_NUMBER && numb >= MIN_NUMBER) return IdGenerator.format(firstName, numb, lastName);
+            counters.decrementAndGet(shard * SPREAD);
+        }
+        throw new IllegalStateException("No more ids available");
+    }
+
+    @Override
+    public void claim(String id) {
+        int numb = IdGenerator.number(id);
+        if(numb < MIN_NUMBER) return;
+        int shard = (numb - MIN_NUMBER) % shards;
+        int count = (numb - MIN_NUMBER) / shards + 1;
+        while(true) {
+            int current = counters.get(shard * SPREAD);
+            if(current >= count || counters.compareAndSet(shard * SPREAD, current, count)) return;
+        }
+    }
+
+    /**
+     * Claims the ids shard by shard, raising each counter once to the highest id claimed in it instead of once per
+     * id.
+     * @param ids takes in the existing ids
+     */
+    @Override
+    public void claimAll(String[] ids) {
+        int[] counts = new int[shards];
+        for(String id : ids) {
+            int numb = IdGenerator.number(id);
+            if(numb < MIN_NUMBER) continue;
+            int shard = (numb - MIN_NUMBER) % shards;
+            counts[shard] = Math.max(counts[shard], (numb - MIN_NUMBER) / shards + 1);
+        }
+        for(int shard = 0; shard < shards; shard++) {
+            while(true) {
+                int current = counters.get(shard * SPREAD);
+                if(current >= counts[shard] || counters.compareAndSet(shard * SPREAD, current, counts[shard])) break;
+            }
+        }
+    }
+}
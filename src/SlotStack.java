@@ -0,0 +1,56 @@
+package miniprojects.schooldb;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free stack of free slot indexes in a fixed size array. The links live in an int array, so pushing and
+ * popping never allocate. The head carries a version stamp in its upper 32 bits to rule out the ABA problem.
+ */
+final class SlotStack {
+    private static final int EMPTY = -1;
+    private final int[] next;
+    private final AtomicLong head;
+
+    /**
+     * constructor, the stack starts out holding every slot from 0 to size - 1
+     * @param size takes in the number of slots
+     */
+    SlotStack(int size) {
+        next = new int[size];
+        for(int i = 0; i < size; i++) next[i] = i + 1 < size ? i + 1 : EMPTY;
+        head = new AtomicLong(pack(0, size > 0 ? 0 : EMPTY));
+    }
+
+    /**
+     * takes a free slot off the stack
+     * @return returns the slot index, or -1 if no slot is free
+     */
+    int pop() {
+        while(true) {
+            long current = head.get();
+            int slot = (int) current;
+            if(slot == EMPTY) return EMPTY;
+            if(head.compareAndSet(current, pack(stamp(current) + 1, next[slot]))) return slot;
+        }
+    }
+
+    /**
+     * gives a slot back to the stack
+     * @param slot takes in the slot index that has been freed
+     */
+    void push(int slot) {
+        while(true) {
+            long current = head.get();
+            next[slot] = (int) current;
+            if(head.compareAndSet(current, pack(stamp(current) + 1, slot))) return;
+        }
+    }
+
+    private static long pack(int stamp, int slot) {
+        return ((long) stamp << 32) | (slot & 0xFFFF_FFFFL);
+    }
+
+    private static int stamp(long packed) {
+        return (int) (packed >>> 32);
+    }
+}
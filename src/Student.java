@@ -3,12 +3,48 @@ package miniprojects.schooldb;
 import java.time.LocalDate;
 
 public class Student extends Person{
-    private Course [] courses;
+    private final Transcript transcript = new Transcript();
+    private volatile Department major;
 
-    Student(String firstName, String lastName, LocalDate dob, Gender gender) throws InvalidAgeException {
+    Student(String firstName, String lastName, LocalDate dob, Gender gender) {
         super(firstName, lastName, dob,gender);
     }
 
+    Student(String firstName, String lastName, LocalDate dob, Gender gender, String id) {
+        super(firstName, lastName, dob, gender, id);
+    }
+
+    Student(String id, String firstName, String lastName, LocalDate dob, Gender gender) {
+        super(id, firstName, lastName, dob, gender);
+    }
+
+    /**
+     *
+     * @return returns the completed courses and grades of this student
+     */
+    public Transcript getTranscript() {
+        return transcript;
+    }
+
+    /**
+     *
+     * @return returns the department the student majors in, or null when they have not declared a major
+     */
+    public Department getMajor() {
+        return major;
+    }
+
+    /**
+     * sets the department the student majors in and tells the listeners of the department
+     * @param major takes in the department, or null to undeclare the major
+     */
+    public void setMajor(Department major) {
+        Department old = this.major;
+        this.major = major;
+        Department department = major != null ? major : old;
+        if(department != null && major != old) department.getListener().majorChanged(this);
+    }
+
     @Override
     public String toString() {
         return "Student{" +
@@ -0,0 +1,33 @@
+package miniprojects.schooldb;
+
+/**
+ * A term of the school year, for example Fall 2024. Terms sort in the order they happen.
+ * @param year the calendar year the term is in
+ * @param season the part of the year
+ */
+public record Term(int year, Season season) implements Comparable<Term> {
+
+    /**
+     * The terms of a calendar year, in the order they happen.
+     */
+    public enum Season { SPRING, SUMMER, FALL }
+
+    /**
+     * constructor
+     * @throws NullPointerException when the season is null
+     */
+    public Term {
+        if(season == null) throw new NullPointerException("A term needs a season");
+    }
+
+    @Override
+    public int compareTo(Term o) {
+        int compare = Integer.compare(year, o.year);
+        return compare != 0 ? compare : season.compareTo(o.season);
+    }
+
+    @Override
+    public String toString() {
+        return season.name().charAt(0) + season.name().substring(1).toLowerCase() + " " + year;
+    }
+}
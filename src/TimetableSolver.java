@@ -0,0 +1,492 @@
+package miniprojects.schooldb;
+
+import miniprojects.schooldb.Course.Clazz;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plans a whole term: gives every class of every department of a school an instructor of its department and a room.
+ * Classes keep the times they meet at. A plan is conflict free when no instructor and no room has two classes that
+ * meet at the same time, and every room seats the class in it. Among conflict free plans, the solver prefers plans
+ * that spread the credits evenly over the instructors and put classes in the smallest room they fit in.
+ * <br>
+ * Instructors qualified for a course, see {@link Instructor#addQualification(CourseKey)}, are the only ones considered
+ * for its classes. When nobody in the department is qualified, every instructor of the department is.
+ * <br>
+ * The solver starts from a greedy plan and improves it by simulated annealing, moving one class to another instructor
+ * or room at a time. Every thread runs its own search from a different random start until the time budget runs out,
+ * or until it has a conflict free plan it stopped improving, and the best plan wins. Which classes meet at the same
+ * time is worked out once and shared by all searches, so a move only looks at the classes that clash with the one
+ * moved.
+ */
+public final class TimetableSolver {
+    private static final long CONFLICT_WEIGHT = 1_000_000;
+    private static final long LOAD_WEIGHT = 10;
+    private static final int CHECK_EVERY = 1024;
+    private static final long STALL_MOVES = 1L << 22;
+
+    private final SchoolDataBase school;
+    private final List<Room> rooms;
+    private final Duration budget;
+    private final int threads;
+
+    /**
+     * The instructor and room planned for a class.
+     * @param clazz the class
+     * @param instructor the instructor to teach it
+     * @param room the room it meets in
+     */
+    public record Assignment(Clazz clazz, Instructor instructor, Room room) {
+    }
+
+    /**
+     * The best plan a solve found.
+     * @param assignments the instructor and room of every class that could be planned
+     * @param unplaced the classes that have no instructor in their department or no room big enough
+     * @param conflicts the number of times two classes meeting at the same time share an instructor or a room, 0 for
+     * a plan that can be applied
+     * @param greedyConflicts the conflicts of the greedy plan the search started from
+     * @param score the cost of the plan, lower is better
+     * @param moves the number of moves tried over all threads
+     * @param nanos the time the solve took
+     */
+    public record Plan(List<Assignment> assignments, List<Clazz> unplaced, int conflicts, int greedyConflicts,
+                       long score, long moves, long nanos) {
+        @Override
+        public String toString() {
+            return String.format("%,d classes planned, %,d unplaced, %,d conflicts (greedy %,d), score %,d, "
+                    + "%,d moves in %,d ms", assignments.size(), unplaced.size(), conflicts, greedyConflicts, score,
+                    moves, nanos / 1_000_000);
+        }
+    }
+
+    /**
+     * What applying a plan did.
+     * @param assigned the number of classes given their planned instructor, 0 when the plan was rolled back
+     * @param failed the classes whose instructor could not take them, because of a class outside the plan. When there
+     * are any, nothing was applied
+     */
+    public record Applied(int assigned, List<Clazz> failed) {
+    }
+
+    /**
+     * constructor, solves for 5 seconds on every core
+     * @param school takes in the school whose classes are planned
+     * @param rooms takes in the rooms classes can meet in
+     */
+    public TimetableSolver(SchoolDataBase school, Collection<Room> rooms) {
+        this(school, rooms, Duration.ofSeconds(5), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * constructor
+     * @param school takes in the school whose classes are planned
+     * @param rooms takes in the rooms classes can meet in
+     * @param budget takes in the longest a solve may take
+     * @param threads takes in the number of searches run side by side
+     */
+    public TimetableSolver(SchoolDataBase school, Collection<Room> rooms, Duration budget, int threads) {
+        if(threads < 1) throw new IllegalArgumentException("Threads must be positive");
+        if(budget.isNegative()) throw new IllegalArgumentException("Budget must not be negative");
+        this.school = school;
+        this.rooms = List.copyOf(rooms);
+        this.budget = budget;
+        this.threads = threads;
+    }
+
+    /**
+     * Plans every class of the school. Nothing changes until the plan is applied.
+     * @return returns the best plan found
+     */
+    public Plan solve() {
+        long start = System.nanoTime();
+        Problem problem = new Problem(school, rooms);
+        long deadline = start + budget.toNanos();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "timetable-solver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Search>> runs = new ArrayList<>();
+            SplittableRandom seeds = new SplittableRandom(start);
+            for(int t = 0; t < threads; t++) {
+                Search search = new Search(problem, seeds.split());
+                runs.add(pool.submit(() -> search.run(deadline)));
+            }
+            Search best = null;
+            long moves = 0;
+            for(Future<Search> run : runs) {
+                Search search = run.get();
+                moves += search.moves;
+                if(best == null || search.betterThan(best)) best = search;
+            }
+            return problem.plan(best, moves, System.nanoTime() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while solving", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Solver failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Gives every class of a plan its room and instructor. Every class of the plan is first taken off the instructor
+     * teaching it, so classes can swap instructors. The plan is applied whole or not at all: when an instructor can
+     * not take a class, every class of the plan gets back the room and instructor it had before.
+     * @param plan takes in a plan from {@link #solve()}
+     * @return returns what was applied
+     * @throws IllegalStateException when the plan has conflicts
+     */
+    public Applied apply(Plan plan) {
+        if(plan.conflicts() > 0) throw new IllegalStateException("The plan has " + plan.conflicts() + " conflicts");
+        List<Assignment> assignments = plan.assignments();
+        Instructor[] instructors = new Instructor[assignments.size()];
+        Room[] rooms = new Room[assignments.size()];
+        for(int i = 0; i < assignments.size(); i++) {
+            Clazz clazz = assignments.get(i).clazz();
+            instructors[i] = clazz.getInstructor();
+            rooms[i] = clazz.getRoom();
+            if(instructors[i] != null) instructors[i].removeClass(clazz);
+        }
+        List<Clazz> failed = new ArrayList<>();
+        for(Assignment assignment : assignments) {
+            assignment.clazz().setRoom(assignment.room());
+            if(!assignment.instructor().addClass(assignment.clazz())) failed.add(assignment.clazz());
+        }
+        if(failed.isEmpty()) return new Applied(assignments.size(), List.of());
+        //a class outside the plan was in the way, so put every class back the way it was
+        for(Assignment assignment : assignments) assignment.instructor().removeClass(assignment.clazz());
+        for(int i = 0; i < assignments.size(); i++) {
+            Clazz clazz = assignments.get(i).clazz();
+            clazz.setRoom(rooms[i]);
+            if(instructors[i] != null) instructors[i].addClass(clazz);
+        }
+        return new Applied(0, List.copyOf(failed));
+    }
+
+    /**
+     * The classes, instructors and rooms as arrays, with the candidates of every class and the classes it clashes
+     * with. Read only, so the searches share it.
+     */
+    private static final class Problem {
+        final Clazz[] classes;
+        final Instructor[] instructors;
+        final Room[] rooms;
+        final int[][] instructorCandidates;
+        final int[][] roomCandidates;
+        final int[][] clashes;
+        final int[] credits;
+        final int[] seats;
+        final List<Clazz> unplaced = new ArrayList<>();
+
+        Problem(SchoolDataBase school, List<Room> roomList) {
+            rooms = roomList.toArray(Room[]::new);
+            Arrays.sort(rooms, Comparator.comparingInt(Room::capacity));
+            Map<Instructor, Integer> instructorIndex = new HashMap<>();
+            List<Instructor> instructorList = new ArrayList<>();
+            List<Clazz> classList = new ArrayList<>();
+            List<int[]> instructorOptions = new ArrayList<>(), roomOptions = new ArrayList<>();
+            for(Department department : school.departments()) {
+                int[] all = department.getInstructors().stream().mapToInt(instructor -> instructorIndex
+                        .computeIfAbsent(instructor, key -> {
+                            instructorList.add(key);
+                            return instructorList.size() - 1;
+                        })).toArray();
+                for(Course course : department.getCatalog().all()) {
+                    int[] qualified = Arrays.stream(all)
+                            .filter(i -> instructorList.get(i).getQualifications().contains(course.getKey())).toArray();
+                    if(qualified.length == 0) qualified = all;
+                    for(Clazz clazz : course.listOfClasses()) {
+                        int[] fits = fittingRooms(clazz.getCapacity());
+                        if(qualified.length == 0 || fits.length == 0) {
+                            unplaced.add(clazz);
+                            continue;
+                        }
+                        classList.add(clazz);
+                        instructorOptions.add(qualified);
+                        roomOptions.add(fits);
+                    }
+                }
+            }
+            classes = classList.toArray(Clazz[]::new);
+            instructors = instructorList.toArray(Instructor[]::new);
+            instructorCandidates = instructorOptions.toArray(int[][]::new);
+            roomCandidates = roomOptions.toArray(int[][]::new);
+            credits = new int[classes.length];
+            seats = new int[classes.length];
+            for(int i = 0; i < classes.length; i++) {
+                credits[i] = classes[i].getCourse().getNumOfCredits();
+                seats[i] = classes[i].getCapacity();
+            }
+            clashes = clashes(classes);
+        }
+
+        private int[] fittingRooms(int capacity) {
+            int from = 0;
+            while(from < rooms.length && rooms[from].capacity() < capacity) from++;
+            int[] fits = new int[rooms.length - from];
+            for(int i = 0; i < fits.length; i++) fits[i] = from + i;
+            return fits;
+        }
+
+        /**
+         * Finds the classes that meet at the same time as each class. Classes are put in a bucket for every hour of
+         * the week they meet in, and only classes sharing a bucket are compared.
+         */
+        private static int[][] clashes(Clazz[] classes) {
+            List<List<Integer>> buckets = new ArrayList<>();
+            for(int hour = 0; hour < 7 * 24; hour++) buckets.add(new ArrayList<>());
+            int[][] hours = new int[classes.length][];
+            for(int i = 0; i < classes.length; i++) {
+                List<Integer> meets = new ArrayList<>();
+                for(MeetingTime meeting : classes[i].getMeetingTimes())
+                    for(int hour = meeting.startMinute() / 60; hour <= (meeting.endMinute() - 1) / 60; hour++)
+                        if(!meets.contains(hour)) meets.add(hour);
+                hours[i] = meets.stream().mapToInt(Integer::intValue).toArray();
+                for(int hour : hours[i]) buckets.get(hour).add(i);
+            }
+            int[][] clashes = new int[classes.length][];
+            int[] seen = new int[classes.length];
+            Arrays.fill(seen, -1);
+            List<Integer> found = new ArrayList<>();
+            for(int i = 0; i < classes.length; i++) {
+                WeeklySchedule.Mask slots = classes[i].getMeetingSlots();
+                found.clear();
+                for(int hour : hours[i])
+                    for(int j : buckets.get(hour))
+                        if(j != i && seen[j] != i) {
+                            seen[j] = i;
+                            if(slots.overlaps(classes[j].getMeetingSlots())) found.add(j);
+                        }
+                clashes[i] = found.stream().mapToInt(Integer::intValue).toArray();
+            }
+            return clashes;
+        }
+
+        Plan plan(Search best, long moves, long nanos) {
+            List<Assignment> assignments = new ArrayList<>(classes.length);
+            for(int i = 0; i < classes.length; i++)
+                assignments.add(new Assignment(classes[i], instructors[best.bestInstructor[i]],
+                        rooms[best.bestRoom[i]]));
+            return new Plan(List.copyOf(assignments), List.copyOf(unplaced), (int) best.bestConflicts,
+                    (int) best.greedyConflicts, best.bestConflicts * CONFLICT_WEIGHT + best.bestSoft, moves, nanos);
+        }
+    }
+
+    /**
+     * One simulated annealing run. The cost of a plan is its conflicts, weighted so that one conflict outweighs any
+     * soft cost, plus the sum of every instructor's credits squared and the seats wasted in rooms.
+     */
+    private static final class Search {
+        private final Problem problem;
+        private final SplittableRandom random;
+        private final int[] instructor, room, clashCount, load;
+        private final int[] conflicted, conflictedAt;
+        private int conflictedSize;
+        private long conflicts, soft;
+        final int[] bestInstructor, bestRoom;
+        long bestConflicts = Long.MAX_VALUE, bestSoft = Long.MAX_VALUE, greedyConflicts, moves;
+
+        Search(Problem problem, SplittableRandom random) {
+            this.problem = problem;
+            this.random = random;
+            int n = problem.classes.length;
+            instructor = new int[n];
+            room = new int[n];
+            clashCount = new int[n];
+            conflicted = new int[n];
+            conflictedAt = new int[n];
+            load = new int[problem.instructors.length];
+            bestInstructor = new int[n];
+            bestRoom = new int[n];
+        }
+
+        Search run(long deadline) {
+            greedy();
+            greedyConflicts = conflicts;
+            save();
+            int n = problem.classes.length;
+            if(n == 0) return this;
+            long start = System.nanoTime(), span = Math.max(1, deadline - start), lastBest = 0;
+            double temperature = 0, hot = 20.0 * LOAD_WEIGHT;
+            for(long move = 0; ; move++) {
+                if(move % CHECK_EVERY == 0) {
+                    if(betterThanBest()) {
+                        save();
+                        lastBest = move;
+                    }
+                    long now = System.nanoTime();
+                    if(now >= deadline || bestConflicts == 0 && move - lastBest > STALL_MOVES) {
+                        moves = move;
+                        break;
+                    }
+                    temperature = hot * (deadline - now) / span;
+                }
+                int c = conflictedSize > 0 && random.nextBoolean() ? conflicted[random.nextInt(conflictedSize)]
+                        : random.nextInt(n);
+                if(random.nextBoolean()) moveInstructor(c, temperature);
+                else moveRoom(c, temperature);
+            }
+            if(betterThanBest()) save();
+            return this;
+        }
+
+        /**
+         * Plans the most constrained classes first, each with the instructor and room that add the least cost.
+         */
+        private void greedy() {
+            int n = problem.classes.length;
+            Integer[] order = new Integer[n];
+            for(int i = 0; i < n; i++) order[i] = i;
+            for(int i = n - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                Integer swap = order[i];
+                order[i] = order[j];
+                order[j] = swap;
+            }
+            Arrays.sort(order, Comparator.<Integer>comparingInt(i -> problem.instructorCandidates[i].length)
+                    .thenComparingInt(i -> -problem.seats[i]));
+            Arrays.fill(instructor, -1);
+            Arrays.fill(room, -1);
+            for(int c : order) {
+                int bestCandidate = -1;
+                long bestCost = Long.MAX_VALUE;
+                for(int candidate : problem.instructorCandidates[c]) {
+                    long cost = shared(c, instructor, candidate) * CONFLICT_WEIGHT
+                            + LOAD_WEIGHT * 2 * problem.credits[c] * load[candidate];
+                    if(cost < bestCost) {
+                        bestCost = cost;
+                        bestCandidate = candidate;
+                    }
+                }
+                instructor[c] = bestCandidate;
+                load[bestCandidate] += problem.credits[c];
+                //candidates are sorted by size, so the first free room wastes the fewest seats
+                bestCandidate = -1;
+                bestCost = Long.MAX_VALUE;
+                for(int candidate : problem.roomCandidates[c]) {
+                    long cost = shared(c, room, candidate);
+                    if(cost < bestCost) {
+                        bestCost = cost;
+                        bestCandidate = candidate;
+                        if(cost == 0) break;
+                    }
+                }
+                room[c] = bestCandidate;
+            }
+            for(int c = 0; c < n; c++) {
+                int count = shared(c, instructor, instructor[c]) + shared(c, room, room[c]);
+                clashCount[c] = count;
+                conflicts += count;
+                if(count > 0) addConflicted(c);
+                soft += problem.rooms[room[c]].capacity() - problem.seats[c];
+            }
+            conflicts /= 2;
+            for(int l : load) soft += LOAD_WEIGHT * l * l;
+        }
+
+        /**
+         * @return returns the number of classes clashing with the class that have the value in the assignment
+         */
+        private int shared(int c, int[] assignment, int value) {
+            int count = 0;
+            for(int other : problem.clashes[c]) if(assignment[other] == value) count++;
+            return count;
+        }
+
+        private void moveInstructor(int c, double temperature) {
+            int[] candidates = problem.instructorCandidates[c];
+            if(candidates.length == 1) return;
+            int from = instructor[c], to = candidates[random.nextInt(candidates.length)];
+            if(from == to) return;
+            int credits = problem.credits[c];
+            long softDelta = LOAD_WEIGHT * 2 * credits * (credits + load[to] - load[from]);
+            int conflictDelta = shared(c, instructor, to) - shared(c, instructor, from);
+            if(!accept(conflictDelta * CONFLICT_WEIGHT + softDelta, temperature)) return;
+            reassign(c, instructor, from, to);
+            load[from] -= credits;
+            load[to] += credits;
+            conflicts += conflictDelta;
+            soft += softDelta;
+        }
+
+        private void moveRoom(int c, double temperature) {
+            int[] candidates = problem.roomCandidates[c];
+            if(candidates.length == 1) return;
+            int from = room[c], to = candidates[random.nextInt(candidates.length)];
+            if(from == to) return;
+            long softDelta = problem.rooms[to].capacity() - problem.rooms[from].capacity();
+            int conflictDelta = shared(c, room, to) - shared(c, room, from);
+            if(!accept(conflictDelta * CONFLICT_WEIGHT + softDelta, temperature)) return;
+            reassign(c, room, from, to);
+            conflicts += conflictDelta;
+            soft += softDelta;
+        }
+
+        private boolean accept(long delta, double temperature) {
+            return delta <= 0 || temperature > 0 && random.nextDouble() < Math.exp(-delta / temperature);
+        }
+
+        /**
+         * moves a class to another instructor or room and updates the clash counts of the classes it meets with
+         */
+        private void reassign(int c, int[] assignment, int from, int to) {
+            for(int other : problem.clashes[c]) {
+                if(assignment[other] == from) {
+                    clash(other, -1);
+                    clash(c, -1);
+                } else if(assignment[other] == to) {
+                    clash(other, 1);
+                    clash(c, 1);
+                }
+            }
+            assignment[c] = to;
+        }
+
+        private void clash(int c, int delta) {
+            int before = clashCount[c];
+            clashCount[c] = before + delta;
+            if(before == 0) addConflicted(c);
+            else if(clashCount[c] == 0) {
+                int last = conflicted[--conflictedSize];
+                conflicted[conflictedAt[c]] = last;
+                conflictedAt[last] = conflictedAt[c];
+            }
+        }
+
+        private void addConflicted(int c) {
+            conflictedAt[c] = conflictedSize;
+            conflicted[conflictedSize++] = c;
+        }
+
+        private boolean betterThanBest() {
+            return conflicts < bestConflicts || conflicts == bestConflicts && soft < bestSoft;
+        }
+
+        boolean betterThan(Search other) {
+            return bestConflicts < other.bestConflicts
+                    || bestConflicts == other.bestConflicts && bestSoft < other.bestSoft;
+        }
+
+        private void save() {
+            System.arraycopy(instructor, 0, bestInstructor, 0, instructor.length);
+            System.arraycopy(room, 0, bestRoom, 0, room.length);
+            bestConflicts = conflicts;
+            bestSoft = soft;
+        }
+    }
+}
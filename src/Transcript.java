@@ -0,0 +1,133 @@
+package miniprojects.schooldb;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The completed courses of a student, with the grade and term of each. The credit and grade point totals are kept
+ * up to date as grades are posted, so reading them is a single read no matter how long the transcript is. A course
+ * has at most one grade per term, posting it again corrects the grade. A course taken again in a later term is a
+ * separate entry and both count.
+ */
+public final class Transcript {
+    private final Map<EntryKey, Entry> entries = new HashMap<>();
+    private volatile Totals totals = Totals.EMPTY;
+
+    private record EntryKey(CourseKey course, Term term) {
+    }
+
+    /**
+     * A completed course.
+     * @param course the course
+     * @param credits the credits of the course when the grade was posted
+     * @param term the term the course was taken in
+     * @param grade the final grade
+     */
+    public record Entry(CourseKey course, int credits, Term term, Grade grade) {
+
+        /**
+         * constructor
+         * @throws IllegalArgumentException when the credits are negative
+         */
+        public Entry {
+            if(credits < 0) throw new IllegalArgumentException("Credits must not be negative");
+        }
+    }
+
+    /**
+     * Credit and grade point totals over a transcript.
+     * @param earnedCredits the credits of courses with a passing grade
+     * @param gpaCredits the credits of courses whose grades count toward the GPA
+     * @param pointTenths the grade points times the credits, summed over the courses, in tenths
+     * @param courses the number of entries
+     */
+    public record Totals(int earnedCredits, int gpaCredits, long pointTenths, int courses) {
+        static final Totals EMPTY = new Totals(0, 0, 0, 0);
+
+        /**
+         *
+         * @return returns the grade point average, or 0 before any grade counts toward it
+         */
+        public double gpa() {
+            return gpaCredits == 0 ? 0 : pointTenths / (10.0 * gpaCredits);
+        }
+
+        /**
+         * @return returns the totals with an entry added, or taken away when sign is -1
+         */
+        Totals plus(Entry entry, int sign) {
+            Grade grade = entry.grade();
+            int credits = entry.credits();
+            return new Totals(earnedCredits + (grade.earnsCredit() ? sign * credits : 0),
+                    gpaCredits + (grade.countsTowardGpa() ? sign * credits : 0),
+                    pointTenths + (grade.countsTowardGpa() ? (long) sign * credits * grade.pointTenths() : 0),
+                    courses + sign);
+        }
+    }
+
+    /**
+     * What posting a grade changed.
+     * @param corrected the entry that was corrected, or null for a new entry
+     * @param before the totals before the grade was posted
+     * @param after the totals after the grade was posted
+     */
+    record Posted(Entry corrected, Totals before, Totals after) {
+    }
+
+    /**
+     * adds a grade, or corrects the grade already posted for the course and term, and updates the totals
+     * @param entry takes in the completed course
+     * @return returns the corrected entry and the totals before and after
+     */
+    synchronized Posted post(Entry entry) {
+        Entry old = entries.put(new EntryKey(entry.course(), entry.term()), entry);
+        Totals before = totals, after = before;
+        if(old != null) after = after.plus(old, -1);
+        after = after.plus(entry, 1);
+        totals = after;
+        return new Posted(old, before, after);
+    }
+
+    /**
+     *
+     * @return returns the totals as of the last posted grade
+     */
+    public Totals totals() {
+        return totals;
+    }
+
+    /**
+     * adds up the entries from scratch, without looking at the running totals
+     * @return returns the totals of every entry
+     */
+    public synchronized Totals recompute() {
+        Totals sum = Totals.EMPTY;
+        for(Entry entry : entries.values()) sum = sum.plus(entry, 1);
+        return sum;
+    }
+
+    /**
+     * compares the running totals with a recompute, holding off grade posts while it does
+     * @param repair takes in whether to replace wrong running totals with the recomputed ones
+     * @return returns the recomputed totals when the running totals are wrong, or null when they are right
+     */
+    synchronized Totals verify(boolean repair) {
+        Totals sum = recompute();
+        if(sum.equals(totals)) return null;
+        if(repair) totals = sum;
+        return sum;
+    }
+
+    /**
+     *
+     * @return returns a copy of the entries, sorted by term and course
+     */
+    public synchronized List<Entry> entries() {
+        List<Entry> copy = new ArrayList<>(entries.values());
+        copy.sort(Comparator.comparing(Entry::term).thenComparing(Entry::course));
+        return copy;
+    }
+}
@@ -0,0 +1,47 @@
+package miniprojects.schooldb;
+
+/**
+ * The outcome of a {@link Validator} check. Results are constants, so checking a value allocates nothing.
+ */
+public enum ValidationResult {
+    /** the value is valid */
+    VALID("Valid"),
+    /** a course name must be 3 or 4 letters */
+    INVALID_COURSE_NAME("Invalid Course Name"),
+    /** a course number must have 3 or 4 digits and start with 1 to 8 */
+    INVALID_COURSE_NUMBER("Invalid Course Number"),
+    /** a date of birth is required */
+    MISSING_BIRTH_DATE("Missing date of birth"),
+    /** the date of birth is today or later */
+    TOO_YOUNG("Person is too young");
+
+    private final String message;
+
+    ValidationResult(String message) {
+        this.message = message;
+    }
+
+    /**
+     *
+     * @return returns true if the value passed the check
+     */
+    public boolean isValid() {
+        return this == VALID;
+    }
+
+    /**
+     *
+     * @return returns a message that says what was wrong
+     */
+    public String message() {
+        return message;
+    }
+
+    /**
+     * turns a failed check into an exception, for callers that cannot go on with an invalid value
+     * @throws IllegalArgumentException when the check failed
+     */
+    public void orThrow() {
+        if(this != VALID) throw new IllegalArgumentException(message);
+    }
+}
@@ -0,0 +1,110 @@
+package miniprojects.schooldb;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Checks the values entities are built from and answers with a {@link ValidationResult} instead of throwing, so a
+ * bulk import can report a bad row and move on. Names and numbers are checked with plain loops and range checks,
+ * and today's date is read from the clock once and kept until midnight, so a check allocates nothing.
+ * <br>
+ * The clock can be swapped, which lets a test pin today's date. {@link Course} and {@link Person} use the validator
+ * from {@link #getDefault()}.
+ */
+public final class Validator {
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    private static volatile Validator defaultValidator = new Validator(Clock.systemDefaultZone());
+
+    private final Clock clock;
+    private volatile Today today;
+
+    /**
+     * today's date and the first instant of tomorrow, in the clock's zone
+     */
+    private record Today(LocalDate date, long tomorrowMillis) { }
+
+    /**
+     * constructor
+     * @param clock takes in the clock that decides what today is
+     */
+    public Validator(Clock clock) {
+        this.clock = Objects.requireNonNull(clock);
+        today = new Today(LocalDate.MIN, Long.MIN_VALUE);
+    }
+
+    /**
+     *
+     * @return returns the validator used when courses and people are created
+     */
+    public static Validator getDefault() {
+        return defaultValidator;
+    }
+
+    /**
+     * sets the validator used when courses and people are created
+     * @param validator takes in the validator
+     */
+    static void setDefault(Validator validator) {
+        defaultValidator = Objects.requireNonNull(validator);
+    }
+
+    /**
+     *
+     * @return returns today's date, read from the clock at most once a day
+     */
+    public LocalDate today() {
+        Today current = today;
+        long now = clock.millis();
+        if(now < current.tomorrowMillis && now >= current.tomorrowMillis - MILLIS_PER_DAY) return current.date;
+        LocalDate date = LocalDate.now(clock);
+        long tomorrow = date.plusDays(1).atStartOfDay(clock.getZone()).toInstant().toEpochMilli();
+        today = new Today(date, tomorrow);
+        return date;
+    }
+
+    /**
+     *
+     * @param name takes in a course name
+     * @return returns VALID when the name is 3 or 4 letters
+     */
+    public ValidationResult courseName(CharSequence name) {
+        if(name == null || name.length() < 3 || name.length() > 4) return ValidationResult.INVALID_COURSE_NAME;
+        for(int i = 0; i < name.length(); i++) {
+            char c = (char) (name.charAt(i) | 0x20);
+            if(c < 'a' || c > 'z') return ValidationResult.INVALID_COURSE_NAME;
+        }
+        return ValidationResult.VALID;
+    }
+
+    /**
+     *
+     * @param courseNumber takes in a course number
+     * @return returns VALID when the number has 3 or 4 digits and starts with 1 to 8
+     */
+    public ValidationResult courseNumber(int courseNumber) {
+        return courseNumber >= 100 && courseNumber <= 899 || courseNumber >= 1000 && courseNumber <= 8999
+                ? ValidationResult.VALID : ValidationResult.INVALID_COURSE_NUMBER;
+    }
+
+    /**
+     *
+     * @param name takes in a course name
+     * @param courseNumber takes in a course number
+     * @return returns the first check the course fails, or VALID
+     */
+    public ValidationResult course(CharSequence name, int courseNumber) {
+        ValidationResult result = courseName(name);
+        return result.isValid() ? courseNumber(courseNumber) : result;
+    }
+
+    /**
+     *
+     * @param dob takes in a date of birth
+     * @return returns VALID when the date is before today
+     */
+    public ValidationResult birthDate(LocalDate dob) {
+        if(dob == null) return ValidationResult.MISSING_BIRTH_DATE;
+        return dob.isBefore(today()) ? ValidationResult.VALID : ValidationResult.TOO_YOUNG;
+    }
+}
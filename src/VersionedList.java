@@ -0,0 +1,117 @@
+package miniprojects.schooldb;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * An immutable list that read APIs hand out instead of copies. The array behind it is never written again once the
+ * list is published, so readers share it without copying or locking, and sub lists share it too. Every change to
+ * what a list shows publishes a new list with a higher version, so two reads of the same thing can be compared by
+ * version alone.
+ * @param <E> the type of the elements
+ */
+public final class VersionedList<E> extends AbstractList<E> implements RandomAccess {
+    private static final VersionedList<?> EMPTY = new VersionedList<>(new Object[0], 0);
+
+    private final Object[] elements;
+    private final int from, to;
+    private final long version;
+
+    /**
+     * constructor, the list takes the array over and nobody may write to it afterwards
+     * @param elements takes in the elements
+     * @param version takes in the version of the list
+     */
+    VersionedList(Object[] elements, long version) {
+        this(elements, 0, elements.length, version);
+    }
+
+    private VersionedList(Object[] elements, int from, int to, long version) {
+        this.elements = elements;
+        this.from = from;
+        this.to = to;
+        this.version = version;
+    }
+
+    /**
+     *
+     * @return returns the empty list at version 0
+     */
+    @SuppressWarnings("unchecked")
+    static <E> VersionedList<E> empty() {
+        return (VersionedList<E>) EMPTY;
+    }
+
+    /**
+     *
+     * @param element takes in an element to add
+     * @return returns a new list with the element at the end, one version up
+     */
+    VersionedList<E> with(E element) {
+        Object[] next = Arrays.copyOfRange(elements, from, to + 1);
+        next[next.length - 1] = element;
+        return new VersionedList<>(next, version + 1);
+    }
+
+    /**
+     *
+     * @param element takes in an element to remove
+     * @return returns a new list without the first occurrence of the element, one version up, or this list when
+     * the element is not in it
+     */
+    VersionedList<E> without(Object element) {
+        int index = indexOf(element);
+        if(index < 0) return this;
+        Object[] next = new Object[size() - 1];
+        System.arraycopy(elements, from, next, 0, index);
+        System.arraycopy(elements, from + index + 1, next, index, next.length - index);
+        return new VersionedList<>(next, version + 1);
+    }
+
+    /**
+     *
+     * @return returns the version of the list, higher versions were published later
+     */
+    public long version() {
+        return version;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        Objects.checkIndex(index, to - from);
+        return (E) elements[from + index];
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    /**
+     *
+     * @return returns a view of part of this list with the same version, sharing its array
+     */
+    @Override
+    public VersionedList<E> subList(int fromIndex, int toIndex) {
+        Objects.checkFromToIndex(fromIndex, toIndex, to - from);
+        return new VersionedList<>(elements, from + fromIndex, from + toIndex, version);
+    }
+
+    @Override
+    public Object[] toArray() {
+        return Arrays.copyOfRange(elements, from, to);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        int size = to - from;
+        if(a.length < size) return (T[]) Arrays.copyOfRange(elements, from, to, a.getClass());
+        System.arraycopy(elements, from, a, 0, size);
+        if(a.length > size) a[size] = null;
+        return a;
+    }
+}
@@ -0,0 +1,85 @@
+package miniprojects.schooldb;
+
+/**
+ * The students waiting for a seat in a class, in the order they will be promoted. The seat allocator keeps count
+ * of the waitlist and its capacity, so a waitlist only has to order the students. Every implementation is safe to
+ * use from many threads.
+ * @see FifoWaitlist
+ * @see PriorityWaitlist
+ */
+interface Waitlist {
+
+    /**
+     * adds a student to the waitlist
+     * @param student takes in the student
+     * @return returns false if the waitlist knows the student is already waiting and did not add them again
+     */
+    boolean offer(Student student);
+
+    /**
+     *
+     * @return returns and removes the student to promote next, or null when no one is waiting
+     */
+    Student poll();
+
+    /**
+     *
+     * @param student takes in the student to remove
+     * @return returns true if the student was waiting
+     */
+    boolean remove(Student student);
+
+    /**
+     *
+     * @param student takes in the student to look for
+     * @return returns true if the student is waiting
+     */
+    boolean contains(Student student);
+
+    /**
+     *
+     * @return returns a copy of the waiting students in the order they will be promoted
+     */
+    Student[] toArray();
+
+    /**
+     *
+     * @return returns the waiting students in the order they will be promoted, with what the waitlist needs to take
+     * them back in the same places
+     */
+    default Order order() {
+        return Order.of(toArray());
+    }
+
+    /**
+     * fills an empty waitlist with the students of an order taken from a waitlist of the same kind
+     * @param order takes in the order
+     * @return returns the number of students added
+     */
+    default int restore(Order order) {
+        int added = 0;
+        for(Student student : order.students()) if(offer(student)) added++;
+        return added;
+    }
+
+    /**
+     * The waiting students of a waitlist, as it is written to a snapshot.
+     * @param students the waiting students, in the order they will be promoted
+     * @param tiers the tier each student got when they joined, 0 in a waitlist without tiers
+     * @param joined the arrival number of each student, counting every student that ever joined the waitlist
+     * @param arrivals the arrival number the next student to join gets
+     */
+    record Order(Student[] students, int[] tiers, long[] joined, long arrivals) {
+
+        /**
+         *
+         * @param students takes in the waiting students, in the order they will be promoted
+         * @return returns the order of a waitlist that promotes students in the order they joined
+         */
+        static Order of(Student[] students) {
+            long[] joined = new long[students.length];
+            for(int i = 0; i < joined.length; i++) joined[i] = i;
+            return new Order(students, new int[students.length], joined, students.length);
+        }
+    }
+}
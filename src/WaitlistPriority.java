@@ -0,0 +1,40 @@
+package miniprojects.schooldb;
+
+import miniprojects.schooldb.Course.Clazz;
+
+/**
+ * Decides which wait-listed students of a class are promoted first. Students get a tier when they join the waitlist,
+ * from 0 up to 15, and higher tiers go first. A class with a priority ages its waitlist so that students of low
+ * tiers are still promoted eventually, see {@link PriorityWaitlist}.
+ */
+@FunctionalInterface
+public interface WaitlistPriority {
+
+    /**
+     *
+     * @param student takes in a student joining the waitlist
+     * @param clazz takes in the class the student is waiting for
+     * @return returns the tier of the student, higher tiers are promoted first
+     */
+    int tier(Student student, Clazz clazz);
+
+    /**
+     * The tiers a registrar uses: one tier each for being a senior, for majoring in the department of the course and
+     * for needing the course to graduate. Seniors have earned three quarters of the credits the audit requires, and
+     * a student needs the course to graduate when its credits would complete their degree.
+     * @param audit takes in the audit the credits are read from
+     * @return returns the priority
+     */
+    static WaitlistPriority registrar(DegreeAudit audit) {
+        return (student, clazz) -> {
+            DegreeAudit.Audit standing = audit.audit(student);
+            Department department = clazz.getCourse().getDepartment();
+            int tier = 0;
+            if(standing.earnedCredits() * 4 >= audit.getRequiredCredits() * 3) tier++;
+            if(department != null && department.equals(student.getMajor())) tier++;
+            int remaining = standing.remainingCredits();
+            if(remaining > 0 && remaining <= clazz.getCourse().getNumOfCredits()) tier++;
+            return tier;
+        };
+    }
+}
@@ -0,0 +1,132 @@
+package miniprojects.schooldb;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * The times of the week a person is busy. The week is cut into {@value #SLOT_MINUTES}-minute slots and every slot is
+ * one bit, so the whole week is {@value #WORDS} longs. Checking a class against the schedule only looks at the few
+ * words the class's meetings fall in, so the check takes the same time no matter how many classes the person already
+ * has.
+ * <br>
+ * Meetings are rounded out to whole slots, so two meetings that come within one slot of each other count as a
+ * conflict. Every method locks the schedule, which belongs to a single person.
+ */
+final class WeeklySchedule {
+    static final int SLOT_MINUTES = 5;
+    private static final int SLOTS = 7 * 24 * 60 / SLOT_MINUTES;
+    private static final int WORDS = (SLOTS + 63) / 64;
+    private final long[] busy = new long[WORDS];
+
+    /**
+     * Marks the slots of the mask busy, unless one of them already is.
+     * @param mask takes in the slots of a class
+     * @return returns false, and changes nothing, when the mask overlaps the schedule
+     */
+    synchronized boolean book(Mask mask) {
+        if(overlaps(mask)) return false;
+        for(int i = 0; i < mask.words.length; i++) busy[mask.words[i]] |= mask.bits[i];
+        return true;
+    }
+
+    /**
+     * marks the slots of the mask free
+     * @param mask takes in the slots of a class that was booked
+     */
+    synchronized void release(Mask mask) {
+        for(int i = 0; i < mask.words.length; i++) busy[mask.words[i]] &= ~mask.bits[i];
+    }
+
+    /**
+     * Moves a booking from one set of slots to another, for a class whose meeting times changed.
+     * @param from takes in the slots that were booked
+     * @param to takes in the slots to book instead
+     * @return returns false, and keeps the old booking, when the new slots overlap the rest of the schedule
+     */
+    synchronized boolean rebook(Mask from, Mask to) {
+        release(from);
+        if(book(to)) return true;
+        book(from);
+        return false;
+    }
+
+    /**
+     *
+     * @param mask takes in the slots of a class
+     * @return returns true if any of the slots are busy
+     */
+    synchronized boolean overlaps(Mask mask) {
+        for(int i = 0; i < mask.words.length; i++) if((busy[mask.words[i]] & mask.bits[i]) != 0) return true;
+        return false;
+    }
+
+    /**
+     * The slots taken by the meetings of a class. Only the words that have a busy slot are kept.
+     */
+    static final class Mask {
+        static final Mask EMPTY = new Mask(new int[0], new long[0]);
+        private final int[] words;
+        private final long[] bits;
+
+        private Mask(int[] words, long[] bits) {
+            this.words = words;
+            this.bits = bits;
+        }
+
+        /**
+         *
+         * @param meetings takes in the meetings of a class
+         * @return returns the slots the meetings fall in
+         */
+        static Mask of(Collection<MeetingTime> meetings) {
+            long[] week = new long[WORDS];
+            for(MeetingTime meeting : meetings) {
+                int from = meeting.startMinute() / SLOT_MINUTES;
+                int to = (meeting.endMinute() + SLOT_MINUTES - 1) / SLOT_MINUTES;
+                for(int slot = from; slot < to; slot++) week[slot >>> 6] |= 1L << slot;
+            }
+            int used = 0;
+            for(long word : week) if(word != 0) used++;
+            int[] words = new int[used];
+            long[] bits = new long[used];
+            for(int i = 0, j = 0; i < WORDS; i++) {
+                if(week[i] == 0) continue;
+                words[j] = i;
+                bits[j++] = week[i];
+            }
+            return new Mask(words, bits);
+        }
+
+        /**
+         *
+         * @return returns true if the mask has no slots
+         */
+        boolean isEmpty() {
+            return words.length == 0;
+        }
+
+        /**
+         *
+         * @param other takes in the slots of another class
+         * @return returns true if the two masks share a slot
+         */
+        boolean overlaps(Mask other) {
+            for(int i = 0, j = 0; i < words.length && j < other.words.length; ) {
+                if(words[i] < other.words[j]) i++;
+                else if(words[i] > other.words[j]) j++;
+                else if((bits[i++] & other.bits[j++]) != 0) return true;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Mask mask && Arrays.equals(words, mask.words) && Arrays.equals(bits, mask.bits);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(words) + Arrays.hashCode(bits);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package miniprojects.schooldb;
+
+/**
+ * The teaching load of an instructor. Loads sort by credits, then seats, then classes, so the lightest load comes
+ * first.
+ * @param classes the number of classes taught
+ * @param credits the credits of the courses of those classes, added up
+ * @param seats the seats of those classes, added up
+ */
+public record Workload(int classes, int credits, int seats) implements Comparable<Workload> {
+    static final Workload NONE = new Workload(0, 0, 0);
+
+    /**
+     * @return returns the load of teaching one class
+     */
+    static Workload of(Course.Clazz clazz) {
+        return new Workload(1, clazz.getCourse().getNumOfCredits(), clazz.getCapacity());
+    }
+
+    /**
+     * @return returns the loads added up, or the other load taken away when sign is -1
+     */
+    Workload plus(Workload other, int sign) {
+        return new Workload(classes + sign * other.classes, credits + sign * other.credits,
+                seats + sign * other.seats);
+    }
+
+    @Override
+    public int compareTo(Workload o) {
+        int compare = Integer.compare(credits, o.credits);
+        if(compare == 0) compare = Integer.compare(seats, o.seats);
+        return compare != 0 ? compare : Integer.compare(classes, o.classes);
+    }
+}
@@ -0,0 +1,172 @@
+package miniprojects.schooldb;
+
+import miniprojects.schooldb.Course.Clazz;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The instructors of a department sorted by {@link Workload}, as a whole and per course they are qualified to
+ * teach. The sorted sets are concurrent skip lists, so the least loaded instructor, or the least loaded one qualified
+ * for a course, is found in logarithmic time while assignments are going on. An instructor's entries are updated
+ * every time they take on or give up a class. The department's total credits and seats are kept as running sums.
+ */
+public final class WorkloadIndex {
+    private static final Comparator<Load> ORDER = Comparator.comparing(Load::workload)
+            .thenComparing(load -> load.instructor().getId());
+
+    private final NavigableSet<Load> all = new ConcurrentSkipListSet<>(ORDER);
+    private final Map<CourseKey, NavigableSet<Load>> byCourse = new ConcurrentHashMap<>();
+    private final AtomicLong credits = new AtomicLong();
+    private final AtomicLong seats = new AtomicLong();
+
+    /**
+     * An instructor and their load.
+     * @param instructor the instructor
+     * @param workload the load of the instructor
+     */
+    public record Load(Instructor instructor, Workload workload) {
+    }
+
+    /**
+     * adds an instructor with their current load and qualifications
+     * @param instructor takes in the instructor
+     */
+    void add(Instructor instructor) {
+        synchronized(instructor) {
+            Load load = new Load(instructor, instructor.getWorkload());
+            if(!all.add(load)) return;
+            for(CourseKey course : instructor.getQualifications()) courseSet(course).add(load);
+            credits.addAndGet(load.workload().credits());
+            seats.addAndGet(load.workload().seats());
+        }
+    }
+
+    /**
+     * takes an instructor out of the index
+     * @param instructor takes in the instructor
+     */
+    void remove(Instructor instructor) {
+        synchronized(instructor) {
+            Load load = new Load(instructor, instructor.getWorkload());
+            if(!all.remove(load)) return;
+            for(CourseKey course : instructor.getQualifications()) courseSet(course).remove(load);
+            credits.addAndGet(-load.workload().credits());
+            seats.addAndGet(-load.workload().seats());
+        }
+    }
+
+    /**
+     * Moves an instructor to their new load. The caller holds the instructor's lock. The new entry goes in before
+     * the old one comes out, so readers always find the instructor.
+     */
+    void changed(Instructor instructor, Workload before, Workload after) {
+        Load old = new Load(instructor, before), load = new Load(instructor, after);
+        if(!all.contains(old)) return;
+        all.add(load);
+        all.remove(old);
+        for(CourseKey course : instructor.getQualifications()) {
+            NavigableSet<Load> set = courseSet(course);
+            set.add(load);
+            set.remove(old);
+        }
+        credits.addAndGet(after.credits() - before.credits());
+        seats.addAndGet(after.seats() - before.seats());
+    }
+
+    /**
+     * adds an instructor to the instructors qualified for a course. The caller holds the instructor's lock.
+     */
+    void qualified(Instructor instructor, CourseKey course) {
+        Load load = new Load(instructor, instructor.getWorkload());
+        if(all.contains(load)) courseSet(course).add(load);
+    }
+
+    private NavigableSet<Load> courseSet(CourseKey course) {
+        return byCourse.computeIfAbsent(course, key -> new ConcurrentSkipListSet<>(ORDER));
+    }
+
+    /**
+     *
+     * @return returns the instructor with the lightest load, if the department has any
+     */
+    public Optional<Instructor> leastLoaded() {
+        Load first = firstOf(all);
+        return first == null ? Optional.empty() : Optional.of(first.instructor());
+    }
+
+    /**
+     *
+     * @param course takes in a course
+     * @return returns the instructor with the lightest load of those qualified to teach the course, if there is one
+     */
+    public Optional<Instructor> leastLoaded(CourseKey course) {
+        NavigableSet<Load> set = byCourse.get(course);
+        Load first = set == null ? null : firstOf(set);
+        return first == null ? Optional.empty() : Optional.of(first.instructor());
+    }
+
+    /**
+     * Finds the lightest loaded instructor qualified for the course of a class who is free when it meets. Busy
+     * instructors are skipped in load order, so this takes longer the more of the lightest loaded instructors are
+     * busy.
+     * @param clazz takes in the class
+     * @return returns the instructor, if one is qualified and free
+     */
+    public Optional<Instructor> leastLoadedFree(Clazz clazz) {
+        NavigableSet<Load> set = byCourse.get(clazz.getCourse().getKey());
+        if(set == null) return Optional.empty();
+        WeeklySchedule.Mask slots = clazz.getMeetingSlots();
+        Set<Instructor> seen = new HashSet<>();
+        for(Load load : set) {
+            //an instructor can be listed twice for a moment while their load changes
+            Instructor instructor = load.instructor();
+            if(seen.add(instructor) && !instructor.getSchedule().overlaps(slots)) return Optional.of(instructor);
+        }
+        return Optional.empty();
+    }
+
+    private static Load firstOf(NavigableSet<Load> set) {
+        try {
+            return set.first();
+        } catch (NoSuchElementException e) {
+            return null;
+        }
+    }
+
+    /**
+     *
+     * @return returns every instructor with their load, lightest first
+     */
+    public List<Load> byLoad() {
+        List<Load> loads = new ArrayList<>();
+        Set<Instructor> seen = new HashSet<>();
+        for(Load load : all) if(seen.add(load.instructor())) loads.add(load);
+        return loads;
+    }
+
+    /**
+     *
+     * @return returns the credits taught in the department, added up over its instructors
+     */
+    public long totalCredits() {
+        return credits.get();
+    }
+
+    /**
+     *
+     * @return returns the seats taught in the department, added up over its instructors
+     */
+    public long totalSeats() {
+        return seats.get();
+    }
+}